@@ -0,0 +1,23 @@
+package com.sandwich.annotatedbundle;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * jmh's main, with the gc profiler always on so every stage reports its
+ * allocation rate (gc.alloc.rate.norm - bytes per operation) beside its
+ * throughput. takes jmh's usual arguments, ie: java -jar benchmarks.jar
+ * ParseBenchmark -p keyCount=1000
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder()
+			.parent(new CommandLineOptions(args))
+			.addProfiler(GCProfiler.class)
+			.build()).run();
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.sandwich.annotatedbundle;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.sandwich.annotatedbundle.Fixtures.Layout;
+
+/**
+ * the fixture bundle a trial runs against, one per combination of params.
+ * override with jmh's -p, ie -p keyCount=1000000 -p layout=INLINE
+ */
+@State(Scope.Benchmark)
+public class FixtureState {
+
+	@Param({"1000", "100000"})
+	public int keyCount;
+
+	@Param({"0.1", "1.0"})
+	public double annotationDensity;
+
+	@Param({"0", "3"})
+	public int placeholderDepth;
+
+	@Param({"INLINE", "ANNOTATIONS_FILE"})
+	public Layout layout;
+
+	public Fixtures fixtures;
+
+	@Setup(Level.Trial)
+	public void writeFixtures() throws IOException {
+		fixtures = new Fixtures(keyCount, annotationDensity, placeholderDepth, layout);
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteFixtures() {
+		fixtures.delete();
+	}
+
+}
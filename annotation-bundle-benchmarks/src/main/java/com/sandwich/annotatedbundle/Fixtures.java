@@ -0,0 +1,140 @@
+package com.sandwich.annotatedbundle;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * generated bundles for the benchmarks. a bundle holds keyCount properties
+ * (key.0=value 0 ...), every n-th one annotated per the annotation density.
+ * with a placeholder depth the annotations refer to a chain of properties
+ * (ref.N=${ref.N-1}.N ...) that many references deep. annotations are
+ * written inline, ahead of their property, or bound from an .annotations
+ * file.
+ */
+public class Fixtures {
+
+	public static final String BUNDLE_NAME = "fixture";
+
+	public enum Layout {
+		INLINE, ANNOTATIONS_FILE
+	}
+
+	private final File directory;
+	private final int keyCount;
+	private final double annotationDensity;
+	private final int placeholderDepth;
+	private final Layout layout;
+
+	/**
+	 * write the bundle to a new temporary directory
+	 * @param annotationDensity share of keys annotated, 0 to 1
+	 */
+	public Fixtures(int keyCount, double annotationDensity, int placeholderDepth, Layout layout) throws IOException {
+		this.directory = File.createTempFile("annotation-bundle-fixture", "");
+		this.keyCount = keyCount;
+		this.annotationDensity = annotationDensity;
+		this.placeholderDepth = placeholderDepth;
+		this.layout = layout;
+		if(!directory.delete() || !directory.mkdir()){
+			throw new IOException("Could not create: "+directory);
+		}
+		write();
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public File getPropertiesFile() {
+		return new File(directory, BUNDLE_NAME + ".properties");
+	}
+
+	public File getAnnotationsFile() {
+		return new File(directory, BUNDLE_NAME + ".annotations");
+	}
+
+	/**
+	 * a loader of the fixture only - bundles it loads aren't shared with
+	 * any other loader's in the jdk's cache
+	 */
+	public ClassLoader newClassLoader() throws IOException {
+		return new URLClassLoader(new URL[]{directory.toURI().toURL()}, null);
+	}
+
+	public int getKeyCount() {
+		return keyCount;
+	}
+
+	public String key(int i) {
+		return "key." + i;
+	}
+
+	public boolean isAnnotated(int i) {
+		return annotationDensity > 0 && i % Math.max(1, Math.round(1 / annotationDensity)) == 0;
+	}
+
+	/**
+	 * the annotation of key i, without the leading #@ (and binding)
+	 */
+	public String attributes(int i) {
+		StringBuilder attributes = new StringBuilder()
+			.append(" location:dialog_").append(i % 100)
+			.append("; resource_type:png-image; width:").append(16 + i % 48).append(';');
+		if(placeholderDepth > 0){
+			attributes.append(" path:/images/${ref.").append(placeholderDepth).append("}/").append(i).append(';');
+		}
+		return attributes.toString();
+	}
+
+	private void write() throws IOException {
+		Writer properties = open(getPropertiesFile());
+		Writer annotations = layout == Layout.ANNOTATIONS_FILE ? open(getAnnotationsFile()) : null;
+		try{
+			properties.write("# generated: " + keyCount + " keys, density " + annotationDensity 
+					+ ", depth " + placeholderDepth + ", " + layout + "\n");
+			properties.write("ref.0=root\n");
+			for(int depth = 1; depth <= placeholderDepth; depth++){
+				properties.write("ref." + depth + "=${ref." + (depth - 1) + "}." + depth + "\n");
+			}
+			for(int i = 0; i < keyCount; i++){
+				if(isAnnotated(i)){
+					if(annotations == null){
+						properties.write("#@" + attributes(i) + "\n");
+					}else{
+						annotations.write("#@ @" + key(i) + ";" + attributes(i) + "\n");
+					}
+				}
+				properties.write(key(i) + "=value " + i + "\n");
+			}
+		}finally{
+			try{
+				properties.close();
+			}finally{
+				if(annotations != null){
+					annotations.close();
+				}
+			}
+		}
+	}
+
+	private static Writer open(File file) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+	}
+
+	/**
+	 * remove the generated files
+	 */
+	public void delete() {
+		for(File file : directory.listFiles()){
+			file.delete();
+		}
+		directory.delete();
+	}
+
+}
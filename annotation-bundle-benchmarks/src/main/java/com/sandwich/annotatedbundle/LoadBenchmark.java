@@ -0,0 +1,50 @@
+package com.sandwich.annotatedbundle;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * a bundle loaded end to end - properties and annotations files read,
+ * merged and resolved - as on a first getBundle. every invocation uses a new
+ * class loader, so nothing is served from the jdk's ResourceBundle cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LoadBenchmark {
+
+	private ClassLoader classLoader;
+
+	@Setup(Level.Invocation)
+	public void newClassLoader(FixtureState state) throws IOException {
+		classLoader = state.fixtures.newClassLoader();
+	}
+
+	@Benchmark
+	public AnnotatedResourceBundle load() {
+		return new BundleCache().getBundle(Fixtures.BUNDLE_NAME, classLoader, Locale.ROOT);
+	}
+
+	@Benchmark
+	public AnnotatedResourceBundle loadLazily() {
+		return new BundleCache().getBundle(Fixtures.BUNDLE_NAME, classLoader, Locale.ROOT, 
+				BundleOptions.defaults().withLazyAnnotations(true));
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.sandwich.annotatedbundle;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * lookups against a loaded bundle, cycling through its keys
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LookupBenchmark {
+
+	private AnnotatedResourceBundle bundle;
+	private String[] keys;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void load(FixtureState state) throws IOException {
+		bundle = new BundleCache().getBundle(Fixtures.BUNDLE_NAME, state.fixtures.newClassLoader(), Locale.ROOT);
+		keys = new String[state.fixtures.getKeyCount()];
+		for(int i = 0; i < keys.length; i++){
+			keys[i] = state.fixtures.key(i);
+		}
+	}
+
+	private String nextKey() {
+		String key = keys[next];
+		next = next + 1 == keys.length ? 0 : next + 1;
+		return key;
+	}
+
+	@Benchmark
+	public Map<String, String> getAttributes() {
+		return bundle.getAttributes(nextKey());
+	}
+
+	@Benchmark
+	public String getAttribute() {
+		Map<String, String> attributes = bundle.getAttributes(nextKey());
+		return attributes == null ? null : attributes.get("resource_type");
+	}
+
+	@Benchmark
+	public String getString() {
+		return bundle.getString(nextKey());
+	}
+
+}
@@ -0,0 +1,71 @@
+package com.sandwich.annotatedbundle.filereader;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sandwich.annotatedbundle.FixtureState;
+import com.sandwich.annotatedbundle.Fixtures;
+
+/**
+ * parseAttributesFromLine over a fixture's annotation lines - unresolved,
+ * and with ${} references inserted from the fixture's values as a reader
+ * constructed with a bundle does (insertOtherPropertyValues)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AttributeLineBenchmark {
+
+	private static final int LINES = 1024;
+
+	private FileReader unresolvedReader;
+	private FileReader resolvingReader;
+	private String[] lines;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void readLines(FixtureState state) throws Exception {
+		ResourceBundle bundle = ResourceBundle.getBundle(Fixtures.BUNDLE_NAME, Locale.ROOT, state.fixtures.newClassLoader());
+		unresolvedReader = new PropertiesFileReader(null);
+		resolvingReader = new PropertiesFileReader(bundle);
+		lines = new String[LINES];
+		for(int i = 0; i < lines.length; i++){
+			// as the readers pass it on: the annotation line after its #@, trimmed
+			lines[i] = state.fixtures.attributes(i).trim();
+		}
+	}
+
+	private String nextLine() {
+		String line = lines[next];
+		next = (next + 1) & (LINES - 1);
+		return line;
+	}
+
+	@Benchmark
+	public Map<String, String> parseAttributesFromLine() {
+		return unresolvedReader.parseAttributesFromLine(nextLine());
+	}
+
+	@Benchmark
+	public Map<String, String> parseAttributesFromLineResolved() {
+		return resolvingReader.parseAttributesFromLine(nextLine());
+	}
+
+}
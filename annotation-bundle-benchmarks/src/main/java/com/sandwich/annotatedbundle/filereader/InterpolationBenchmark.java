@@ -0,0 +1,68 @@
+package com.sandwich.annotatedbundle.filereader;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sandwich.annotatedbundle.FixtureState;
+import com.sandwich.annotatedbundle.Fixtures;
+
+/**
+ * inserting ${} references into every attribute of a fixture, as a snapshot
+ * does once per load - one Interpolator for all of them
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class InterpolationBenchmark {
+
+	private ResourceBundle bundle;
+	private String[] values;
+
+	@Setup(Level.Trial)
+	public void readAttributes(FixtureState state) throws Exception {
+		bundle = ResourceBundle.getBundle(Fixtures.BUNDLE_NAME, Locale.ROOT, state.fixtures.newClassLoader());
+		Map<String, Map<String, String>> propertyAttributes = new PropertiesFileReader(null)
+			.capturePropertiesFromFile(state.fixtures.getPropertiesFile());
+		propertyAttributes.putAll(new AnnotationsFileReader(null).capturePropertiesFromResource(
+				state.fixtures.getAnnotationsFile().exists() ? state.fixtures.getAnnotationsFile().toURI().toURL() : null));
+		int count = 0;
+		for(Map<String, String> attributes : propertyAttributes.values()){
+			count += attributes.size();
+		}
+		values = new String[count];
+		int i = 0;
+		for(Map<String, String> attributes : propertyAttributes.values()){
+			for(String value : attributes.values()){
+				values[i++] = value;
+			}
+		}
+	}
+
+	@Benchmark
+	public String[] interpolateAll() {
+		Interpolator interpolator = new Interpolator(bundle);
+		String[] interpolated = new String[values.length];
+		for(int i = 0; i < values.length; i++){
+			interpolated[i] = interpolator.interpolate(values[i]);
+		}
+		return interpolated;
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.sandwich.annotatedbundle.filereader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sandwich.annotatedbundle.FixtureState;
+
+/**
+ * the readers alone: a fixture's files parsed into unresolved attributes
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+
+	private final FileReader propertiesFileReader = new PropertiesFileReader(null);
+	private final FileReader annotationsFileReader = new AnnotationsFileReader(null);
+	private File propertiesFile;
+	/**
+	 * null for inline fixtures
+	 */
+	private File annotationsFile;
+
+	@Setup(Level.Trial)
+	public void findFiles(FixtureState state) {
+		propertiesFileReader.setMappedFileThreshold(Long.MAX_VALUE);
+		annotationsFileReader.setMappedFileThreshold(Long.MAX_VALUE);
+		propertiesFile = state.fixtures.getPropertiesFile();
+		annotationsFile = state.fixtures.getAnnotationsFile().exists() ? state.fixtures.getAnnotationsFile() : null;
+	}
+
+	@Benchmark
+	public Map<String, Map<String, String>> propertiesFile() {
+		return propertiesFileReader.capturePropertiesFromFile(propertiesFile);
+	}
+
+	@Benchmark
+	public Map<String, Map<String, String>> propertiesFileMapped() {
+		return propertiesFileReader.capturePropertiesFromMappedFile(propertiesFile);
+	}
+
+	/**
+	 * values and annotations in one pass, as bundles are loaded
+	 */
+	@Benchmark
+	public ParsedProperties propertiesFileValuesAndAnnotations() throws IOException {
+		return new AnnotatedPropertiesReader().read(new FileInputStream(propertiesFile));
+	}
+
+	@Benchmark
+	public Map<String, Map<String, String>> annotationsFile() {
+		if(annotationsFile == null){
+			return Collections.emptyMap();
+		}
+		return annotationsFileReader.capturePropertiesFromFile(annotationsFile);
+	}
+
+}
@@ -0,0 +1,156 @@
+package com.sandwich.annotatedbundle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+import com.sandwich.annotatedbundle.filereader.ParsedProperties;
+
+/**
+ * a properties backed ResourceBundle that also carries the annotations read
+ * from its file, so the file need not be read a second time for them, and
+ * those of its locale's annotations file. the jdk caches one per locale and
+ * shares it with every more specific locale's chain, so each locale's files
+ * are parsed once. returned by ResourceBundle.getBundle when loaded with an
+ * AnnotatedPropertiesControl.
+ */
+public class AnnotatedPropertiesBundle extends ReloadableBundle {
+
+	private final Map<String, String> values;
+	private final Map<String, Map<String, String>> propertyAttributes;
+	private final Map<String, Map<String, String>> annotationsFileAttributes;
+	/**
+	 * the attributes of this bundle's chain, resolved on first use
+	 */
+	private volatile BundleSnapshot snapshot;
+
+	AnnotatedPropertiesBundle(Locale locale, ParsedProperties properties){
+		this(locale, UNKNOWN_LAST_MODIFIED, properties, Collections.<String, Map<String, String>>emptyMap());
+	}
+
+	/**
+	 * @param lastModified as AnnotatedPropertiesControl.getLastModified,
+	 * taken before the files were read
+	 */
+	AnnotatedPropertiesBundle(Locale locale, long[] lastModified, ParsedProperties properties, 
+			Map<String, Map<String, String>> annotationsFileAttributes){
+		this(locale, lastModified, Collections.unmodifiableMap(properties.getValues()), 
+				BundleSnapshot.freeze(properties.getPropertyAttributes()), 
+				BundleSnapshot.freeze(annotationsFileAttributes));
+	}
+
+	private AnnotatedPropertiesBundle(Locale locale, long[] lastModified, Map<String, String> values, 
+			Map<String, Map<String, String>> propertyAttributes, Map<String, Map<String, String>> annotationsFileAttributes){
+		super(locale, lastModified);
+		this.values = values;
+		this.propertyAttributes = propertyAttributes;
+		this.annotationsFileAttributes = annotationsFileAttributes;
+	}
+
+	@Override
+	protected Object handleGetObject(String key) {
+		return values.get(key);
+	}
+
+	@Override
+	protected Set<String> handleKeySet() {
+		return values.keySet();
+	}
+
+	@Override
+	public Enumeration<String> getKeys() {
+		if(parent == null){
+			return Collections.enumeration(values.keySet());
+		}
+		Set<String> keys = new HashSet<String>(values.keySet());
+		keys.addAll(parent.keySet());
+		return Collections.enumeration(keys);
+	}
+
+	/**
+	 * return a map of annotated key/value pairs for the passed in property
+	 * key, as AnnotatedResourceBundle.getAttributes: this bundle's attributes
+	 * over those of the locales it falls back to, with ${} references
+	 * inserted from this bundle. an empty map if no annotation is present for
+	 * a key in the bundle.
+	 * 
+	 * @param key
+	 * @return null if the key is neither a property nor annotated
+	 */
+	public Map<String, String> getAttributes(String key) {
+		return getSnapshot().getPropertyAttributes().get(key);
+	}
+
+	/**
+	 * the attributes of every key, as getAttributes
+	 * @return
+	 */
+	public Map<String, Map<String, String>> getAttributes() {
+		return getSnapshot().getPropertyAttributes();
+	}
+
+	private BundleSnapshot getSnapshot() {
+		BundleSnapshot current = snapshot;
+		if(current == null){
+			synchronized(this){
+				current = snapshot;
+				if(current == null){
+					current = readSnapshot();
+					snapshot = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * merge the attributes of the annotated bundles in this one's chain, from
+	 * the least specific locale's files to this one's
+	 */
+	private BundleSnapshot readSnapshot() {
+		LinkedList<AnnotatedPropertiesBundle> chain = new LinkedList<AnnotatedPropertiesBundle>();
+		for(ResourceBundle bundle = this; bundle instanceof AnnotatedPropertiesBundle; bundle = ((AnnotatedPropertiesBundle)bundle).parent){
+			chain.addFirst((AnnotatedPropertiesBundle)bundle);
+		}
+		AnnotatedPropertiesBundle base = chain.removeFirst();
+		List<Map<String, Map<String, String>>> layers = new ArrayList<Map<String, Map<String, String>>>();
+		for(AnnotatedPropertiesBundle bundle : chain){
+			layers.add(bundle.annotationsFileAttributes);
+			layers.add(bundle.propertyAttributes);
+		}
+		return new BundleSnapshot(this, base.propertyAttributes, base.annotationsFileAttributes, layers);
+	}
+
+	/**
+	 * attributes annotated in this bundle's file, ${} references not yet inserted.
+	 * @return
+	 */
+	Map<String, Map<String, String>> getPropertyAttributes() {
+		return propertyAttributes;
+	}
+
+	/**
+	 * attributes from the annotations file of this bundle's locale, ${}
+	 * references not yet inserted. empty if there is no such file.
+	 * @return
+	 */
+	Map<String, Map<String, String>> getAnnotationsFileAttributes() {
+		return annotationsFileAttributes;
+	}
+
+	@Override
+	AnnotatedPropertiesBundle withParent(ResourceBundle parent) {
+		AnnotatedPropertiesBundle bundle = new AnnotatedPropertiesBundle(getLocale(), getLastModified(), values, 
+				propertyAttributes, annotationsFileAttributes);
+		bundle.setParent(parent);
+		return bundle;
+	}
+
+}
@@ -0,0 +1,194 @@
+package com.sandwich.annotatedbundle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PropertyResourceBundle;
+import java.util.ResourceBundle;
+import java.util.ResourceBundle.Control;
+
+import com.sandwich.annotatedbundle.filereader.AnnotatedPropertiesReader;
+import com.sandwich.annotatedbundle.filereader.AnnotationsFileReader;
+import com.sandwich.annotatedbundle.filereader.FileReader;
+import com.sandwich.annotatedbundle.filereader.ParseCache;
+import com.sandwich.annotatedbundle.filereader.ParsedProperties;
+
+/**
+ * loads properties files as AnnotatedPropertiesBundles - values and
+ * annotations are read in one pass over the file, or from a ParseCache. the
+ * annotations file of the same locale (ie images_de.annotations beside
+ * images_de.properties) is read along with it. passed to
+ * ResourceBundle.getBundle, the jdk caches annotated bundles as it does any
+ * other. a bundle cached longer than its time to live is reread only if its
+ * properties or annotations file changed since it was loaded - each locale
+ * of each bundle on its own, the rest of the cache is left as is.
+ */
+public class AnnotatedPropertiesControl extends Control {
+
+	private static final AnnotatedPropertiesControl INSTANCE = new AnnotatedPropertiesControl(TTL_NO_EXPIRATION_CONTROL);
+	private static final String PROPERTIES_SUFFIX = "properties";
+	private static final String ANNOTATIONS_SUFFIX = "annotations";
+	private static final String FILE_PROTOCOL = "file";
+
+	private final ParseCache parseCache;
+	private final BundleMetrics metrics;
+	private final long timeToLive;
+	/**
+	 * false to load plain properties bundles, their annotations left for the
+	 * caller to read
+	 */
+	private final boolean annotated;
+
+	/**
+	 * @param timeToLive milliseconds a loaded bundle is cached before its
+	 * files are checked for changes, TTL_DONT_CACHE or TTL_NO_EXPIRATION_CONTROL
+	 * @throws IllegalArgumentException for any other negative time
+	 */
+	public AnnotatedPropertiesControl(long timeToLive){
+		this(null, null, timeToLive, true);
+		if(timeToLive < 0 && timeToLive != TTL_DONT_CACHE && timeToLive != TTL_NO_EXPIRATION_CONTROL){
+			throw new IllegalArgumentException("The time to live: "+timeToLive+" is not valid.");
+		}
+	}
+
+	/**
+	 * @param parseCache null to parse every file read
+	 * @param metrics where the files parsed are counted, null to count nothing
+	 * @param timeToLive as getTimeToLive
+	 * @param annotated false to load bundles of the properties files' values
+	 * only, as a PropertyResourceBundle reads them
+	 */
+	AnnotatedPropertiesControl(ParseCache parseCache, BundleMetrics metrics, long timeToLive, boolean annotated){
+		this.parseCache = parseCache;
+		this.metrics = metrics;
+		this.timeToLive = timeToLive;
+		this.annotated = annotated;
+	}
+
+	/**
+	 * a control whose bundles are cached until the jdk's cache is cleared,
+	 * as those of ResourceBundle.getBundle's default control are
+	 */
+	public static AnnotatedPropertiesControl getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public List<String> getFormats(String baseName) {
+		return FORMAT_PROPERTIES;
+	}
+
+	@Override
+	public long getTimeToLive(String baseName, Locale locale) {
+		return timeToLive;
+	}
+
+	/**
+	 * has either of the bundle's files been modified after it was loaded?
+	 * a file that can't be checked is assumed to have been.
+	 */
+	@Override
+	public boolean needsReload(String baseName, Locale locale, String format, ClassLoader loader, ResourceBundle bundle,
+			long loadTime) {
+		for(long lastModified : getLastModified(baseName, locale, loader)){
+			if(lastModified < 0 || lastModified > loadTime){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * has either of the files of a bundle this control loaded been modified
+	 * (or created, or deleted) since it was read? compares the files'
+	 * modification times with those the bundle recorded, rather than with
+	 * a clock. bundles loaded by another control always have been.
+	 */
+	boolean isModified(String baseName, Locale locale, ClassLoader loader, ResourceBundle bundle) {
+		if(!(bundle instanceof ReloadableBundle)){
+			return true;
+		}
+		long[] read = ((ReloadableBundle)bundle).getLastModified();
+		long[] current = getLastModified(baseName, locale, loader);
+		for(int i = 0; i < read.length; i++){
+			if(read[i] < 0 || read[i] != current[i]){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * when the locale's properties file, then its annotations file, was last
+	 * modified: 0 if there is no such file, -1 if it can't be told
+	 */
+	long[] getLastModified(String baseName, Locale locale, ClassLoader loader) {
+		String bundleName = toBundleName(baseName, locale);
+		return new long[]{lastModified(loader.getResource(toResourceName(bundleName, PROPERTIES_SUFFIX))), 
+				lastModified(loader.getResource(toResourceName(bundleName, ANNOTATIONS_SUFFIX)))};
+	}
+
+	/**
+	 * @param url null if there is no such file
+	 */
+	private static long lastModified(URL url) {
+		if(url == null){
+			return 0;
+		}
+		try{
+			if(FILE_PROTOCOL.equals(url.getProtocol())){
+				File file = new File(url.toURI());
+				return file.exists() ? file.lastModified() : 0;
+			}
+			URLConnection connection = url.openConnection();
+			connection.setUseCaches(false);
+			long lastModified = connection.getLastModified();
+			connection.getInputStream().close();
+			return lastModified == 0 ? -1 : lastModified;
+		}catch(IOException e){
+			return -1;
+		}catch(URISyntaxException e){
+			return -1;
+		}
+	}
+
+	@Override
+	public ResourceBundle newBundle(String baseName, Locale locale, String format, ClassLoader loader, boolean reload)
+			throws IllegalAccessException, InstantiationException, IOException {
+		long[] lastModified = getLastModified(baseName, locale, loader);
+		if(!annotated){
+			ResourceBundle values = super.newBundle(baseName, locale, format, loader, reload);
+			return values == null ? null : new PropertiesBundle(locale, lastModified, (PropertyResourceBundle)values);
+		}
+		URL url = loader.getResource(toResourceName(toBundleName(baseName, locale), PROPERTIES_SUFFIX));
+		if(url == null){
+			return null;
+		}
+		URLConnection connection = url.openConnection();
+		if(reload){
+			connection.setUseCaches(false);
+		}
+		InputStream in = connection.getInputStream();
+		AnnotatedPropertiesReader reader = new AnnotatedPropertiesReader(metrics == null ? null : metrics.getPropertiesFileMetrics());
+		ParsedProperties properties = parseCache == null ? reader.read(in) : parseCache.readProperties(in, reader);
+		return new AnnotatedPropertiesBundle(locale, lastModified, properties, readAnnotations(toBundleName(baseName, locale), loader));
+	}
+
+	/**
+	 * @return attributes from the bundle's annotations file, empty if there is none
+	 */
+	private Map<String, Map<String, String>> readAnnotations(String bundleName, ClassLoader loader) {
+		FileReader reader = new AnnotationsFileReader(null);
+		reader.setMetrics(metrics == null ? null : metrics.getAnnotationsFileMetrics());
+		URL url = reader.findResource(bundleName, loader);
+		return parseCache == null ? reader.capturePropertiesFromResource(url) 
+				: parseCache.capturePropertiesFromResource(reader, url);
+	}
+
+}
@@ -1,29 +1,84 @@
 package com.sandwich.annotatedbundle;
 
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLConnection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 import java.util.ResourceBundle.Control;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
+import com.sandwich.annotatedbundle.filereader.AnnotatedPropertiesReader;
 import com.sandwich.annotatedbundle.filereader.AnnotationsFileReader;
 import com.sandwich.annotatedbundle.filereader.FileReader;
+import com.sandwich.annotatedbundle.filereader.LineIndex;
+import com.sandwich.annotatedbundle.filereader.ParseCache;
+import com.sandwich.annotatedbundle.filereader.ParsedProperties;
 import com.sandwich.annotatedbundle.filereader.PropertiesFileReader;
 
 public class AnnotatedResourceBundle {
 	
-	private ResourceBundle bundle;
-	private String bundleName;
-	private Map<String, Map<String, String>> propertyAttributes;
-	private FileReader propertiesFileReader;
-	private FileReader annotationsFileReader;
+	/**
+	 * instances handed out by the static getBundle methods. their metrics
+	 * are published only once asked for (see BundleCache.registerMBeans),
+	 * loading a bundle doesn't start the platform MBean server.
+	 */
+	private static final BundleCache BUNDLE_CACHE = new BundleCache();
+	/**
+	 * the bundles this class loads expire from the jdk's cache at once, so
+	 * another bundle of the same name (and class loader and locale) checks
+	 * their files for changes when it is constructed - and only rereads those
+	 * that changed. refreshes don't go through the jdk's cache.
+	 */
+	private static final long RELOAD_CHECKED_TIME_TO_LIVE = 0;
+	
+	private final String bundleName;
+	private final Locale locale;
+	private final BundleOptions options;
+	/**
+	 * the loader the bundle was last read from, for rereading its files.
+	 * held weakly, as shared bundles are, so a bundle doesn't keep its
+	 * loader from being collected.
+	 */
+	private volatile WeakReference<ClassLoader> classLoader;
+	/**
+	 * null unless the options name a cache directory
+	 */
+	private final ParseCache parseCache;
+	/**
+	 * everything read from the files. replaced as a whole and never modified,
+	 * so reads need no locking and never see a half loaded state.
+	 */
+	private volatile BundleSnapshot snapshot;
+	/**
+	 * readers leave ${} references in place, snapshots resolve them
+	 */
+	private final FileReader propertiesFileReader = new PropertiesFileReader(null);
+	private final FileReader annotationsFileReader = new AnnotationsFileReader(null);
+	private final BundleMetrics metrics;
 	
 	/** 
 	 * uninitialized instance, for testing (may not be initialized outside construction easily)
 	 */
 	AnnotatedResourceBundle(){
-		// intentionally empty
+		this.bundleName = null;
+		this.locale = null;
+		this.options = null;
+		this.classLoader = null;
+		this.parseCache = null;
+		this.metrics = new BundleMetrics(this, null, null);
 	}
 	
 	/**
@@ -38,31 +93,130 @@ public class AnnotatedResourceBundle {
 	 * initialized instance of bundle w/ check for existing resource
 	 */
 	AnnotatedResourceBundle(String bundleName, ClassLoader classLoader){
-		this.bundle = createBundle(bundleName, classLoader);
+		this(bundleName, classLoader, Locale.getDefault());
+	}
+	
+	/**
+	 * initialized instance of bundle for a specific locale
+	 */
+	AnnotatedResourceBundle(String bundleName, ClassLoader classLoader, Locale locale){
+		this(bundleName, classLoader, locale, BundleOptions.defaults());
+	}
+	
+	/**
+	 * initialized instance of bundle for a specific locale, read as the options specify
+	 */
+	AnnotatedResourceBundle(String bundleName, ClassLoader classLoader, Locale locale, BundleOptions options){
+		this.bundleName = bundleName == null ? null : bundleName.replace(PropertiesFileReader.PROPERTIES_FILE_SUFFIX, "");
+		this.locale = locale;
+		this.options = options;
+		this.classLoader = new WeakReference<ClassLoader>(classLoader);
+		this.parseCache = options.getCacheDirectory() == null ? null : new ParseCache(options.getCacheDirectory());
+		this.metrics = new BundleMetrics(this, this.bundleName, String.valueOf(locale));
+		propertiesFileReader.setMetrics(metrics.getPropertiesFileMetrics());
+		annotationsFileReader.setMetrics(metrics.getAnnotationsFileMetrics());
+		this.snapshot = record(createSnapshot(classLoader, null));
 	}
 
 	/**
 	 * creates a new resourcebundle from this instances construction arguments
-	 * @return a newly constructed java.util.ResourceBundle
+	 * @param previous the snapshot being replaced, whose resolved attributes
+	 * are reused where unchanged - null if there is none
+	 * @return a snapshot of the newly constructed java.util.ResourceBundle and
+	 * its annotations (unless lazily read - then the files they're read from,
+	 * located with the class loader now rather than holding on to it)
 	 */
-	private ResourceBundle createBundle(String bundleName, ClassLoader classLoader) {
-		return createBundle(bundleName, classLoader, Locale.getDefault());
+	private BundleSnapshot createSnapshot(ClassLoader classLoader, BundleSnapshot previous) {
+		boolean annotated = !options.isLazyAnnotations() && !isAttributeCacheBounded();
+		AnnotatedPropertiesControl control = new AnnotatedPropertiesControl(parseCache, metrics, RELOAD_CHECKED_TIME_TO_LIVE, annotated);
+		ResourceBundle loadedBundle;
+		if(previous == null){
+			loadedBundle = ResourceBundle.getBundle(bundleName == null ? "" : bundleName, locale, classLoader, control);
+		}else{
+			ClassLoader previousClassLoader = this.classLoader == null ? null : this.classLoader.get();
+			loadedBundle = reloadBundle(classLoader, control, previousClassLoader == classLoader ? previous.getBundle() : null);
+		}
+		if(annotated){
+			return readSnapshot(loadedBundle, classLoader, previous);
+		}
+		List<URL> files = findFiles(loadedBundle, classLoader);
+		return options.isLazyAnnotations() ? new BundleSnapshot(loadedBundle, files) : indexSnapshot(loadedBundle, files);
 	}
-	
-	private ResourceBundle createBundle(String bundleName, ClassLoader classLoader, Locale locale) {
-		return createBundle(bundleName, classLoader, locale, Control.getControl(Control.FORMAT_PROPERTIES));
+
+	/**
+	 * the bundle for this one's locale, read with the control rather than
+	 * looked up in the jdk's cache - whose entries are shared with every
+	 * other Control, any of which may have renewed them. each bundle of the
+	 * previous chain is kept unless its files changed since it was read,
+	 * and relinked onto the bundles read anew. the locales are searched as
+	 * ResourceBundle.getBundle searches them, falling back to the default
+	 * locale's.
+	 * 
+	 * @param previous the chain last loaded from the class loader, null to read every bundle
+	 * @throws MissingResourceException if there is no bundle for the name
+	 */
+	private ResourceBundle reloadBundle(ClassLoader classLoader, AnnotatedPropertiesControl control, ResourceBundle previous) {
+		String baseName = bundleName == null ? "" : bundleName;
+		Map<Locale, ResourceBundle> loaded = new HashMap<Locale, ResourceBundle>();
+		for(ResourceBundle bundle = previous; bundle instanceof ReloadableBundle; bundle = ((ReloadableBundle)bundle).getParent()){
+			loaded.put(bundle.getLocale(), bundle);
+		}
+		ResourceBundle baseBundle = null;
+		for(Locale target = locale; target != null; target = control.getFallbackLocale(baseName, target)){
+			List<Locale> candidates = control.getCandidateLocales(baseName, target);
+			ResourceBundle bundle = reloadChain(classLoader, control, candidates, loaded);
+			if(bundle == null){
+				continue;
+			}
+			if(!Locale.ROOT.equals(bundle.getLocale()) || bundle.getLocale().equals(locale) 
+					|| (candidates.size() == 1 && bundle.getLocale().equals(candidates.get(0)))){
+				return bundle;
+			}
+			if(baseBundle == null){
+				baseBundle = bundle;
+			}
+		}
+		if(baseBundle == null){
+			throw new MissingResourceException("Can't find bundle for base name "+baseName+", locale "+locale, 
+					baseName+"_"+locale, "");
+		}
+		return baseBundle;
 	}
 
-	private ResourceBundle createBundle(String bundleName, ClassLoader classLoader, Locale locale, Control control) {
-		ResourceBundle tempBundle = ResourceBundle.getBundle(
-			bundleName == null ? 
-				"" : bundleName.replace(PropertiesFileReader.PROPERTIES_FILE_SUFFIX, ""), 
-				locale, classLoader, control);
-		this.bundleName = bundleName.replace(PropertiesFileReader.PROPERTIES_FILE_SUFFIX, "");
-		this.propertiesFileReader = new PropertiesFileReader(tempBundle);
-		this.annotationsFileReader = new AnnotationsFileReader(tempBundle);
-		this.propertyAttributes = readFilesForAnnotations(classLoader);
-		return tempBundle;
+	/**
+	 * the chain of the candidate locales' bundles, from the root up - those
+	 * loaded before reused where their files haven't changed, the rest read
+	 * (and added to loaded)
+	 * 
+	 * @return null if none of the candidates has a bundle
+	 */
+	private ResourceBundle reloadChain(ClassLoader classLoader, AnnotatedPropertiesControl control, List<Locale> candidates, 
+			Map<Locale, ResourceBundle> loaded) {
+		String baseName = bundleName == null ? "" : bundleName;
+		ResourceBundle parent = null;
+		for(int i = candidates.size() - 1; i >= 0; i--){
+			Locale candidate = candidates.get(i);
+			ResourceBundle bundle = loaded.get(candidate);
+			if(bundle == null || control.isModified(baseName, candidate, classLoader, bundle)){
+				try{
+					bundle = control.newBundle(baseName, candidate, Control.FORMAT_PROPERTIES.get(0), classLoader, true);
+				}catch(IllegalAccessException e){
+					throw new IllegalStateException("The bundle: "+control.toBundleName(baseName, candidate)+" could not be read.", e);
+				}catch(InstantiationException e){
+					throw new IllegalStateException("The bundle: "+control.toBundleName(baseName, candidate)+" could not be read.", e);
+				}catch(IOException e){
+					throw new IllegalStateException("The bundle: "+control.toBundleName(baseName, candidate)+" could not be read.", e);
+				}
+				if(bundle == null){
+					loaded.remove(candidate);
+					continue;
+				}
+				loaded.put(candidate, bundle);
+			}
+			ReloadableBundle reloadable = (ReloadableBundle)bundle;
+			parent = reloadable.getParent() == parent ? reloadable : reloadable.withParent(parent);
+		}
+		return parent;
 	}
 
 	/**
@@ -77,29 +231,195 @@ public class AnnotatedResourceBundle {
 	}
 	
 	private Map<String, Map<String, String>> readFilesForAnnotations(ClassLoader classLoader){
-		return readFilesForAnnotations(bundleName, classLoader);
+		return readSnapshot(getBundle(), bundleName, classLoader, null).getPropertyAttributes();
 	}
 	
 	/**
-	 * read a specific list of keys from rb (namely for testing)
-	 * @param keysEnumeration
-	 * @return
+	 * read both files for annotations, resolving them against the passed in bundle
+	 */
+	private BundleSnapshot readSnapshot(ResourceBundle bundle, String bundleName, ClassLoader classLoader, BundleSnapshot previous) {
+		return new BundleSnapshot(bundle, readFile(propertiesFileReader, classLoader), 
+				readFile(annotationsFileReader, classLoader), readLocaleLayers(bundle, classLoader), previous);
+	}
+	
+	/**
+	 * the files readSnapshot would read, in the same order: for the base
+	 * bundle and then each more specific locale the loaded bundle falls back
+	 * through, its annotations file then its properties file - null where
+	 * there is none. locales without a properties file are left out.
+	 */
+	private List<URL> findFiles(ResourceBundle loadedBundle, ClassLoader classLoader) {
+		List<URL> files = new ArrayList<URL>();
+		files.add(annotationsFileReader.findResource(bundleName, classLoader));
+		files.add(propertiesFileReader.findResource(bundleName, classLoader));
+		if(bundleName != null){
+			Control control = AnnotatedPropertiesControl.getInstance();
+			List<Locale> candidates = control.getCandidateLocales(bundleName, loadedBundle.getLocale());
+			for(int i = candidates.size() - 1; i >= 0; i--){
+				if(Locale.ROOT.equals(candidates.get(i))){
+					continue;
+				}
+				String localeBundleName = control.toBundleName(bundleName, candidates.get(i));
+				URL properties = propertiesFileReader.findResource(localeBundleName, classLoader);
+				if(properties != null){
+					files.add(annotationsFileReader.findResource(localeBundleName, classLoader));
+					files.add(properties);
+				}
+			}
+		}
+		return files;
+	}
+	
+	/**
+	 * read the files findFiles located, none of them taken from the loaded
+	 * bundle - for lazily read annotations
+	 */
+	private BundleSnapshot readSnapshot(ResourceBundle loadedBundle, List<URL> files) {
+		List<Map<String, Map<String, String>>> layers = new ArrayList<Map<String, Map<String, String>>>();
+		for(int i = 2; i < files.size(); i += 2){
+			layers.add(readResource(annotationsFileReader, files.get(i)));
+			layers.add(readResource(propertiesFileReader, files.get(i + 1)));
+		}
+		return new BundleSnapshot(loadedBundle, readResource(propertiesFileReader, files.get(1)), 
+				readResource(annotationsFileReader, files.get(0)), layers, null);
+	}
+	
+	/**
+	 * in the memory bounded mode, where each key is annotated in each of the
+	 * files findFiles located, rather than the attributes. the parse cache
+	 * isn't used, attributes are parsed again from the files themselves.
 	 */
-	private Map<String, Map<String, String>> readFilesForAnnotations(String bundleName, ClassLoader classLoader) {
-		Map<String, Map<String, String>> tempPropertyAttributes = new LinkedHashMap<String, Map<String, String>>();
-		tempPropertyAttributes.putAll(annotationsFileReader.capturePropertiesFromFile(bundleName, classLoader));
-		// only replace if existing, otherwise use resulting map from property file reading
-		Map<String, Map<String, String>> propertiesFromPropertyFile = propertiesFileReader.capturePropertiesFromFile(bundleName, classLoader);
-		for(Entry<String, Map<String, String>> entry : propertiesFromPropertyFile.entrySet()){
-			Map<String, String> value = tempPropertyAttributes.get(entry.getKey());
-			if(value == null){
-				value = entry.getValue();
-			}else{
-				value.putAll(entry.getValue());
+	private BundleSnapshot indexSnapshot(ResourceBundle loadedBundle, List<URL> files) {
+		List<LineIndex> indexes = new ArrayList<LineIndex>(files.size());
+		for(int i = 0; i < files.size(); i++){
+			FileReader reader = i % 2 == 0 ? annotationsFileReader : propertiesFileReader;
+			indexes.add(reader.indexResource(files.get(i)));
+		}
+		return new BundleSnapshot(loadedBundle, 
+				new BoundedAttributes(loadedBundle, indexes, options.getAttributeCacheSize(), metrics));
+	}
+	
+	private boolean isAttributeCacheBounded() {
+		return options != null && options.getAttributeCacheSize() > 0;
+	}
+	
+	/**
+	 * a reader's file for this bundle, through the parse cache if there is one
+	 */
+	private Map<String, Map<String, String>> readFile(FileReader reader, ClassLoader classLoader) {
+		return readResource(reader, reader.findResource(bundleName, classLoader));
+	}
+	
+	/**
+	 * the attributes of each locale the loaded bundle falls back through,
+	 * from its least specific (after the base bundle) to its own - the same
+	 * candidate locales a ResourceBundle.Control searches. the layers of
+	 * bundles loaded by an AnnotatedPropertiesControl are those it already
+	 * read (and the jdk shares between locales), the rest are read here.
+	 * 
+	 * @return for each locale its annotations file's attributes, then its properties file's
+	 */
+	private List<Map<String, Map<String, String>>> readLocaleLayers(ResourceBundle loadedBundle, ClassLoader classLoader) {
+		List<Map<String, Map<String, String>>> layers = new ArrayList<Map<String, Map<String, String>>>();
+		if(bundleName == null || loadedBundle == null){
+			return layers;
+		}
+		Control control = AnnotatedPropertiesControl.getInstance();
+		List<Locale> candidates = control.getCandidateLocales(bundleName, loadedBundle.getLocale());
+		for(int i = candidates.size() - 1; i >= 0; i--){
+			Locale candidate = candidates.get(i);
+			if(Locale.ROOT.equals(candidate)){
+				continue;
+			}
+			AnnotatedPropertiesBundle localeBundle = findLocaleBundle(loadedBundle, candidate);
+			if(localeBundle != null){
+				layers.add(localeBundle.getAnnotationsFileAttributes());
+				layers.add(localeBundle.getPropertyAttributes());
+				continue;
+			}
+			String localeBundleName = control.toBundleName(bundleName, candidate);
+			URL properties = propertiesFileReader.findResource(localeBundleName, classLoader);
+			if(properties != null){
+				layers.add(readResource(annotationsFileReader, annotationsFileReader.findResource(localeBundleName, classLoader)));
+				layers.add(readResource(propertiesFileReader, properties));
 			}
-			tempPropertyAttributes.put(entry.getKey(), value);
 		}
-		return tempPropertyAttributes;
+		return layers;
+	}
+	
+	/**
+	 * the bundle for the locale in the loaded chain, null if there is none or
+	 * it isn't an AnnotatedPropertiesBundle
+	 */
+	private AnnotatedPropertiesBundle findLocaleBundle(ResourceBundle loadedBundle, Locale locale) {
+		ResourceBundle candidate = loadedBundle;
+		while(candidate instanceof AnnotatedPropertiesBundle){
+			if(locale.equals(candidate.getLocale())){
+				return (AnnotatedPropertiesBundle)candidate;
+			}
+			candidate = ((AnnotatedPropertiesBundle)candidate).getParent();
+		}
+		return null;
+	}
+	
+	private Map<String, Map<String, String>> readResource(FileReader reader, URL url) {
+		if(parseCache == null){
+			return reader.capturePropertiesFromResource(url);
+		}
+		return parseCache.capturePropertiesFromResource(reader, url);
+	}
+	
+	/**
+	 * as readSnapshot, though the properties file's annotations are taken
+	 * from the loaded bundle when it was read by an AnnotatedPropertiesControl
+	 * - the properties file is then not reread.
+	 */
+	private BundleSnapshot readSnapshot(ResourceBundle loadedBundle, ClassLoader classLoader, BundleSnapshot previous) {
+		AnnotatedPropertiesBundle baseBundle = findBaseBundle(loadedBundle);
+		if(baseBundle == null){
+			return readSnapshot(loadedBundle, bundleName, classLoader, previous);
+		}
+		return new BundleSnapshot(loadedBundle, baseBundle.getPropertyAttributes(), 
+				baseBundle.getAnnotationsFileAttributes(), readLocaleLayers(loadedBundle, classLoader), previous);
+	}
+	
+	/**
+	 * the bundle read from bundleName's (locale-less) properties file, or null
+	 * if it wasn't loaded as an AnnotatedPropertiesBundle (ie loaded and cached
+	 * by the jdk with another Control first).
+	 */
+	private AnnotatedPropertiesBundle findBaseBundle(ResourceBundle loadedBundle) {
+		return findLocaleBundle(loadedBundle, Locale.ROOT);
+	}
+	
+	/**
+	 * can replaceBaseBundle relink the chain, were its bundles for more
+	 * specific locales all loaded by an AnnotatedPropertiesControl?
+	 */
+	private static boolean canReplaceBaseBundle(ResourceBundle bundle) {
+		for(ResourceBundle candidate = bundle; candidate != null && !Locale.ROOT.equals(candidate.getLocale()); 
+				candidate = ((ReloadableBundle)candidate).getParent()){
+			if(!(candidate instanceof ReloadableBundle)){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * the passed in chain of bundles with its base bundle replaced. bundles
+	 * for more specific locales are copied onto the new base.
+	 */
+	private ResourceBundle replaceBaseBundle(ResourceBundle bundle, AnnotatedPropertiesBundle baseBundle) {
+		if(bundle == null || Locale.ROOT.equals(bundle.getLocale())){
+			return baseBundle;
+		}
+		if(!(bundle instanceof ReloadableBundle)){
+			throw new IllegalStateException("The "+bundle.getLocale()+" bundle for: "+bundleName
+					+" was not loaded by an AnnotatedPropertiesControl, it can only be refreshed as a whole.");
+		}
+		ReloadableBundle reloadableBundle = (ReloadableBundle)bundle;
+		return reloadableBundle.withParent(replaceBaseBundle(reloadableBundle.getParent(), baseBundle));
 	}
 
 	/**
@@ -107,7 +427,7 @@ public class AnnotatedResourceBundle {
 	 * @return
 	 */
 	public ResourceBundle getBundle() {
-		return bundle;
+		return snapshot.getBundle();
 	}
 	
 	/**
@@ -116,6 +436,7 @@ public class AnnotatedResourceBundle {
 	 * @return
 	 */
 	public String getString(String key){
+		metrics.recordValueLookup();
 		return getBundle().getString(key);
 	}
 	
@@ -130,11 +451,266 @@ public class AnnotatedResourceBundle {
 		return getPropertyAttributes().get(key);
 	}
 	
+	/**
+	 * an attribute converted to another type. each attribute is converted
+	 * on the first call only, later calls return the same value until the
+	 * bundle is reloaded.
+	 * 
+	 * @param key
+	 * @param attributeName
+	 * @param type
+	 * @return null if the key has no such attribute
+	 * @throws IllegalArgumentException naming the file and line the attribute
+	 * was read from, if its value is not of the type
+	 */
+	public <T> T getAttribute(String key, String attributeName, AttributeType<T> type){
+		BundleSnapshot current = getSnapshot();
+		try{
+			return current.getAttribute(key, attributeName, type);
+		}catch(IllegalArgumentException e){
+			throw new IllegalArgumentException("The attribute: "+attributeName+" of property: "+key+" at "
+					+locateAttribute(current, key, attributeName)+" is not a valid "+type.getName()+": "
+					+current.getPropertyAttributes().get(key).get(attributeName), e);
+		}
+	}
+	
+	/**
+	 * @param key
+	 * @param attributeName
+	 * @param defaultValue returned if the key has no such attribute
+	 * @return
+	 */
+	public int getIntAttribute(String key, String attributeName, int defaultValue){
+		Integer value = getAttribute(key, attributeName, AttributeType.INT);
+		return value == null ? defaultValue : value.intValue();
+	}
+	
+	/**
+	 * @param key
+	 * @param attributeName
+	 * @param defaultValue returned if the key has no such attribute
+	 * @return
+	 */
+	public boolean getBooleanAttribute(String key, String attributeName, boolean defaultValue){
+		Boolean value = getAttribute(key, attributeName, AttributeType.BOOLEAN);
+		return value == null ? defaultValue : value.booleanValue();
+	}
+	
+	/**
+	 * a number of bytes (ie 64k), as AttributeType.SIZE reads it.
+	 * 
+	 * @param key
+	 * @param attributeName
+	 * @param defaultValue returned if the key has no such attribute
+	 * @return
+	 */
+	public long getSizeAttribute(String key, String attributeName, long defaultValue){
+		Long value = getAttribute(key, attributeName, AttributeType.SIZE);
+		return value == null ? defaultValue : value.longValue();
+	}
+	
+	/**
+	 * a duration (ie 500ms or PT0.5S), as AttributeType.DURATION reads it.
+	 * 
+	 * @param key
+	 * @param attributeName
+	 * @return null if the key has no such attribute
+	 */
+	public Duration getDurationAttribute(String key, String attributeName){
+		return getAttribute(key, attributeName, AttributeType.DURATION);
+	}
+	
+	/**
+	 * an enum constant (ie png-image for PNG_IMAGE), as AttributeType.enumType reads it.
+	 * 
+	 * @param key
+	 * @param attributeName
+	 * @param type
+	 * @return null if the key has no such attribute
+	 */
+	public <E extends Enum<E>> E getEnumAttribute(String key, String attributeName, Class<E> type){
+		return getAttribute(key, attributeName, AttributeType.enumType(type));
+	}
+	
+	/**
+	 * the file and line an attribute was read from - the most specific
+	 * locale's files first, its properties file before its annotations file,
+	 * as the attribute's value is taken from.
+	 */
+	private String locateAttribute(BundleSnapshot current, String key, String attributeName) {
+		if(bundleName == null){
+			return "bundle: "+bundleName;
+		}
+		ClassLoader loader = classLoader == null ? null : classLoader.get();
+		if(loader == null){
+			loader = getClass().getClassLoader();
+		}
+		Control control = AnnotatedPropertiesControl.getInstance();
+		for(Locale candidate : control.getCandidateLocales(bundleName, current.getBundle().getLocale())){
+			String localeBundleName = control.toBundleName(bundleName, candidate);
+			for(FileReader reader : new FileReader[]{propertiesFileReader, annotationsFileReader}){
+				URL url = reader.findResource(localeBundleName, loader);
+				int line = reader.findAttributeLine(url, key, attributeName);
+				if(line > 0){
+					return url+":"+line;
+				}
+			}
+		}
+		return "bundle: "+bundleName;
+	}
+	
+	/**
+	 * all property keys annotated with the attribute value (ie every
+	 * resource_type:png-image), in the order they were read. looked up in
+	 * an index built on the first call, and again after each reload.
+	 * 
+	 * @param attributeName
+	 * @param attributeValue
+	 * @return an empty set if no key has that attribute value
+	 * @see BundleOptions#withAttributeCacheSize(int) for the memory bounded mode,
+	 * which scans the files on each call instead
+	 */
+	public Set<String> findKeys(String attributeName, String attributeValue){
+		return getSnapshot().findKeys(attributeName, attributeValue);
+	}
+	
+	/**
+	 * all property keys annotated with the attribute, whatever its value.
+	 * 
+	 * @param attributeName
+	 * @return an empty set if no key has that attribute
+	 * @see BundleOptions#withAttributeCacheSize(int)
+	 */
+	public Set<String> findKeys(String attributeName){
+		return getSnapshot().findKeys(attributeName);
+	}
+	
+	/**
+	 * the distinct values the attribute takes across all keys.
+	 * 
+	 * @param attributeName
+	 * @return
+	 * @see BundleOptions#withAttributeCacheSize(int)
+	 */
+	public Set<String> findValues(String attributeName){
+		return getSnapshot().findValues(attributeName);
+	}
+	
+	/**
+	 * attributes of every key starting with the prefix (ie everything under
+	 * warning.dialog.), sorted by key. keys without attributes map to an
+	 * empty map. a read-only view over the keys as last loaded - found by
+	 * binary search in a sorted index built on the first scan, nothing is
+	 * copied.
+	 * 
+	 * @param prefix
+	 * @return
+	 */
+	public SortedMap<String, Map<String, String>> getAttributesByPrefix(String prefix){
+		return getSnapshot().getAttributesByPrefix(prefix);
+	}
+	
+	/**
+	 * attributes of every key from fromKey up to, but not including, toKey,
+	 * sorted by key. a read-only view, as getAttributesByPrefix.
+	 * 
+	 * @param fromKey null to start at the first key
+	 * @param toKey null to end after the last key
+	 * @return
+	 */
+	public SortedMap<String, Map<String, String>> getAttributesByRange(String fromKey, String toKey){
+		return getSnapshot().getAttributesByRange(fromKey, toKey);
+	}
+	
+	/**
+	 * attributes of several keys in one call, the keys not in this bundle
+	 * left out. a read-only view over the collection, which is not copied -
+	 * its attributes are looked up as they are read.
+	 * 
+	 * @param keys
+	 * @return
+	 */
+	public Map<String, Map<String, String>> getAttributes(Collection<String> keys){
+		return getSnapshot().getAttributes(keys);
+	}
+	
+	/**
+	 * who refers to a property: the annotated keys, each with the names of
+	 * its attributes whose values insert the property's value - by ${key}, or
+	 * through other properties that do. as recorded resolving the attributes
+	 * last loaded.
+	 * 
+	 * @param key
+	 * @return an empty map if no attribute refers to the key
+	 */
+	public Map<String, Set<String>> getDependentAttributes(String key){
+		return getSnapshot().getDependentAttributes(key);
+	}
+	
 	Map<String, Map<String, String>> getPropertyAttributes() {
-		if(propertyAttributes == null){
-			propertyAttributes = readFilesForAnnotations();
+		return getSnapshot().getPropertyAttributes();
+	}
+	
+	/**
+	 * the current snapshot, its annotations read
+	 */
+	private BundleSnapshot getSnapshot() {
+		metrics.recordAttributeLookup();
+		BundleSnapshot current = snapshot;
+		if(!current.isAnnotationsLoaded()){
+			current = loadAnnotations();
 		}
-		return propertyAttributes;
+		return current;
+	}
+	
+	/**
+	 * read the annotations of a lazily loaded bundle, unless another thread
+	 * already has - from the files located when the bundle was last loaded
+	 */
+	private synchronized BundleSnapshot loadAnnotations() {
+		BundleSnapshot current = snapshot;
+		if(!current.isAnnotationsLoaded()){
+			snapshot = record(isAttributeCacheBounded() ? indexSnapshot(current.getBundle(), current.getFiles()) 
+					: readSnapshot(current.getBundle(), current.getFiles()));
+		}
+		return snapshot;
+	}
+	
+	/**
+	 * count what building a snapshot took
+	 */
+	private BundleSnapshot record(BundleSnapshot built) {
+		metrics.recordSnapshot(built);
+		return built;
+	}
+	
+	/**
+	 * what this bundle cost to load and how often it has been read. shared
+	 * bundles can also be published as MBeans, see BundleCache.registerMBeans.
+	 * @return
+	 */
+	public BundleMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * as currently loaded, without reading lazy annotations
+	 */
+	int getAttributeCount() {
+		BundleSnapshot current = snapshot;
+		return current == null ? 0 : current.getAttributeCount();
+	}
+	
+	long estimateRetainedSize() {
+		BundleSnapshot current = snapshot;
+		return current == null ? 0 : current.estimateRetainedSize();
+	}
+	
+	/**
+	 * false until annotations are first used, in lazy mode
+	 */
+	boolean isAnnotationsLoaded() {
+		return snapshot.isAnnotationsLoaded();
 	}
 
 	/**
@@ -146,26 +722,202 @@ public class AnnotatedResourceBundle {
 	}
 	
 	/**
-	 * forces file to be reread for properties and annotations
-	 * - refreshes cached ResourceBundle loaded from provided classloader.
+	 * rereads whichever of this bundle's properties and annotations files
+	 * (of each locale it falls back through) changed since they were read,
+	 * from the provided classloader - other bundles the jdk caches for the
+	 * loader are left as they are. readers see the prior files' contents
+	 * until the new ones are read. only the attributes that changed, or
+	 * insert a property that did, are resolved again - the rest are carried
+	 * over.
+	 */
+	public synchronized void refreshCache(ClassLoader classLoader){
+		metrics.recordReload();
+		snapshot = record(createSnapshot(classLoader, snapshot));
+		this.classLoader = new WeakReference<ClassLoader>(classLoader);
+	}
+	
+	/**
+	 * re-parse this bundle's (locale-less) properties file only, keeping the
+	 * annotations file as last read. the jdk's cache is left as is. a chain
+	 * whose more specific locales weren't loaded by an
+	 * AnnotatedPropertiesControl (ie cached by the jdk for another Control)
+	 * can't be relinked onto the new base, every file is reread instead.
+	 */
+	synchronized void reloadPropertiesFile(URL url) throws IOException {
+		if(isAttributeCacheBounded() || !canReplaceBaseBundle(snapshot.getBundle())){
+			reloadAll();
+			return;
+		}
+		URLConnection connection = url.openConnection();
+		connection.setUseCaches(false);
+		AnnotatedPropertiesReader reader = new AnnotatedPropertiesReader(metrics.getPropertiesFileMetrics());
+		ParsedProperties properties = parseCache == null ? reader.read(connection.getInputStream()) 
+				: parseCache.readProperties(connection.getInputStream(), reader);
+		AnnotatedPropertiesBundle baseBundle = new AnnotatedPropertiesBundle(Locale.ROOT, properties);
+		BundleSnapshot current = snapshot;
+		metrics.recordReload();
+		snapshot = record(current.withPropertiesFile(replaceBaseBundle(current.getBundle(), baseBundle), 
+				baseBundle.getPropertyAttributes()));
+	}
+	
+	/**
+	 * re-parse this bundle's annotations file only, keeping the properties
+	 * file as last read.
+	 * @param url null if the file no longer exists
+	 */
+	synchronized void reloadAnnotationsFile(URL url) {
+		if(!snapshot.isAnnotationsLoaded()){
+			return;
+		}
+		if(isAttributeCacheBounded()){
+			reloadAll();
+			return;
+		}
+		metrics.recordReload();
+		snapshot = record(snapshot.withAnnotationsFile(readResource(annotationsFileReader, url)));
+	}
+	
+	/**
+	 * reread every file, from the class loader the bundle was last read from
+	 * - for changes that can't be applied one file at a time: a locale's
+	 * files, and any file in the memory bounded mode (where the offsets of
+	 * every file are read again and the cached attributes dropped)
+	 */
+	synchronized void reloadAll() {
+		ClassLoader loader = classLoader.get();
+		if(loader == null){
+			throw new IllegalStateException("The class loader: "+bundleName+" was loaded from has been collected.");
+		}
+		metrics.recordReload();
+		snapshot = record(createSnapshot(loader, snapshot));
+	}
+	
+	/**
+	 * reread this bundle's files whenever they change on disk, until the
+	 * returned watcher is closed. assumes default classloader, as refreshCache.
+	 * @return
+	 * @throws IOException
 	 */
-	public void refreshCache(ClassLoader classLoader){
-		propertyAttributes.clear();
-		ResourceBundle.clearCache(classLoader);
-		bundle = createBundle(bundleName, classLoader);
+	public BundleWatcher watch() throws IOException {
+		return watch(getClass().getClassLoader());
+	}
+	
+	/**
+	 * reread this bundle's files (located with the passed in class loader)
+	 * whenever they change on disk, until the returned watcher is closed -
+	 * those of each locale the bundle's locale falls back through, including
+	 * locale files created later.
+	 * @param classLoader
+	 * @return
+	 * @throws IOException
+	 */
+	public BundleWatcher watch(ClassLoader classLoader) throws IOException {
+		Map<String, URL> localeFiles = new LinkedHashMap<String, URL>();
+		Control control = AnnotatedPropertiesControl.getInstance();
+		for(Locale candidate : control.getCandidateLocales(bundleName, locale)){
+			if(Locale.ROOT.equals(candidate)){
+				continue;
+			}
+			String localeBundleName = control.toBundleName(bundleName, candidate);
+			String fileName = localeBundleName.substring(localeBundleName.lastIndexOf('/') + 1);
+			localeFiles.put(fileName + PropertiesFileReader.PROPERTIES_FILE_SUFFIX, 
+					propertiesFileReader.findResource(localeBundleName, classLoader));
+			localeFiles.put(fileName + AnnotationsFileReader.ANNOTATIONS_FILE_SUFFIX, 
+					annotationsFileReader.findResource(localeBundleName, classLoader));
+		}
+		return new BundleWatcher(this, propertiesFileReader.findResource(bundleName, classLoader), 
+				annotationsFileReader.findResource(bundleName, classLoader), 
+				bundleName.substring(bundleName.lastIndexOf('/') + 1) + AnnotationsFileReader.ANNOTATIONS_FILE_SUFFIX, 
+				localeFiles);
 	}
 	
 	/**
-	 * public access to construction of bundle instance. merely passes through
-	 * to pkg private constructor currently, utilized to simplify conversion to
-	 * caching if it is ever necessary.
+	 * public access to a bundle for the default locale. instances are shared,
+	 * files are read on the first request for a name, class loader and locale
+	 * only.
 	 * 
 	 * @param bundleName
 	 * @param classLoader
 	 * @return
 	 */
 	public static AnnotatedResourceBundle getBundle(String bundleName, ClassLoader classLoader){
-		return new AnnotatedResourceBundle(bundleName, classLoader);
+		return getBundle(bundleName, classLoader, Locale.getDefault());
+	}
+	
+	/**
+	 * public access to a shared bundle for a specific locale.
+	 * 
+	 * @param bundleName
+	 * @param classLoader
+	 * @param locale
+	 * @return
+	 */
+	public static AnnotatedResourceBundle getBundle(String bundleName, ClassLoader classLoader, Locale locale){
+		return BUNDLE_CACHE.getBundle(bundleName, classLoader, locale);
+	}
+	
+	/**
+	 * public access to a shared bundle for a specific locale, read as the
+	 * options specify. bundles read with different options are not shared.
+	 * 
+	 * @param bundleName
+	 * @param classLoader
+	 * @param locale
+	 * @param options
+	 * @return
+	 */
+	public static AnnotatedResourceBundle getBundle(String bundleName, ClassLoader classLoader, Locale locale, BundleOptions options){
+		return BUNDLE_CACHE.getBundle(bundleName, classLoader, locale, options);
+	}
+	
+	/**
+	 * as getBundle, without blocking: the bundle for the default locale is
+	 * read on a virtual thread (or the common pool, before java 21).
+	 * concurrent requests for a bundle share one load.
+	 * 
+	 * @param bundleName
+	 * @param classLoader
+	 * @return
+	 */
+	public static CompletableFuture<AnnotatedResourceBundle> getBundleAsync(String bundleName, ClassLoader classLoader){
+		return getBundleAsync(bundleName, classLoader, Locale.getDefault(), BundleOptions.defaults());
+	}
+	
+	/**
+	 * as getBundle, without blocking.
+	 * 
+	 * @param bundleName
+	 * @param classLoader
+	 * @param locale
+	 * @param options
+	 * @return
+	 */
+	public static CompletableFuture<AnnotatedResourceBundle> getBundleAsync(String bundleName, ClassLoader classLoader, Locale locale, 
+			BundleOptions options){
+		return BUNDLE_CACHE.getBundleAsync(bundleName, classLoader, locale, options);
+	}
+	
+	/**
+	 * as getBundle, the files read on the passed in executor.
+	 * 
+	 * @param bundleName
+	 * @param classLoader
+	 * @param locale
+	 * @param options
+	 * @param executor
+	 * @return
+	 */
+	public static CompletableFuture<AnnotatedResourceBundle> getBundleAsync(String bundleName, ClassLoader classLoader, Locale locale, 
+			BundleOptions options, Executor executor){
+		return BUNDLE_CACHE.getBundleAsync(bundleName, classLoader, locale, options, executor);
+	}
+	
+	/**
+	 * the registry behind getBundle, for hit/miss counts and eviction.
+	 * @return
+	 */
+	public static BundleCache getBundleCache(){
+		return BUNDLE_CACHE;
 	}
 
 }
@@ -0,0 +1,57 @@
+package com.sandwich.annotatedbundle;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * interns the attribute names of a set of annotations. keys annotated with
+ * the same names in the same order (ie every icon's location and
+ * resource_type) share one array of names, leaving each key an array of its
+ * values only. not thread safe, used while a snapshot is built.
+ */
+class AttributeDictionary {
+
+	private final Map<List<String>, String[]> layouts = new HashMap<List<String>, String[]>();
+
+	/**
+	 * a compact, read-only copy of attributes. keys without attributes share
+	 * a single empty map.
+	 */
+	Map<String, String> compact(Map<String, String> attributes) {
+		if(attributes instanceof CompactAttributes){
+			return attributes;
+		}
+		if(attributes.isEmpty()){
+			return CompactAttributes.EMPTY;
+		}
+		String[] names = new String[attributes.size()];
+		String[] values = new String[names.length];
+		int i = 0;
+		for(Entry<String, String> attribute : attributes.entrySet()){
+			names[i] = attribute.getKey();
+			values[i++] = attribute.getValue();
+		}
+		return new CompactAttributes(intern(names), values);
+	}
+
+	private String[] intern(String[] names) {
+		List<String> layout = Arrays.asList(names);
+		String[] interned = layouts.get(layout);
+		if(interned == null){
+			layouts.put(layout, names);
+			interned = names;
+		}
+		return interned;
+	}
+
+	/**
+	 * number of distinct name layouts seen
+	 */
+	int size() {
+		return layouts.size();
+	}
+
+}
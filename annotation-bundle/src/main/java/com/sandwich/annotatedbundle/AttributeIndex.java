@@ -0,0 +1,110 @@
+package com.sandwich.annotatedbundle;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * property keys by attribute name and value, for finding keys without
+ * scanning every key's attributes. built from a snapshot's resolved
+ * attributes and, like them, never modified. keys are held in arrays in
+ * the order they were read, the key strings themselves are shared with the
+ * snapshot.
+ */
+class AttributeIndex {
+
+	private static final String[] NO_KEYS = new String[0];
+
+	private final Map<String, Map<String, String[]>> keysByValueByName;
+	private final Map<String, String[]> keysByName;
+
+	AttributeIndex(Map<String, Map<String, String>> propertyAttributes){
+		Map<String, Map<String, List<String>>> byValueByName = new HashMap<String, Map<String, List<String>>>();
+		Map<String, List<String>> byName = new HashMap<String, List<String>>();
+		for(Entry<String, Map<String, String>> property : propertyAttributes.entrySet()){
+			for(Entry<String, String> attribute : property.getValue().entrySet()){
+				Map<String, List<String>> byValue = byValueByName.get(attribute.getKey());
+				if(byValue == null){
+					byValue = new HashMap<String, List<String>>();
+					byValueByName.put(attribute.getKey(), byValue);
+					byName.put(attribute.getKey(), new ArrayList<String>());
+				}
+				List<String> keys = byValue.get(attribute.getValue());
+				if(keys == null){
+					keys = new ArrayList<String>(1);
+					byValue.put(attribute.getValue(), keys);
+				}
+				keys.add(property.getKey());
+				byName.get(attribute.getKey()).add(property.getKey());
+			}
+		}
+		this.keysByValueByName = new HashMap<String, Map<String, String[]>>(byValueByName.size() * 4 / 3 + 1);
+		for(Entry<String, Map<String, List<String>>> name : byValueByName.entrySet()){
+			Map<String, String[]> byValue = new HashMap<String, String[]>(name.getValue().size() * 4 / 3 + 1);
+			for(Entry<String, List<String>> value : name.getValue().entrySet()){
+				byValue.put(value.getKey(), value.getValue().toArray(new String[value.getValue().size()]));
+			}
+			keysByValueByName.put(name.getKey(), byValue);
+		}
+		this.keysByName = new HashMap<String, String[]>(byName.size() * 4 / 3 + 1);
+		for(Entry<String, List<String>> name : byName.entrySet()){
+			keysByName.put(name.getKey(), name.getValue().toArray(new String[name.getValue().size()]));
+		}
+	}
+
+	/**
+	 * @return keys annotated with the attribute value, empty if there are none
+	 */
+	Set<String> getKeys(String attributeName, String attributeValue) {
+		Map<String, String[]> byValue = keysByValueByName.get(attributeName);
+		return keySet(byValue == null ? null : byValue.get(attributeValue));
+	}
+
+	/**
+	 * @return keys annotated with the attribute, whatever its value
+	 */
+	Set<String> getKeys(String attributeName) {
+		return keySet(keysByName.get(attributeName));
+	}
+
+	/**
+	 * @return the values the attribute takes, in no particular order
+	 */
+	Set<String> getValues(String attributeName) {
+		Map<String, String[]> byValue = keysByValueByName.get(attributeName);
+		return byValue == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(byValue.keySet());
+	}
+
+	private static Set<String> keySet(String[] keys) {
+		return new KeySet(keys == null ? NO_KEYS : keys);
+	}
+
+	/**
+	 * read-only view of a distinct array of keys
+	 */
+	private static class KeySet extends AbstractSet<String> {
+		private final String[] keys;
+
+		KeySet(String[] keys){
+			this.keys = keys;
+		}
+
+		@Override
+		public Iterator<String> iterator() {
+			return Collections.unmodifiableList(Arrays.asList(keys)).iterator();
+		}
+
+		@Override
+		public int size() {
+			return keys.length;
+		}
+	}
+
+}
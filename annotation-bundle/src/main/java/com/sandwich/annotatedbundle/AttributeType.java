@@ -0,0 +1,207 @@
+package com.sandwich.annotatedbundle;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * converts attribute values to another type. conversions are cached beside
+ * the attribute they were made from, so a type should be held and reused
+ * (as the constants are) rather than created per lookup - types are told
+ * apart with equals. values are trimmed before they're converted.
+ *
+ * @param <T> the converted type
+ */
+public abstract class AttributeType<T> {
+
+	/**
+	 * a decimal int, ie 32 or -1
+	 */
+	public static final AttributeType<Integer> INT = new AttributeType<Integer>("int"){
+		@Override
+		protected Integer parse(String value) {
+			return Integer.valueOf(value);
+		}
+	};
+
+	/**
+	 * a decimal long
+	 */
+	public static final AttributeType<Long> LONG = new AttributeType<Long>("long"){
+		@Override
+		protected Long parse(String value) {
+			return Long.valueOf(value);
+		}
+	};
+
+	/**
+	 * true or false, in any case - anything else is not a boolean
+	 */
+	public static final AttributeType<Boolean> BOOLEAN = new AttributeType<Boolean>("boolean"){
+		@Override
+		protected Boolean parse(String value) {
+			if("true".equalsIgnoreCase(value)){
+				return Boolean.TRUE;
+			}else if("false".equalsIgnoreCase(value)){
+				return Boolean.FALSE;
+			}
+			throw new IllegalArgumentException();
+		}
+	};
+
+	/**
+	 * an ISO-8601 duration (PT1.5S), or an amount in a unit: ns, us, ms, s,
+	 * m, h or d (ie 500ms, 2h)
+	 */
+	public static final AttributeType<Duration> DURATION = new AttributeType<Duration>("duration"){
+		@Override
+		protected Duration parse(String value) {
+			if(value.startsWith("P") || value.startsWith("p") || value.startsWith("-P") || value.startsWith("-p")){
+				return Duration.parse(value);
+			}
+			int unitStart = unitStart(value);
+			long amount = Long.parseLong(value.substring(0, unitStart));
+			String unit = value.substring(unitStart).trim().toLowerCase(Locale.ENGLISH);
+			if("ns".equals(unit)){
+				return Duration.ofNanos(amount);
+			}else if("us".equals(unit)){
+				return Duration.ofNanos(Math.multiplyExact(amount, 1000L));
+			}else if("ms".equals(unit)){
+				return Duration.ofMillis(amount);
+			}else if("s".equals(unit)){
+				return Duration.ofSeconds(amount);
+			}else if("m".equals(unit)){
+				return Duration.ofMinutes(amount);
+			}else if("h".equals(unit)){
+				return Duration.ofHours(amount);
+			}else if("d".equals(unit)){
+				return Duration.ofDays(amount);
+			}
+			throw new IllegalArgumentException();
+		}
+	};
+
+	/**
+	 * a number of bytes, with an optional binary unit: B, K(B), M(B), G(B)
+	 * or T(B) in any case (ie 64k is 65536)
+	 */
+	public static final AttributeType<Long> SIZE = new AttributeType<Long>("size"){
+		@Override
+		protected Long parse(String value) {
+			int unitStart = unitStart(value);
+			long amount = Long.parseLong(value.substring(0, unitStart));
+			String unit = value.substring(unitStart).trim().toUpperCase(Locale.ENGLISH);
+			if(unit.length() == 2 && unit.charAt(1) == 'B'){
+				unit = unit.substring(0, 1);
+			}
+			int shift;
+			if(unit.length() == 0 || "B".equals(unit)){
+				shift = 0;
+			}else if("K".equals(unit)){
+				shift = 10;
+			}else if("M".equals(unit)){
+				shift = 20;
+			}else if("G".equals(unit)){
+				shift = 30;
+			}else if("T".equals(unit)){
+				shift = 40;
+			}else{
+				throw new IllegalArgumentException();
+			}
+			return Long.valueOf(Math.multiplyExact(amount, 1L << shift));
+		}
+	};
+
+	private final String name;
+
+	protected AttributeType(String name){
+		this.name = name;
+	}
+
+	/**
+	 * constants named as the value (ie PNG), or as the value in upper case
+	 * with dashes for underscores (png-image for PNG_IMAGE)
+	 */
+	public static <E extends Enum<E>> AttributeType<E> enumType(Class<E> type) {
+		return new EnumType<E>(type);
+	}
+
+	/**
+	 * what values are converted to, for error messages
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @param value
+	 * @return
+	 * @throws IllegalArgumentException if the value is not of this type
+	 */
+	public T convert(String value) {
+		String trimmed = value.trim();
+		try{
+			return parse(trimmed);
+		}catch(DateTimeParseException e){
+			throw new IllegalArgumentException("The value: "+trimmed+" is not a valid "+name+".", e);
+		}catch(ArithmeticException e){
+			throw new IllegalArgumentException("The value: "+trimmed+" is not a valid "+name+".", e);
+		}catch(IllegalArgumentException e){
+			throw new IllegalArgumentException("The value: "+trimmed+" is not a valid "+name+".", e);
+		}
+	}
+
+	/**
+	 * @param value trimmed
+	 * @throws IllegalArgumentException (or a NumberFormatException) if the
+	 * value is not of this type
+	 */
+	protected abstract T parse(String value);
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	/**
+	 * index of the first character after an optionally signed number
+	 */
+	private static int unitStart(String value) {
+		int i = value.startsWith("-") ? 1 : 0;
+		while(i < value.length() && Character.isDigit(value.charAt(i))){
+			i++;
+		}
+		return i;
+	}
+
+	private static class EnumType<E extends Enum<E>> extends AttributeType<E> {
+
+		private final Class<E> type;
+
+		EnumType(Class<E> type){
+			super(type.getSimpleName());
+			this.type = type;
+		}
+
+		@Override
+		protected E parse(String value) {
+			for(E constant : type.getEnumConstants()){
+				if(constant.name().equals(value)){
+					return constant;
+				}
+			}
+			return Enum.valueOf(type, value.toUpperCase(Locale.ENGLISH).replace('-', '_'));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof EnumType && ((EnumType<?>)obj).type == type;
+		}
+
+		@Override
+		public int hashCode() {
+			return type.hashCode();
+		}
+	}
+
+}
@@ -0,0 +1,278 @@
+package com.sandwich.annotatedbundle;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.sandwich.annotatedbundle.filereader.Interpolator;
+import com.sandwich.annotatedbundle.filereader.LineIndex;
+
+/**
+ * the attributes of a bundle read in the memory bounded mode: what's held is
+ * the index of the lines each key is annotated on in each file, and the
+ * attributes of the keys most recently asked for. the rest are parsed again
+ * from the files (merged and resolved as a snapshot would) on demand. a
+ * read-only map of every key, as a snapshot's attributes are - iterating
+ * it parses each key in turn.
+ */
+class BoundedAttributes extends AbstractMap<String, Map<String, String>> {
+
+	private static final String EMBEDDED_VALUE_START = "${";
+
+	private final ResourceBundle bundle;
+	/**
+	 * the files' indexes, from the lowest to the highest priority
+	 */
+	private final List<LineIndex> files;
+	/**
+	 * every key of every file, sorted
+	 */
+	private final String[] keys;
+	private final AttributeCache cache;
+	private final BundleMetrics metrics;
+
+	/**
+	 * @param bundle the values ${} references are resolved against
+	 * @param files as a snapshot's layers: annotations file, then properties
+	 * file, for each locale from the least to the most specific
+	 * @param maximumSize keys whose attributes are held at most
+	 */
+	BoundedAttributes(ResourceBundle bundle, List<LineIndex> files, int maximumSize, BundleMetrics metrics){
+		this.bundle = bundle;
+		this.files = files;
+		this.metrics = metrics;
+		this.cache = new AttributeCache(maximumSize, metrics);
+		Set<String> allKeys = new TreeSet<String>();
+		for(LineIndex file : files){
+			allKeys.addAll(file.getKeys());
+		}
+		this.keys = allKeys.toArray(new String[allKeys.size()]);
+	}
+
+	@Override
+	public Map<String, String> get(Object key) {
+		if(!containsKey(key)){
+			return null;
+		}
+		Map<String, String> attributes = cache.get((String)key);
+		if(attributes != null){
+			return attributes;
+		}
+		attributes = read((String)key);
+		cache.put((String)key, attributes);
+		return attributes;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return key instanceof String && Arrays.binarySearch(keys, key) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return keys.length;
+	}
+
+	@Override
+	public Set<Entry<String, Map<String, String>>> entrySet() {
+		return new AbstractSet<Entry<String, Map<String, String>>>(){
+			@Override
+			public Iterator<Entry<String, Map<String, String>>> iterator() {
+				return new Iterator<Entry<String, Map<String, String>>>(){
+					private int next;
+
+					public boolean hasNext() {
+						return next < keys.length;
+					}
+
+					public Entry<String, Map<String, String>> next() {
+						if(next >= keys.length){
+							throw new NoSuchElementException();
+						}
+						String key = keys[next++];
+						return new SimpleImmutableEntry<String, Map<String, String>>(key, get(key));
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return keys.length;
+			}
+		};
+	}
+
+	/**
+	 * the attributes currently cached, a copy
+	 */
+	Map<String, Map<String, String>> getCachedAttributes() {
+		return cache.copy();
+	}
+
+	/**
+	 * rough number of bytes held by the files' indexes
+	 */
+	long estimateIndexSize() {
+		long size = 4L * keys.length;
+		for(LineIndex file : files){
+			size += file.estimateRetainedSize();
+		}
+		return size;
+	}
+
+	/**
+	 * keys annotated with the attribute - with the value, if it isn't null -
+	 * in key order. every key is parsed again, each file read once for the
+	 * lot, and none of them cached: a scan doesn't push out the keys in use.
+	 */
+	Set<String> findKeys(String attributeName, String attributeValue) {
+		Set<String> found = new LinkedHashSet<String>();
+		LineIndex.Scan[] scans = scan();
+		try{
+			for(String key : keys){
+				String value = merge(key, scans).get(attributeName);
+				if(value != null && (attributeValue == null || attributeValue.equals(value))){
+					found.add(key);
+				}
+			}
+		}finally{
+			close(scans);
+		}
+		return Collections.unmodifiableSet(found);
+	}
+
+	/**
+	 * the values the attribute takes, scanned for as findKeys scans
+	 */
+	Set<String> findValues(String attributeName) {
+		Set<String> found = new LinkedHashSet<String>();
+		LineIndex.Scan[] scans = scan();
+		try{
+			for(String key : keys){
+				String value = merge(key, scans).get(attributeName);
+				if(value != null){
+					found.add(value);
+				}
+			}
+		}finally{
+			close(scans);
+		}
+		return Collections.unmodifiableSet(found);
+	}
+
+	private Map<String, String> read(String key) {
+		LineIndex.Scan[] scans = scan();
+		try{
+			return new AttributeDictionary().compact(merge(key, scans));
+		}finally{
+			close(scans);
+		}
+	}
+
+	private LineIndex.Scan[] scan() {
+		LineIndex.Scan[] scans = new LineIndex.Scan[files.size()];
+		for(int i = 0; i < scans.length; i++){
+			scans[i] = files.get(i).scan();
+		}
+		return scans;
+	}
+
+	private static void close(LineIndex.Scan[] scans) {
+		for(LineIndex.Scan scan : scans){
+			scan.close();
+		}
+	}
+
+	/**
+	 * a key's attributes parsed from each file it is annotated in, the
+	 * higher priority files' replacing the lower's one attribute at a time,
+	 * and resolved
+	 */
+	private Map<String, String> merge(String key, LineIndex.Scan[] scans) {
+		Map<String, String> merged = new LinkedHashMap<String, String>();
+		for(LineIndex.Scan scan : scans){
+			Map<String, String> attributes = scan.readAttributes(key);
+			if(attributes != null){
+				merged.putAll(attributes);
+			}
+		}
+		Interpolator interpolator = null;
+		for(Entry<String, String> attribute : merged.entrySet()){
+			if(attribute.getValue().indexOf(EMBEDDED_VALUE_START) < 0){
+				continue;
+			}
+			if(interpolator == null){
+				interpolator = new Interpolator(bundle);
+			}
+			attribute.setValue(interpolator.interpolate(attribute.getValue()));
+		}
+		if(interpolator != null){
+			metrics.recordResolutions(interpolator.getResolutionCount());
+		}
+		return merged;
+	}
+
+	/**
+	 * keys' attributes, the least recently used dropped once there are more
+	 * than the maximum. lookups are counted in the bundle's metrics.
+	 */
+	private static class AttributeCache {
+
+		private final BundleMetrics metrics;
+		private final Map<String, Map<String, String>> entries;
+
+		AttributeCache(final int maximumSize, final BundleMetrics metrics){
+			this.metrics = metrics;
+			this.entries = new LinkedHashMap<String, Map<String, String>>(16, 0.75f, true){
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Entry<String, Map<String, String>> eldest) {
+					if(size() > maximumSize){
+						metrics.recordAttributeCacheEviction();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		synchronized Map<String, String> get(String key) {
+			Map<String, String> attributes = entries.get(key);
+			if(attributes == null){
+				metrics.recordAttributeCacheMiss();
+			}else{
+				metrics.recordAttributeCacheHit();
+			}
+			return attributes;
+		}
+
+		/**
+		 * parsed outside the lock, a key parsed by two threads at once is kept once
+		 */
+		synchronized void put(String key, Map<String, String> attributes) {
+			if(!entries.containsKey(key)){
+				entries.put(key, attributes);
+			}
+		}
+
+		synchronized Map<String, Map<String, String>> copy() {
+			return new LinkedHashMap<String, Map<String, String>>(entries);
+		}
+	}
+
+}
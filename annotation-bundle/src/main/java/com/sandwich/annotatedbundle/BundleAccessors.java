@@ -0,0 +1,36 @@
+package com.sandwich.annotatedbundle;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * generate a class of constants for a bundle at compile time (see
+ * BundleAccessorsProcessor), in the package of the annotated type. each
+ * property key becomes a String constant, so a key missing from the bundle
+ * fails compilation rather than getString at runtime. each annotated key
+ * gets a nested class holding its attributes, ${} references inserted, as
+ * int, long, boolean or String constants.
+ * 
+ * attributes are read as of the build - edits to the files afterwards are
+ * seen by AnnotatedResourceBundle only.
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target({ElementType.TYPE, ElementType.PACKAGE})
+public @interface BundleAccessors {
+
+	/**
+	 * the bundle's name, as passed to AnnotatedResourceBundle.getBundle
+	 */
+	String value();
+
+	/**
+	 * simple name of the generated class, by default the bundle's file name
+	 * in camel case followed by Keys (ie images_en -> ImagesEnKeys)
+	 */
+	String className() default "";
+
+}
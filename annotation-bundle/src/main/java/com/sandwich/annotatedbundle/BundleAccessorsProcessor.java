@@ -0,0 +1,274 @@
+package com.sandwich.annotatedbundle;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.MissingResourceException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.sandwich.annotatedbundle.filereader.AnnotatedPropertiesReader;
+import com.sandwich.annotatedbundle.filereader.AnnotationsFileReader;
+import com.sandwich.annotatedbundle.filereader.PropertiesFileReader;
+
+/**
+ * writes the class of constants a BundleAccessors annotation asks for. the
+ * bundle's (locale-less) properties and annotations files are looked up in
+ * the class output (where maven copies resources before compiling), then the
+ * source path and class path. registered as a service, so javac runs it for
+ * any project with this jar on its class path.
+ */
+@SupportedAnnotationTypes("com.sandwich.annotatedbundle.BundleAccessors")
+public class BundleAccessorsProcessor extends AbstractProcessor {
+
+	private static final String CLASS_NAME_SUFFIX = "Keys";
+	private static final StandardLocation[] RESOURCE_LOCATIONS = new StandardLocation[]{
+		StandardLocation.CLASS_OUTPUT, StandardLocation.SOURCE_PATH, StandardLocation.CLASS_PATH};
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for(Element element : roundEnv.getElementsAnnotatedWith(BundleAccessors.class)){
+			BundleAccessors accessors = element.getAnnotation(BundleAccessors.class);
+			try{
+				generate(element, accessors);
+			}catch(IOException e){
+				error(element, "Could not generate accessors for bundle: "+accessors.value()+" - "+e.getMessage());
+			}catch(MissingResourceException e){
+				error(element, "The bundle: "+accessors.value()+" refers to a missing property: "+e.getKey());
+			}catch(IllegalArgumentException e){
+				error(element, e.getMessage());
+			}catch(RuntimeException e){
+				// reported on the element rather than failing the compiler
+				error(element, "Could not generate accessors for bundle: "+accessors.value()+" - "+e);
+			}
+		}
+		return true;
+	}
+
+	private void generate(Element element, BundleAccessors accessors) throws IOException {
+		String bundleName = accessors.value().replace(PropertiesFileReader.PROPERTIES_FILE_SUFFIX, "");
+		InputStream properties = openResource(bundleName + PropertiesFileReader.PROPERTIES_FILE_SUFFIX);
+		if(properties == null){
+			error(element, "The bundle: "+bundleName+" was not found.");
+			return;
+		}
+		AnnotatedPropertiesBundle bundle = new AnnotatedPropertiesBundle(Locale.ROOT, new AnnotatedPropertiesReader().read(properties));
+		InputStream annotations = openResource(bundleName + AnnotationsFileReader.ANNOTATIONS_FILE_SUFFIX);
+		Map<String, Map<String, String>> annotationsFileAttributes = annotations == null ?
+				Collections.<String, Map<String, String>>emptyMap() :
+				new AnnotationsFileReader(null).capturePropertiesFromStream(annotations);
+		Map<String, Map<String, String>> propertyAttributes = new BundleSnapshot(bundle,
+				bundle.getPropertyAttributes(), annotationsFileAttributes).getPropertyAttributes();
+		for(String key : propertyAttributes.keySet()){
+			if(!bundle.containsKey(key)){
+				processingEnv.getMessager().printMessage(Kind.WARNING,
+						"The annotated key: "+key+" is not in bundle: "+bundleName, element);
+			}
+		}
+		String packageName = processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+		String className = accessors.className().length() > 0 ? accessors.className() :
+				toClassName(bundleName.substring(bundleName.lastIndexOf('/') + 1)) + CLASS_NAME_SUFFIX;
+		String source = new AccessorsSource(packageName, className, bundleName, bundle, propertyAttributes).toString();
+		Writer out = processingEnv.getFiler().createSourceFile(
+				packageName.length() == 0 ? className : packageName + "." + className, element).openWriter();
+		try{
+			out.write(source);
+		}finally{
+			out.close();
+		}
+	}
+
+	/**
+	 * @return the first resource found by that name, null if there is none
+	 */
+	private InputStream openResource(String name) {
+		for(StandardLocation location : RESOURCE_LOCATIONS){
+			try{
+				FileObject resource = processingEnv.getFiler().getResource(location, "", name);
+				return resource.openInputStream();
+			}catch(FileNotFoundException e){
+				// try the next location
+			}catch(IOException e){
+				// not found there either, or the location isn't supported
+			}catch(IllegalArgumentException e){
+				// location not supported by this compiler
+			}
+		}
+		return null;
+	}
+
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+	}
+
+	/**
+	 * images_en -> ImagesEn
+	 */
+	static String toClassName(String name) {
+		StringBuilder className = new StringBuilder(name.length());
+		boolean upper = true;
+		for(int i = 0; i < name.length(); i++){
+			char c = name.charAt(i);
+			if(!Character.isJavaIdentifierPart(c) || c == '_' || c == '$'){
+				upper = true;
+			}else{
+				className.append(upper ? Character.toUpperCase(c) : c);
+				upper = false;
+			}
+		}
+		return toIdentifier(className);
+	}
+
+	/**
+	 * warning.dialog.alert-icon -> WARNING_DIALOG_ALERT_ICON
+	 */
+	static String toConstantName(String name) {
+		StringBuilder constantName = new StringBuilder(name.length());
+		for(int i = 0; i < name.length(); i++){
+			char c = name.charAt(i);
+			constantName.append(Character.isJavaIdentifierPart(c) && c != '$' ? Character.toUpperCase(c) : '_');
+		}
+		return toIdentifier(constantName);
+	}
+
+	/**
+	 * prefixes names that can't start an identifier (or are the keyword _) with _
+	 */
+	private static String toIdentifier(StringBuilder name) {
+		if(name.length() == 0 || !Character.isJavaIdentifierStart(name.charAt(0)) || "_".contentEquals(name)){
+			name.insert(0, '_');
+		}
+		return name.toString();
+	}
+
+	/**
+	 * the generated class
+	 */
+	private static class AccessorsSource {
+
+		private final StringBuilder source = new StringBuilder();
+
+		AccessorsSource(String packageName, String className, String bundleName,
+				AnnotatedPropertiesBundle bundle, Map<String, Map<String, String>> propertyAttributes){
+			if(packageName.length() > 0){
+				source.append("package ").append(packageName).append(";\n\n");
+			}
+			source.append("/**\n * keys and attributes of the bundle: ").append(bundleName.replace("*/", "*&#47;"))
+				.append(", generated by ").append(BundleAccessorsProcessor.class.getName()).append("\n */\n");
+			source.append("public final class ").append(className).append(" {\n\n");
+			source.append("\tpublic static final String BUNDLE_NAME = ").append(literal(bundleName)).append(";\n");
+			Map<String, String> constants = new HashMap<String, String>();
+			constants.put("BUNDLE_NAME", "");
+			for(String key : new TreeSet<String>(bundle.keySet())){
+				String constantName = unique(constants, toConstantName(key), key);
+				source.append("\tpublic static final String ").append(constantName).append(" = ").append(literal(key)).append(";\n");
+			}
+			Map<String, String> classNames = new HashMap<String, String>();
+			classNames.put(className, "");
+			for(Entry<String, Map<String, String>> property : new TreeMap<String, Map<String, String>>(propertyAttributes).entrySet()){
+				if(property.getValue().isEmpty() || !bundle.containsKey(property.getKey())){
+					continue;
+				}
+				String attributesClassName = unique(classNames, toClassName(property.getKey()), property.getKey());
+				source.append("\n\t/**\n\t * attributes of ").append(property.getKey().replace("*/", "*&#47;"))
+					.append("\n\t */\n\tpublic static final class ").append(attributesClassName).append(" {\n");
+				Map<String, String> attributeConstants = new HashMap<String, String>();
+				for(Entry<String, String> attribute : property.getValue().entrySet()){
+					String constantName = unique(attributeConstants, toConstantName(attribute.getKey()), attribute.getKey());
+					source.append("\t\tpublic static final ").append(typed(attribute.getValue()))
+						.append(' ').append(constantName).append(" = ").append(typedLiteral(attribute.getValue())).append(";\n");
+				}
+				source.append("\n\t\tprivate ").append(attributesClassName).append("(){}\n\t}\n");
+			}
+			source.append("\n\tprivate ").append(className).append("(){}\n\n}\n");
+		}
+
+		/**
+		 * @throws IllegalArgumentException if two names map to the same identifier
+		 */
+		private static String unique(Map<String, String> identifiers, String identifier, String name) {
+			String prior = identifiers.put(identifier, name);
+			if(prior != null){
+				throw new IllegalArgumentException("The names: "+prior+" and "+name+" would both be generated as: "+identifier);
+			}
+			return identifier;
+		}
+
+		private static String typed(String value) {
+			if("true".equals(value) || "false".equals(value)){
+				return "boolean";
+			}
+			try{
+				if(Integer.toString(Integer.parseInt(value)).equals(value)){
+					return "int";
+				}
+			}catch(NumberFormatException x){
+				try{
+					if(Long.toString(Long.parseLong(value)).equals(value)){
+						return "long";
+					}
+				}catch(NumberFormatException y){
+					// a String
+				}
+			}
+			return "String";
+		}
+
+		private static String typedLiteral(String value) {
+			String type = typed(value);
+			if("String".equals(type)){
+				return literal(value);
+			}
+			return "long".equals(type) ? value + "L" : value;
+		}
+
+		private static String literal(String value) {
+			StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+			for(int i = 0; i < value.length(); i++){
+				char c = value.charAt(i);
+				if(c == '"' || c == '\\'){
+					literal.append('\\').append(c);
+				}else if(c == '\n'){
+					literal.append("\\n");
+				}else if(c == '\r'){
+					literal.append("\\r");
+				}else if(c == '\t'){
+					literal.append("\\t");
+				}else if(c < ' ' || c > '~'){
+					literal.append(String.format("\\u%04x", (int)c));
+				}else{
+					literal.append(c);
+				}
+			}
+			return literal.append('"').toString();
+		}
+
+		@Override
+		public String toString() {
+			return source.toString();
+		}
+	}
+
+}
@@ -0,0 +1,411 @@
+package com.sandwich.annotatedbundle;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.sandwich.annotatedbundle.filereader.PropertiesFileReader;
+
+/**
+ * process wide registry of annotated bundles. one parsed instance is shared
+ * per bundle name, class loader and locale, so the properties and annotations
+ * files are read on the first request only. class loaders are held weakly -
+ * bundles loaded from a discarded loader (ie a redeployed webapp) are dropped
+ * once that loader is collected. a cache constructed with (or later given)
+ * an MBeanServer registers each bundle's metrics while it holds the bundle -
+ * a webapp should clear its class loader's bundles, or unregister them all,
+ * when it is undeployed.
+ */
+public class BundleCache {
+
+	static final String MBEAN_DOMAIN = "com.sandwich.annotatedbundle";
+	/**
+	 * ids of registered bundles, unique across caches sharing an MBeanServer
+	 */
+	private static final AtomicLong MBEAN_SEQUENCE = new AtomicLong();
+
+	private final ConcurrentMap<CacheKey, AnnotatedResourceBundle> bundles = new ConcurrentHashMap<CacheKey, AnnotatedResourceBundle>();
+	/**
+	 * keys whose class loader has been collected, polled on each miss
+	 */
+	private final ReferenceQueue<ClassLoader> collectedClassLoaders = new ReferenceQueue<ClassLoader>();
+	/**
+	 * loads not yet finished, so concurrent requests for one bundle wait on
+	 * the same load
+	 */
+	private final ConcurrentMap<CacheKey, CompletableFuture<AnnotatedResourceBundle>> loading = 
+			new ConcurrentHashMap<CacheKey, CompletableFuture<AnnotatedResourceBundle>>();
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	/**
+	 * null if bundles aren't registered as MBeans
+	 */
+	private MBeanServer mbeanServer;
+	/**
+	 * names bundles are registered under, bundles are told apart by identity
+	 */
+	private final ConcurrentMap<AnnotatedResourceBundle, ObjectName> mbeanNames = new ConcurrentHashMap<AnnotatedResourceBundle, ObjectName>();
+
+	public BundleCache(){
+		this(null);
+	}
+
+	/**
+	 * @param mbeanServer where each bundle's metrics are registered, null to register none
+	 */
+	public BundleCache(MBeanServer mbeanServer){
+		this.mbeanServer = mbeanServer;
+	}
+
+	/**
+	 * return the shared bundle for the arguments, constructing (and reading
+	 * the files for) it only if no other caller has already.
+	 */
+	public AnnotatedResourceBundle getBundle(String bundleName, ClassLoader classLoader, Locale locale) {
+		return getBundle(bundleName, classLoader, locale, BundleOptions.defaults());
+	}
+
+	/**
+	 * as getBundle, for a bundle read with the passed in options. callers
+	 * asking for a bundle whose load is under way (by either method) wait
+	 * for that load rather than reading the files again.
+	 */
+	public AnnotatedResourceBundle getBundle(String bundleName, ClassLoader classLoader, Locale locale, BundleOptions options) {
+		CacheKey lookup = new CacheKey(bundleName, classLoader, locale, options, null);
+		AnnotatedResourceBundle bundle = bundles.get(lookup);
+		if(bundle != null){
+			hitCount.incrementAndGet();
+			return bundle;
+		}
+		CompletableFuture<AnnotatedResourceBundle> load = new CompletableFuture<AnnotatedResourceBundle>();
+		CompletableFuture<AnnotatedResourceBundle> prior = loading.putIfAbsent(lookup, load);
+		if(prior != null){
+			return await(prior);
+		}
+		return load(lookup, load, bundleName, classLoader, locale, options);
+	}
+
+	/**
+	 * as getBundle, loading the bundle on the default executor - virtual
+	 * threads where the jvm has them, otherwise the common fork join pool.
+	 */
+	public CompletableFuture<AnnotatedResourceBundle> getBundleAsync(String bundleName, ClassLoader classLoader, Locale locale, 
+			BundleOptions options) {
+		return getBundleAsync(bundleName, classLoader, locale, options, defaultExecutor());
+	}
+
+	/**
+	 * as getBundle, without blocking the caller: the files are read on the
+	 * executor. a bundle already held is returned completed; requests for a
+	 * bundle whose load is under way wait for that load rather than starting
+	 * another. a load that fails completes exceptionally and is not kept,
+	 * the next request tries again.
+	 * 
+	 * @return a future of the caller's own - completing or cancelling it
+	 * doesn't affect other callers waiting on the same load
+	 */
+	public CompletableFuture<AnnotatedResourceBundle> getBundleAsync(final String bundleName, final ClassLoader classLoader, 
+			final Locale locale, final BundleOptions options, Executor executor) {
+		final CacheKey lookup = new CacheKey(bundleName, classLoader, locale, options, null);
+		AnnotatedResourceBundle bundle = bundles.get(lookup);
+		if(bundle != null){
+			hitCount.incrementAndGet();
+			return CompletableFuture.completedFuture(bundle);
+		}
+		final CompletableFuture<AnnotatedResourceBundle> load = new CompletableFuture<AnnotatedResourceBundle>();
+		CompletableFuture<AnnotatedResourceBundle> prior = loading.putIfAbsent(lookup, load);
+		if(prior != null){
+			return prior.thenApply(SAME_BUNDLE);
+		}
+		try{
+			executor.execute(new Runnable(){
+				public void run() {
+					try{
+						load(lookup, load, bundleName, classLoader, locale, options);
+					}catch(RuntimeException e){
+						// the load completed exceptionally
+					}
+				}
+			});
+		}catch(RejectedExecutionException e){
+			loading.remove(lookup, load);
+			load.completeExceptionally(e);
+		}
+		return load.thenApply(SAME_BUNDLE);
+	}
+
+	/**
+	 * construct (and read the files for) a bundle, completing the load the
+	 * caller put in loading with it. a bundle put in the cache by a load
+	 * that finished since the caller looked is returned instead.
+	 */
+	private AnnotatedResourceBundle load(CacheKey lookup, CompletableFuture<AnnotatedResourceBundle> load, String bundleName, 
+			ClassLoader classLoader, Locale locale, BundleOptions options) {
+		AnnotatedResourceBundle bundle;
+		try{
+			bundle = bundles.get(lookup);
+			if(bundle != null){
+				hitCount.incrementAndGet();
+			}else{
+				missCount.incrementAndGet();
+				expungeCollectedClassLoaders();
+				bundle = new AnnotatedResourceBundle(bundleName, classLoader, locale, options);
+				AnnotatedResourceBundle prior = bundles.putIfAbsent(
+						new CacheKey(bundleName, classLoader, locale, options, collectedClassLoaders), bundle);
+				if(prior != null){
+					bundle = prior;
+				}else{
+					register(bundle);
+				}
+			}
+		}catch(RuntimeException e){
+			// removed before completing, so a caller reacting to the failure may retry
+			loading.remove(lookup, load);
+			load.completeExceptionally(e);
+			throw e;
+		}catch(Error e){
+			loading.remove(lookup, load);
+			load.completeExceptionally(e);
+			throw e;
+		}
+		loading.remove(lookup, load);
+		load.complete(bundle);
+		return bundle;
+	}
+
+	/**
+	 * the bundle of another caller's load, or what it failed with
+	 */
+	private static AnnotatedResourceBundle await(CompletableFuture<AnnotatedResourceBundle> load) {
+		try{
+			return load.join();
+		}catch(CompletionException e){
+			if(e.getCause() instanceof RuntimeException){
+				throw (RuntimeException)e.getCause();
+			}
+			if(e.getCause() instanceof Error){
+				throw (Error)e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * an executor running each task on a new virtual thread (java 21 on),
+	 * otherwise the common fork join pool. looked up reflectively, this
+	 * library is compiled for older jvms.
+	 */
+	static Executor defaultExecutor() {
+		return DefaultExecutor.INSTANCE;
+	}
+
+	/**
+	 * register the metrics of each bundle held, and of each bundle loaded
+	 * from now on, with the server - in place of any server they were
+	 * registered with before.
+	 * 
+	 * @param mbeanServer ie ManagementFactory.getPlatformMBeanServer()
+	 */
+	public synchronized void registerMBeans(MBeanServer mbeanServer) {
+		unregisterMBeans();
+		this.mbeanServer = mbeanServer;
+		for(AnnotatedResourceBundle bundle : bundles.values()){
+			register(bundle);
+		}
+	}
+
+	/**
+	 * unregister every bundle's metrics, and register none from now on
+	 */
+	public synchronized void unregisterMBeans() {
+		for(AnnotatedResourceBundle bundle : mbeanNames.keySet()){
+			unregister(bundle);
+		}
+		mbeanServer = null;
+	}
+
+	/**
+	 * number of requests satisfied by an already loaded bundle
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * number of requests that had to load a bundle
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * number of bundles currently held
+	 */
+	public int size() {
+		expungeCollectedClassLoaders();
+		return bundles.size();
+	}
+
+	/**
+	 * drop all bundles, the next request for any of them will reread its files
+	 */
+	public void clear() {
+		for(Iterator<AnnotatedResourceBundle> values = bundles.values().iterator(); values.hasNext();){
+			AnnotatedResourceBundle bundle = values.next();
+			values.remove();
+			unregister(bundle);
+		}
+	}
+
+	/**
+	 * drop the bundles loaded from the given class loader only
+	 */
+	public void clear(ClassLoader classLoader) {
+		for(Iterator<Entry<CacheKey, AnnotatedResourceBundle>> entries = bundles.entrySet().iterator(); entries.hasNext();){
+			Entry<CacheKey, AnnotatedResourceBundle> entry = entries.next();
+			if(entry.getKey().get() == classLoader){
+				entries.remove();
+				unregister(entry.getValue());
+			}
+		}
+	}
+
+	private void expungeCollectedClassLoaders() {
+		for(Object key = collectedClassLoaders.poll(); key != null; key = collectedClassLoaders.poll()){
+			AnnotatedResourceBundle bundle = bundles.remove(key);
+			if(bundle != null){
+				unregister(bundle);
+			}
+		}
+	}
+
+	/**
+	 * publish the bundle's metrics. bundles of the same name and locale (from
+	 * other class loaders, or read with other options) are told apart by an
+	 * id. failing to register leaves the bundle usable, unpublished.
+	 */
+	private synchronized void register(AnnotatedResourceBundle bundle) {
+		if(mbeanServer == null || mbeanNames.containsKey(bundle)){
+			return;
+		}
+		BundleMetrics metrics = bundle.getMetrics();
+		try{
+			ObjectName name = new ObjectName(MBEAN_DOMAIN + ":type=AnnotatedResourceBundle"
+					+ ",name=" + ObjectName.quote(String.valueOf(metrics.getBundleName()))
+					+ ",locale=" + ObjectName.quote(metrics.getLocale())
+					+ ",id=" + MBEAN_SEQUENCE.incrementAndGet());
+			mbeanServer.registerMBean(metrics, name);
+			mbeanNames.put(bundle, name);
+		}catch(JMException e){
+			// not published
+		}catch(SecurityException e){
+			// not published
+		}
+	}
+
+	private synchronized void unregister(AnnotatedResourceBundle bundle) {
+		ObjectName name = mbeanNames.remove(bundle);
+		if(name == null){
+			return;
+		}
+		try{
+			mbeanServer.unregisterMBean(name);
+		}catch(JMException e){
+			// already unregistered
+		}catch(SecurityException e){
+			// left registered
+		}
+	}
+
+	private static final Function<AnnotatedResourceBundle, AnnotatedResourceBundle> SAME_BUNDLE = 
+			new Function<AnnotatedResourceBundle, AnnotatedResourceBundle>(){
+				public AnnotatedResourceBundle apply(AnnotatedResourceBundle bundle) {
+					return bundle;
+				}
+			};
+
+	/**
+	 * resolved on first use, so jvms without virtual threads never look for them twice
+	 */
+	private static class DefaultExecutor {
+
+		static final Executor INSTANCE = create();
+
+		private static Executor create() {
+			try{
+				return (Executor)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			}catch(NoSuchMethodException e){
+				return ForkJoinPool.commonPool();
+			}catch(IllegalAccessException e){
+				return ForkJoinPool.commonPool();
+			}catch(InvocationTargetException e){
+				// ie a preview feature that isn't enabled
+				return ForkJoinPool.commonPool();
+			}
+		}
+	}
+
+	/**
+	 * bundle name, locale, options and weakly referenced class loader. class loaders
+	 * are compared by identity, a collected loader's key only equals itself.
+	 */
+	static class CacheKey extends WeakReference<ClassLoader> {
+
+		private final String bundleName;
+		private final Locale locale;
+		private final BundleOptions options;
+		private final int hash;
+
+		CacheKey(String bundleName, ClassLoader classLoader, Locale locale, BundleOptions options, ReferenceQueue<ClassLoader> queue) {
+			super(classLoader, queue);
+			this.bundleName = bundleName == null ? null : bundleName.replace(PropertiesFileReader.PROPERTIES_FILE_SUFFIX, "");
+			this.locale = locale;
+			this.options = options;
+			int h = System.identityHashCode(classLoader);
+			h = 31 * h + (this.bundleName == null ? 0 : this.bundleName.hashCode());
+			h = 31 * h + (locale == null ? 0 : locale.hashCode());
+			h = 31 * h + options.hashCode();
+			this.hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(obj == this){
+				return true;
+			}
+			if(!(obj instanceof CacheKey)){
+				return false;
+			}
+			CacheKey other = (CacheKey)obj;
+			ClassLoader classLoader = get();
+			return hash == other.hash
+				&& classLoader != null && classLoader == other.get()
+				&& (bundleName == null ? other.bundleName == null : bundleName.equals(other.bundleName))
+				&& (locale == null ? other.locale == null : locale.equals(other.locale))
+				&& options.equals(other.options);
+		}
+	}
+
+}
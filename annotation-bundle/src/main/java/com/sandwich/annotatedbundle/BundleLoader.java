@@ -0,0 +1,257 @@
+package com.sandwich.annotatedbundle;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import com.sandwich.annotatedbundle.filereader.AnnotationsFileReader;
+import com.sandwich.annotatedbundle.filereader.PropertiesFileReader;
+
+/**
+ * finds every bundle under a package (in directories and jars alike) and
+ * loads them in parallel, rather than one after another. bundles are shared
+ * through a BundleCache, as AnnotatedResourceBundle.getBundle shares them.
+ */
+public class BundleLoader {
+
+	private static final Set<String> ISO_LANGUAGES = new HashSet<String>(Arrays.asList(Locale.getISOLanguages()));
+
+	private final BundleCache bundleCache;
+	private final ClassLoader classLoader;
+	private final Locale locale;
+	private final BundleOptions options;
+
+	/**
+	 * loads into the cache behind AnnotatedResourceBundle.getBundle
+	 */
+	public BundleLoader(ClassLoader classLoader, Locale locale, BundleOptions options){
+		this(AnnotatedResourceBundle.getBundleCache(), classLoader, locale, options);
+	}
+
+	public BundleLoader(BundleCache bundleCache, ClassLoader classLoader, Locale locale, BundleOptions options){
+		this.bundleCache = bundleCache;
+		this.classLoader = classLoader;
+		this.locale = locale;
+		this.options = options;
+	}
+
+	/**
+	 * load every bundle under the package (and its sub packages) on a fork
+	 * join pool sized to the machine's processors
+	 * @param packageName dotted (com.example) or a path (com/example), empty for the root
+	 */
+	public BundleRegistry loadAll(String packageName) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		try{
+			return loadAll(packageName, pool);
+		}finally{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * load every bundle under the package on the passed in executor (ie one
+	 * starting a virtual thread per task), which is left running
+	 */
+	public BundleRegistry loadAll(String packageName, ExecutorService executor) throws IOException {
+		return load(findBundleNames(packageName), executor);
+	}
+
+	/**
+	 * load the named bundles on the passed in executor, which is left running
+	 */
+	public BundleRegistry load(Collection<String> bundleNames, ExecutorService executor) {
+		Map<String, Future<Loaded>> loading = new LinkedHashMap<String, Future<Loaded>>();
+		for(final String bundleName : bundleNames){
+			loading.put(bundleName, executor.submit(new Callable<Loaded>(){
+				public Loaded call() {
+					try{
+						return new Loaded(bundleCache.getBundle(bundleName, classLoader, locale, options), null);
+					}catch(RuntimeException e){
+						return new Loaded(null, e);
+					}
+				}
+			}));
+		}
+		Map<String, AnnotatedResourceBundle> bundles = new HashMap<String, AnnotatedResourceBundle>();
+		Map<String, Throwable> failures = new HashMap<String, Throwable>();
+		try{
+			for(Entry<String, Future<Loaded>> bundle : loading.entrySet()){
+				try{
+					Loaded loaded = bundle.getValue().get();
+					if(loaded.failure == null){
+						bundles.put(bundle.getKey(), loaded.bundle);
+					}else{
+						failures.put(bundle.getKey(), loaded.failure);
+					}
+				}catch(ExecutionException e){
+					failures.put(bundle.getKey(), e.getCause());
+				}
+			}
+		}catch(InterruptedException e){
+			for(Future<Loaded> bundle : loading.values()){
+				bundle.cancel(true);
+			}
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while loading bundles.", e);
+		}
+		return new BundleRegistry(bundles, failures);
+	}
+
+	/**
+	 * a bundle or why it failed to load - failures are passed back as they
+	 * were thrown, executors (fork join pools) may otherwise rewrap them
+	 */
+	private static class Loaded {
+		private final AnnotatedResourceBundle bundle;
+		private final RuntimeException failure;
+
+		Loaded(AnnotatedResourceBundle bundle, RuntimeException failure){
+			this.bundle = bundle;
+			this.failure = failure;
+		}
+	}
+
+	/**
+	 * the names of all bundles with a properties or annotations file under
+	 * the package, in any of the class loader's directories or jars.
+	 * locale specific files (images_en for images) are loaded as part of
+	 * their base bundle, not on their own.
+	 */
+	public Set<String> findBundleNames(String packageName) throws IOException {
+		String path = packageName.replace('.', '/');
+		if(path.endsWith("/")){
+			path = path.substring(0, path.length() - 1);
+		}
+		String prefix = path.length() == 0 ? "" : path + "/";
+		Set<String> names = new TreeSet<String>();
+		Set<URL> jars = new HashSet<URL>();
+		for(Enumeration<URL> roots = classLoader.getResources(path); roots.hasMoreElements();){
+			URL root = roots.nextElement();
+			if("file".equals(root.getProtocol())){
+				findBundleNames(toFile(root), prefix, names);
+			}else if("jar".equals(root.getProtocol())){
+				URLConnection connection = root.openConnection();
+				if(connection instanceof JarURLConnection && jars.add(((JarURLConnection)connection).getJarFileURL())){
+					findBundleNames(((JarURLConnection)connection).getJarFileURL(), prefix, names);
+				}
+			}
+		}
+		// jars without directory entries aren't found by getResources
+		for(ClassLoader loader = classLoader; loader != null; loader = loader.getParent()){
+			if(loader instanceof URLClassLoader){
+				for(URL url : ((URLClassLoader)loader).getURLs()){
+					if("file".equals(url.getProtocol()) && url.getPath().endsWith(".jar") && jars.add(url)){
+						findBundleNames(url, prefix, names);
+					}
+				}
+			}
+		}
+		removeLocaleSpecificNames(names);
+		return names;
+	}
+
+	private void findBundleNames(File directory, String prefix, Set<String> names) {
+		File[] files = directory.listFiles();
+		if(files == null){
+			return;
+		}
+		for(File file : files){
+			if(file.isDirectory()){
+				findBundleNames(file, prefix + file.getName() + "/", names);
+			}else{
+				addBundleName(prefix + file.getName(), names);
+			}
+		}
+	}
+
+	private void findBundleNames(URL jarFile, String prefix, Set<String> names) throws IOException {
+		JarFile jar = new JarFile(toFile(jarFile));
+		try{
+			for(Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements();){
+				JarEntry entry = entries.nextElement();
+				if(!entry.isDirectory() && entry.getName().startsWith(prefix)){
+					addBundleName(entry.getName(), names);
+				}
+			}
+		}finally{
+			jar.close();
+		}
+	}
+
+	private static void addBundleName(String resourceName, Set<String> names) {
+		for(String suffix : new String[]{PropertiesFileReader.PROPERTIES_FILE_SUFFIX, AnnotationsFileReader.ANNOTATIONS_FILE_SUFFIX}){
+			if(resourceName.endsWith(suffix)){
+				names.add(resourceName.substring(0, resourceName.length() - suffix.length()));
+			}
+		}
+	}
+
+	/**
+	 * drop names that are another name followed by a locale (ie images_en,
+	 * images_en_US for images)
+	 */
+	private static void removeLocaleSpecificNames(Set<String> names) {
+		List<String> localeSpecific = new ArrayList<String>();
+		for(String name : names){
+			for(int i = name.indexOf('_', name.lastIndexOf('/') + 1); i > 0; i = name.indexOf('_', i + 1)){
+				if(names.contains(name.substring(0, i)) && isLocale(name.substring(i + 1))){
+					localeSpecific.add(name);
+					break;
+				}
+			}
+		}
+		names.removeAll(localeSpecific);
+	}
+
+	/**
+	 * language[_country[_variant]], as in a bundle's file name. languages
+	 * are the ISO 639 two letter codes only - a name like messages_app is a
+	 * bundle of its own.
+	 */
+	private static boolean isLocale(String suffix) {
+		String[] parts = suffix.split("_", 3);
+		if(parts[0].length() > 0 && !ISO_LANGUAGES.contains(parts[0])){
+			return false;
+		}
+		if(parts.length == 1){
+			return parts[0].length() > 0;
+		}
+		String country = parts[1];
+		return country.length() == 0 ? parts.length == 3 
+				: country.matches("[A-Z]{2}|[0-9]{3}");
+	}
+
+	private static File toFile(URL url) {
+		try{
+			return new File(url.toURI());
+		}catch(URISyntaxException e){
+			throw new IllegalArgumentException(url+" was not formatted correctly.", e);
+		}
+	}
+
+}
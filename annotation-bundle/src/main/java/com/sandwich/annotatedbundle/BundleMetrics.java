@@ -0,0 +1,178 @@
+package com.sandwich.annotatedbundle;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sandwich.annotatedbundle.filereader.ReaderMetrics;
+
+/**
+ * what one AnnotatedResourceBundle cost to load and how it is used. counters
+ * are striped LongAdders, recording is cheap enough to leave on in
+ * production; the attribute count and size are read from the bundle's
+ * current contents when asked for. the bundle is held weakly, an MBean
+ * server holding the metrics doesn't keep it (or its class loader) alive.
+ */
+public class BundleMetrics implements BundleMetricsMXBean {
+
+	private final WeakReference<AnnotatedResourceBundle> bundle;
+	private final String bundleName;
+	private final String locale;
+	private final ReaderMetrics propertiesFileMetrics = new ReaderMetrics();
+	private final ReaderMetrics annotationsFileMetrics = new ReaderMetrics();
+	private final LongAdder placeholderResolutions = new LongAdder();
+	private final LongAdder reloadCount = new LongAdder();
+	private final LongAdder valueLookups = new LongAdder();
+	private final LongAdder attributeLookups = new LongAdder();
+	private final LongAdder attributeCacheHits = new LongAdder();
+	private final LongAdder attributeCacheMisses = new LongAdder();
+	private final LongAdder attributeCacheEvictions = new LongAdder();
+
+	BundleMetrics(AnnotatedResourceBundle bundle, String bundleName, String locale){
+		this.bundle = new WeakReference<AnnotatedResourceBundle>(bundle);
+		this.bundleName = bundleName;
+		this.locale = locale;
+	}
+
+	/**
+	 * where the bundle's properties file readers count what they parse
+	 */
+	ReaderMetrics getPropertiesFileMetrics() {
+		return propertiesFileMetrics;
+	}
+
+	/**
+	 * where the bundle's annotations file readers count what they parse
+	 */
+	ReaderMetrics getAnnotationsFileMetrics() {
+		return annotationsFileMetrics;
+	}
+
+	void recordSnapshot(BundleSnapshot snapshot) {
+		recordResolutions(snapshot.getResolutionCount());
+	}
+
+	/**
+	 * references inserted outside a snapshot's construction, resolving attributes parsed on demand
+	 */
+	void recordResolutions(long resolutions) {
+		placeholderResolutions.add(resolutions);
+	}
+
+	void recordAttributeCacheHit() {
+		attributeCacheHits.increment();
+	}
+
+	void recordAttributeCacheMiss() {
+		attributeCacheMisses.increment();
+	}
+
+	void recordAttributeCacheEviction() {
+		attributeCacheEvictions.increment();
+	}
+
+	void recordReload() {
+		reloadCount.increment();
+	}
+
+	void recordValueLookup() {
+		valueLookups.increment();
+	}
+
+	void recordAttributeLookup() {
+		attributeLookups.increment();
+	}
+
+	public String getBundleName() {
+		return bundleName;
+	}
+
+	public String getLocale() {
+		return locale;
+	}
+
+	public long getPropertiesFileCount() {
+		return propertiesFileMetrics.getFileCount();
+	}
+
+	public long getPropertiesBytesRead() {
+		return propertiesFileMetrics.getBytesRead();
+	}
+
+	public long getPropertiesLinesScanned() {
+		return propertiesFileMetrics.getLinesScanned();
+	}
+
+	public long getPropertiesParseNanos() {
+		return propertiesFileMetrics.getParseNanos();
+	}
+
+	public long getAnnotationsFileCount() {
+		return annotationsFileMetrics.getFileCount();
+	}
+
+	public long getAnnotationsBytesRead() {
+		return annotationsFileMetrics.getBytesRead();
+	}
+
+	public long getAnnotationsLinesScanned() {
+		return annotationsFileMetrics.getLinesScanned();
+	}
+
+	public long getAnnotationsParseNanos() {
+		return annotationsFileMetrics.getParseNanos();
+	}
+
+	public long getPlaceholderResolutions() {
+		return placeholderResolutions.sum();
+	}
+
+	public int getAttributeCount() {
+		AnnotatedResourceBundle current = bundle.get();
+		return current == null ? 0 : current.getAttributeCount();
+	}
+
+	public long getRetainedSizeEstimate() {
+		AnnotatedResourceBundle current = bundle.get();
+		return current == null ? 0 : current.estimateRetainedSize();
+	}
+
+	public long getReloadCount() {
+		return reloadCount.sum();
+	}
+
+	public long getValueLookups() {
+		return valueLookups.sum();
+	}
+
+	public long getAttributeLookups() {
+		return attributeLookups.sum();
+	}
+
+	public long getAttributeCacheHits() {
+		return attributeCacheHits.sum();
+	}
+
+	public long getAttributeCacheMisses() {
+		return attributeCacheMisses.sum();
+	}
+
+	public long getAttributeCacheEvictions() {
+		return attributeCacheEvictions.sum();
+	}
+
+	public double getAttributeCacheHitRate() {
+		long hits = getAttributeCacheHits();
+		long lookups = hits + getAttributeCacheMisses();
+		return lookups == 0 ? 0 : (double)hits / lookups;
+	}
+
+	@Override
+	public String toString() {
+		return "BundleMetrics[bundleName="+bundleName+", locale="+locale+", properties="+propertiesFileMetrics
+				+", annotations="+annotationsFileMetrics+", placeholderResolutions="+getPlaceholderResolutions()
+				+", reloadCount="+getReloadCount()+", valueLookups="+getValueLookups()
+				+", attributeLookups="+getAttributeLookups()+", attributeCacheHits="+getAttributeCacheHits()
+				+", attributeCacheMisses="+getAttributeCacheMisses()+", attributeCacheEvictions="+getAttributeCacheEvictions()+"]";
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.sandwich.annotatedbundle;
+
+/**
+ * the management interface of BundleMetrics. shared bundles (those handed
+ * out by AnnotatedResourceBundle.getBundle) are registered, once
+ * BundleCache.registerMBeans is called, as
+ * com.sandwich.annotatedbundle:type=AnnotatedResourceBundle, with the
+ * bundle's name and locale as properties.
+ */
+public interface BundleMetricsMXBean {
+
+	String getBundleName();
+
+	String getLocale();
+
+	/**
+	 * properties files parsed, and what they cost - these include the files
+	 * of each locale the bundle falls back through, when this bundle was the
+	 * first to load them
+	 */
+	long getPropertiesFileCount();
+
+	long getPropertiesBytesRead();
+
+	long getPropertiesLinesScanned();
+
+	long getPropertiesParseNanos();
+
+	/**
+	 * annotations files parsed, and what they cost
+	 */
+	long getAnnotationsFileCount();
+
+	long getAnnotationsBytesRead();
+
+	long getAnnotationsLinesScanned();
+
+	long getAnnotationsParseNanos();
+
+	/**
+	 * ${} references inserted into attribute values, across all loads
+	 */
+	long getPlaceholderResolutions();
+
+	/**
+	 * attributes across all keys as currently loaded, 0 until annotations are read
+	 */
+	int getAttributeCount();
+
+	/**
+	 * rough size, in bytes, of the attributes as currently loaded
+	 */
+	long getRetainedSizeEstimate();
+
+	/**
+	 * refreshes, and files reloaded by a watcher
+	 */
+	long getReloadCount();
+
+	/**
+	 * calls for values (getString)
+	 */
+	long getValueLookups();
+
+	/**
+	 * calls for attributes (getAttributes, findKeys, scans and typed getters)
+	 */
+	long getAttributeLookups();
+
+	/**
+	 * in the memory bounded mode (BundleOptions.withAttributeCacheSize),
+	 * lookups of a key's attributes found in the cache, those parsed again
+	 * from the files, and the keys dropped to make room - all 0 otherwise
+	 */
+	long getAttributeCacheHits();
+
+	long getAttributeCacheMisses();
+
+	long getAttributeCacheEvictions();
+
+	/**
+	 * hits over lookups, 0 before the first
+	 */
+	double getAttributeCacheHitRate();
+
+}
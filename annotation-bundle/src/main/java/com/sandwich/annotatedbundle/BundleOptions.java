@@ -0,0 +1,103 @@
+package com.sandwich.annotatedbundle;
+
+import java.io.File;
+
+/**
+ * how an AnnotatedResourceBundle reads its files. immutable - each with
+ * method returns a copy, so instances may be shared and used as cache keys.
+ */
+public final class BundleOptions {
+
+	private static final BundleOptions DEFAULTS = new BundleOptions(false, null, 0);
+
+	private final boolean lazyAnnotations;
+	private final File cacheDirectory;
+	private final int attributeCacheSize;
+
+	private BundleOptions(boolean lazyAnnotations, File cacheDirectory, int attributeCacheSize){
+		this.lazyAnnotations = lazyAnnotations;
+		this.cacheDirectory = cacheDirectory;
+		this.attributeCacheSize = attributeCacheSize;
+	}
+
+	/**
+	 * annotations are read along with the properties, when the bundle is constructed
+	 */
+	public static BundleOptions defaults() {
+		return DEFAULTS;
+	}
+
+	/**
+	 * @param lazyAnnotations true to load the bundle as a plain
+	 * java.util.ResourceBundle, reading annotations (and the annotations
+	 * file) on the first call for them only. the files are located when the
+	 * bundle is loaded, and read from there - the class loader isn't held.
+	 */
+	public BundleOptions withLazyAnnotations(boolean lazyAnnotations) {
+		return new BundleOptions(lazyAnnotations, cacheDirectory, attributeCacheSize);
+	}
+
+	/**
+	 * @param cacheDirectory where parsed files are kept between runs (see
+	 * ParseCache), null to parse files on every load
+	 */
+	public BundleOptions withCacheDirectory(File cacheDirectory) {
+		return new BundleOptions(lazyAnnotations, cacheDirectory, attributeCacheSize);
+	}
+
+	/**
+	 * @param attributeCacheSize 0 to hold every key's attributes. otherwise
+	 * the bundle holds where each key is annotated (the files' line offsets)
+	 * and at most this many keys' attributes, the least recently used
+	 * dropped and parsed again from the files when next asked for. the cache
+	 * directory isn't used in this mode and dependent attributes aren't
+	 * recorded. findKeys and findValues keep no index (it would hold every
+	 * attribute), each call parses every key from the files without caching
+	 * them. scans by prefix or range parse each key they pass over that isn't
+	 * cached.
+	 */
+	public BundleOptions withAttributeCacheSize(int attributeCacheSize) {
+		if(attributeCacheSize < 0){
+			throw new IllegalArgumentException("The attribute cache size: "+attributeCacheSize+" is not valid.");
+		}
+		return new BundleOptions(lazyAnnotations, cacheDirectory, attributeCacheSize);
+	}
+
+	public boolean isLazyAnnotations() {
+		return lazyAnnotations;
+	}
+
+	public File getCacheDirectory() {
+		return cacheDirectory;
+	}
+
+	/**
+	 * 0 unless attributes are held in a bounded cache
+	 */
+	public int getAttributeCacheSize() {
+		return attributeCacheSize;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * (lazyAnnotations ? 1 : 0) + (cacheDirectory == null ? 0 : cacheDirectory.hashCode())) + attributeCacheSize;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(!(obj instanceof BundleOptions)){
+			return false;
+		}
+		BundleOptions other = (BundleOptions)obj;
+		return lazyAnnotations == other.lazyAnnotations
+			&& (cacheDirectory == null ? other.cacheDirectory == null : cacheDirectory.equals(other.cacheDirectory))
+			&& attributeCacheSize == other.attributeCacheSize;
+	}
+
+	@Override
+	public String toString() {
+		return "BundleOptions[lazyAnnotations=" + lazyAnnotations + ", cacheDirectory=" + cacheDirectory 
+				+ ", attributeCacheSize=" + attributeCacheSize + "]";
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.sandwich.annotatedbundle;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * the outcome of loading many bundles at once (see BundleLoader): the
+ * bundles that loaded, by name, and what went wrong with the ones that
+ * didn't. a bad file doesn't keep the others from loading.
+ */
+public class BundleRegistry {
+
+	private final Map<String, AnnotatedResourceBundle> bundles;
+	private final Map<String, Throwable> failures;
+
+	BundleRegistry(Map<String, AnnotatedResourceBundle> bundles, Map<String, Throwable> failures){
+		this.bundles = Collections.unmodifiableMap(new TreeMap<String, AnnotatedResourceBundle>(bundles));
+		this.failures = Collections.unmodifiableMap(new TreeMap<String, Throwable>(failures));
+	}
+
+	/**
+	 * @return loaded bundles by name, sorted
+	 */
+	public Map<String, AnnotatedResourceBundle> getBundles() {
+		return bundles;
+	}
+
+	/**
+	 * @return the named bundle, null if it wasn't found or failed to load
+	 */
+	public AnnotatedResourceBundle getBundle(String bundleName) {
+		return bundles.get(bundleName);
+	}
+
+	/**
+	 * @return why each bundle that failed to load did, by name, sorted
+	 */
+	public Map<String, Throwable> getFailures() {
+		return failures;
+	}
+
+	public boolean hasFailures() {
+		return !failures.isEmpty();
+	}
+
+	/**
+	 * fail with a single exception listing every failure, each attached as
+	 * suppressed, if any bundle failed to load
+	 * @throws IllegalStateException
+	 */
+	public void checkFailures() {
+		if(failures.isEmpty()){
+			return;
+		}
+		StringBuilder message = new StringBuilder().append(failures.size()).append(" of ")
+			.append(failures.size() + bundles.size()).append(" bundles could not be loaded:");
+		for(Entry<String, Throwable> failure : failures.entrySet()){
+			message.append("\n\t").append(failure.getKey()).append(" - ").append(failure.getValue());
+		}
+		IllegalStateException failed = new IllegalStateException(message.toString());
+		for(Throwable failure : failures.values()){
+			failed.addSuppressed(failure);
+		}
+		throw failed;
+	}
+
+}
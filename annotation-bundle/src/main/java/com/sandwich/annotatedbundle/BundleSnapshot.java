@@ -0,0 +1,476 @@
+package com.sandwich.annotatedbundle;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.SortedMap;
+
+import com.sandwich.annotatedbundle.filereader.Interpolator;
+import com.sandwich.annotatedbundle.filereader.Template;
+
+/**
+ * the state of an AnnotatedResourceBundle at one point in time: the loaded
+ * ResourceBundle, the (unresolved) attributes read from each file, and the
+ * merged attributes with ${} references inserted. never modified once built -
+ * a reload builds a new snapshot beside the current one and publishes it in
+ * a single write. every map handed out is unmodifiable, so any number of
+ * threads may read a snapshot without locking.
+ */
+class BundleSnapshot {
+
+	private static final String EMBEDDED_VALUE_START = "${";
+	/**
+	 * approximate sizes, in bytes, of what the attributes are held in - a
+	 * String and its array's header, a HashMap entry, and a CompactAttributes
+	 * with its two array headers
+	 */
+	private static final int STRING_SIZE = 40;
+	private static final int MAP_ENTRY_SIZE = 32;
+	private static final int ATTRIBUTES_SIZE = 48;
+	private static final int REFERENCE_SIZE = 4;
+	private static final Class<?> UNMODIFIABLE_MAP = Collections.unmodifiableMap(Collections.emptyMap()).getClass();
+
+	private final ResourceBundle bundle;
+	private final Map<String, Map<String, String>> propertiesFileAttributes;
+	private final Map<String, Map<String, String>> annotationsFileAttributes;
+	private final List<Map<String, Map<String, String>>> localeLayers;
+	private final Map<String, Map<String, String>> propertyAttributes;
+	/**
+	 * where annotations not yet read are to be read from, null once they are
+	 */
+	private final List<URL> files;
+	/**
+	 * ${} references inserted building this snapshot
+	 */
+	private final long resolutionCount;
+	/**
+	 * which attributes insert which properties, null until annotations are read
+	 */
+	private final DependencyGraph dependencies;
+	/**
+	 * keys by attribute, built on the first query for them
+	 */
+	private volatile AttributeIndex attributeIndex;
+	/**
+	 * keys in order, built on the first scan
+	 */
+	private volatile KeyIndex keyIndex;
+
+	/**
+	 * @param bundle the values ${} references are resolved against
+	 * @param propertiesFileAttributes attributes from the properties file
+	 * @param annotationsFileAttributes attributes from the annotations file
+	 */
+	BundleSnapshot(ResourceBundle bundle, Map<String, Map<String, String>> propertiesFileAttributes,
+			Map<String, Map<String, String>> annotationsFileAttributes){
+		this(bundle, propertiesFileAttributes, annotationsFileAttributes, 
+				Collections.<Map<String, Map<String, String>>>emptyList());
+	}
+
+	/**
+	 * @param bundle the values ${} references are resolved against
+	 * @param propertiesFileAttributes attributes from the (locale-less) properties file
+	 * @param annotationsFileAttributes attributes from the (locale-less) annotations file
+	 * @param localeLayers attributes from the files of more specific locales,
+	 * from the least to the most specific. each layer's attributes replace
+	 * the prior layers', one attribute at a time.
+	 */
+	BundleSnapshot(ResourceBundle bundle, Map<String, Map<String, String>> propertiesFileAttributes,
+			Map<String, Map<String, String>> annotationsFileAttributes, List<Map<String, Map<String, String>>> localeLayers){
+		this(bundle, propertiesFileAttributes, annotationsFileAttributes, localeLayers, null);
+	}
+
+	/**
+	 * as the snapshot of the files, reusing the resolved attributes of a
+	 * previous snapshot where neither they nor the properties they insert
+	 * have changed
+	 * @param previous null to resolve every attribute
+	 */
+	BundleSnapshot(ResourceBundle bundle, Map<String, Map<String, String>> propertiesFileAttributes,
+			Map<String, Map<String, String>> annotationsFileAttributes, List<Map<String, Map<String, String>>> localeLayers,
+			BundleSnapshot previous){
+		AttributeDictionary dictionary = new AttributeDictionary();
+		this.bundle = bundle;
+		this.propertiesFileAttributes = freeze(propertiesFileAttributes, dictionary);
+		this.annotationsFileAttributes = freeze(annotationsFileAttributes, dictionary);
+		List<Map<String, Map<String, String>>> layers = new ArrayList<Map<String, Map<String, String>>>(localeLayers.size() + 2);
+		layers.add(this.annotationsFileAttributes);
+		layers.add(this.propertiesFileAttributes);
+		for(Map<String, Map<String, String>> layer : localeLayers){
+			layers.add(freeze(layer, dictionary));
+		}
+		this.localeLayers = Collections.unmodifiableList(layers.subList(2, layers.size()));
+		Interpolator interpolator = new Interpolator(bundle);
+		DependencyGraph.Builder graph = new DependencyGraph.Builder();
+		Map<String, Map<String, String>> merged = merge(layers);
+		if(previous == null || !previous.isAnnotationsLoaded()){
+			resolve(interpolator, merged, null, null, graph);
+		}else{
+			Set<String> changedKeys = findChangedKeys(previous.bundle, bundle, previous.dependencies.getReferencedKeys());
+			graph.copyProperties(previous.dependencies, changedKeys);
+			resolve(interpolator, merged, previous, previous.dependencies.getAffectedKeys(changedKeys), graph);
+		}
+		graph.addProperties(interpolator.getPropertyReferences());
+		this.propertyAttributes = freeze(merged, dictionary);
+		this.resolutionCount = interpolator.getResolutionCount();
+		this.dependencies = graph.build();
+		this.files = null;
+	}
+
+	/**
+	 * a snapshot of the bundle only, its annotations not yet read
+	 * @param files the files they are to be read from, as located when the
+	 * bundle was loaded
+	 */
+	BundleSnapshot(ResourceBundle bundle, List<URL> files){
+		this.bundle = bundle;
+		this.propertiesFileAttributes = null;
+		this.annotationsFileAttributes = null;
+		this.localeLayers = null;
+		this.propertyAttributes = null;
+		this.resolutionCount = 0;
+		this.dependencies = null;
+		this.files = Collections.unmodifiableList(new ArrayList<URL>(files));
+	}
+
+	/**
+	 * a snapshot of a bundle read in the memory bounded mode, its attributes
+	 * parsed from the files as they're asked for. no references are recorded.
+	 */
+	BundleSnapshot(ResourceBundle bundle, BoundedAttributes propertyAttributes){
+		this.bundle = bundle;
+		this.propertiesFileAttributes = null;
+		this.annotationsFileAttributes = null;
+		this.localeLayers = null;
+		this.propertyAttributes = propertyAttributes;
+		this.resolutionCount = 0;
+		this.dependencies = new DependencyGraph.Builder().build();
+		this.files = null;
+	}
+
+	/**
+	 * a snapshot for a reloaded properties file, reusing the annotations file as last read
+	 */
+	BundleSnapshot withPropertiesFile(ResourceBundle bundle, Map<String, Map<String, String>> propertiesFileAttributes){
+		if(!isAnnotationsLoaded()){
+			return new BundleSnapshot(bundle, files);
+		}
+		return new BundleSnapshot(bundle, propertiesFileAttributes, annotationsFileAttributes, localeLayers, this);
+	}
+
+	/**
+	 * a snapshot for a reloaded annotations file, reusing the properties file
+	 * as last read. an unread annotations file is left to be read on first use.
+	 */
+	BundleSnapshot withAnnotationsFile(Map<String, Map<String, String>> annotationsFileAttributes){
+		if(!isAnnotationsLoaded()){
+			return this;
+		}
+		return new BundleSnapshot(bundle, propertiesFileAttributes, annotationsFileAttributes, localeLayers, this);
+	}
+
+	/**
+	 * false if only the bundle was read
+	 */
+	boolean isAnnotationsLoaded() {
+		return propertyAttributes != null;
+	}
+
+	ResourceBundle getBundle() {
+		return bundle;
+	}
+
+	/**
+	 * where the annotations are to be read from, null once they are
+	 */
+	List<URL> getFiles() {
+		return files;
+	}
+
+	Map<String, Map<String, String>> getPropertyAttributes() {
+		return propertyAttributes;
+	}
+
+	long getResolutionCount() {
+		return resolutionCount;
+	}
+
+	/**
+	 * annotated keys, each with the names of its attributes whose values
+	 * insert the key's value
+	 */
+	Map<String, Set<String>> getDependentAttributes(String key) {
+		return dependencies.getDependentAttributes(key);
+	}
+
+	/**
+	 * number of attributes across all keys, 0 until annotations are read -
+	 * of the keys cached, in the memory bounded mode
+	 */
+	int getAttributeCount() {
+		if(propertyAttributes == null){
+			return 0;
+		}
+		int count = 0;
+		for(Map<String, String> attributes : getHeldAttributes().values()){
+			count += attributes.size();
+		}
+		return count;
+	}
+
+	/**
+	 * rough number of bytes held by the attributes: keys, values, and the
+	 * maps holding them. names and maps shared with other keys or snapshots
+	 * are counted once per key, values are assumed to be Latin-1 strings. in
+	 * the memory bounded mode, the keys cached and the files' indexes.
+	 */
+	long estimateRetainedSize() {
+		if(propertyAttributes == null){
+			return 0;
+		}
+		long size = 0;
+		if(propertyAttributes instanceof BoundedAttributes){
+			size += ((BoundedAttributes)propertyAttributes).estimateIndexSize();
+		}
+		for(Entry<String, Map<String, String>> property : getHeldAttributes().entrySet()){
+			size += MAP_ENTRY_SIZE + stringSize(property.getKey()) + ATTRIBUTES_SIZE;
+			for(String value : property.getValue().values()){
+				size += 2 * REFERENCE_SIZE + stringSize(value);
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * the attributes held in memory, rather than parsed on demand
+	 */
+	private Map<String, Map<String, String>> getHeldAttributes() {
+		if(propertyAttributes instanceof BoundedAttributes){
+			return ((BoundedAttributes)propertyAttributes).getCachedAttributes();
+		}
+		return propertyAttributes;
+	}
+
+	private static long stringSize(String value) {
+		return STRING_SIZE + ((value.length() + 7) & ~7);
+	}
+
+	/**
+	 * an attribute converted to the type, converted once per attribute (and
+	 * type) and kept beside the attribute
+	 * @return null if the key has no such attribute
+	 * @throws IllegalArgumentException if the value is not of that type
+	 */
+	<T> T getAttribute(String key, String attributeName, AttributeType<T> type) {
+		Map<String, String> attributes = propertyAttributes.get(key);
+		if(attributes instanceof CompactAttributes){
+			return ((CompactAttributes)attributes).get(attributeName, type);
+		}
+		String value = attributes == null ? null : attributes.get(attributeName);
+		return value == null ? null : type.convert(value);
+	}
+
+	/**
+	 * keys annotated with the attribute value, empty if there are none
+	 */
+	Set<String> findKeys(String attributeName, String attributeValue) {
+		if(propertyAttributes instanceof BoundedAttributes){
+			return ((BoundedAttributes)propertyAttributes).findKeys(attributeName, attributeValue);
+		}
+		return getAttributeIndex().getKeys(attributeName, attributeValue);
+	}
+
+	/**
+	 * keys annotated with the attribute, whatever its value
+	 */
+	Set<String> findKeys(String attributeName) {
+		if(propertyAttributes instanceof BoundedAttributes){
+			return ((BoundedAttributes)propertyAttributes).findKeys(attributeName, null);
+		}
+		return getAttributeIndex().getKeys(attributeName);
+	}
+
+	/**
+	 * values taken by the attribute, across all keys
+	 */
+	Set<String> findValues(String attributeName) {
+		if(propertyAttributes instanceof BoundedAttributes){
+			return ((BoundedAttributes)propertyAttributes).findValues(attributeName);
+		}
+		return getAttributeIndex().getValues(attributeName);
+	}
+
+	/**
+	 * attributes of the keys starting with prefix, sorted by key
+	 */
+	SortedMap<String, Map<String, String>> getAttributesByPrefix(String prefix) {
+		return getKeyIndex().prefix(prefix);
+	}
+
+	/**
+	 * attributes of the keys from fromKey (inclusive) to toKey (exclusive), sorted by key
+	 */
+	SortedMap<String, Map<String, String>> getAttributesByRange(String fromKey, String toKey) {
+		return getKeyIndex().range(fromKey, toKey);
+	}
+
+	/**
+	 * attributes of those of the keys in this snapshot
+	 */
+	Map<String, Map<String, String>> getAttributes(Collection<String> keys) {
+		return getKeyIndex().select(keys);
+	}
+
+	private KeyIndex getKeyIndex() {
+		KeyIndex index = keyIndex;
+		if(index == null){
+			synchronized(this){
+				index = keyIndex;
+				if(index == null){
+					Set<String> keys = new LinkedHashSet<String>(propertyAttributes.keySet());
+					keys.addAll(bundle.keySet());
+					index = new KeyIndex(keys, propertyAttributes);
+					keyIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * not built in the memory bounded mode, the index would hold every key's
+	 * attribute values - the files are scanned instead
+	 */
+	private AttributeIndex getAttributeIndex() {
+		AttributeIndex index = attributeIndex;
+		if(index == null){
+			synchronized(this){
+				index = attributeIndex;
+				if(index == null){
+					index = new AttributeIndex(propertyAttributes);
+					attributeIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * read-only view of the passed in attributes, which must not be modified
+	 * through any other reference afterwards. each key's attributes are
+	 * replaced by a compact copy. views are not wrapped twice.
+	 */
+	static Map<String, Map<String, String>> freeze(Map<String, Map<String, String>> propertyAttributes) {
+		return freeze(propertyAttributes, new AttributeDictionary());
+	}
+
+	private static Map<String, Map<String, String>> freeze(Map<String, Map<String, String>> propertyAttributes, 
+			AttributeDictionary dictionary) {
+		if(propertyAttributes.getClass() == UNMODIFIABLE_MAP){
+			return propertyAttributes;
+		}
+		for(Entry<String, Map<String, String>> entry : propertyAttributes.entrySet()){
+			entry.setValue(dictionary.compact(entry.getValue()));
+		}
+		return Collections.unmodifiableMap(propertyAttributes);
+	}
+
+	/**
+	 * properties present in both files are acceptable, with the properties
+	 * file's annotations taking priority - as are the files of each locale
+	 * over its parent's. attributes a single layer defines are shared with
+	 * that layer rather than copied, none of the layers is modified.
+	 * 
+	 * @param layers frozen attributes, from the lowest to the highest priority
+	 */
+	private static Map<String, Map<String, String>> merge(List<Map<String, Map<String, String>>> layers) {
+		Map<String, Map<String, String>> tempPropertyAttributes = new LinkedHashMap<String, Map<String, String>>();
+		Set<String> copied = new HashSet<String>();
+		for(Map<String, Map<String, String>> layer : layers){
+			for(Entry<String, Map<String, String>> entry : layer.entrySet()){
+				Map<String, String> value = tempPropertyAttributes.get(entry.getKey());
+				if(value == null){
+					tempPropertyAttributes.put(entry.getKey(), entry.getValue());
+				}else if(!entry.getValue().isEmpty()){
+					if(copied.add(entry.getKey())){
+						value = new LinkedHashMap<String, String>(value);
+						tempPropertyAttributes.put(entry.getKey(), value);
+					}
+					value.putAll(entry.getValue());
+				}
+			}
+		}
+		return tempPropertyAttributes;
+	}
+
+	/**
+	 * insert ${} references, copying the attributes that have any - the rest
+	 * are left shared with the layer they were read from. attributes the
+	 * previous snapshot resolved the same way are shared with it instead.
+	 * 
+	 * @param previous null if there is none to reuse
+	 * @param affectedKeys properties whose values may have changed since the previous snapshot
+	 * @param graph where the references resolved (or reused) are recorded
+	 */
+	private static void resolve(Interpolator interpolator, Map<String, Map<String, String>> propertyAttributes, 
+			BundleSnapshot previous, Set<String> affectedKeys, DependencyGraph.Builder graph) {
+		for(Entry<String, Map<String, String>> property : propertyAttributes.entrySet()){
+			Map<String, String> unresolved = property.getValue();
+			if(!hasReferences(unresolved)){
+				continue;
+			}
+			if(previous != null && previous.dependencies.isUnaffected(property.getKey(), unresolved, affectedKeys)){
+				property.setValue(previous.propertyAttributes.get(property.getKey()));
+				graph.copyAttributes(previous.dependencies, property.getKey());
+				continue;
+			}
+			Map<String, String> resolved = new LinkedHashMap<String, String>(unresolved);
+			Map<String, List<String>> references = new LinkedHashMap<String, List<String>>();
+			for(Entry<String, String> attribute : resolved.entrySet()){
+				if(attribute.getValue().indexOf(EMBEDDED_VALUE_START) < 0){
+					continue;
+				}
+				Template template = Template.parse(attribute.getValue());
+				references.put(attribute.getKey(), template.getReferences());
+				attribute.setValue(interpolator.interpolate(template));
+			}
+			graph.addAttributes(property.getKey(), unresolved, references);
+			property.setValue(resolved);
+		}
+	}
+
+	/**
+	 * those of the keys whose values differ between the bundles, or that
+	 * only one of them has
+	 */
+	private static Set<String> findChangedKeys(ResourceBundle previous, ResourceBundle bundle, Set<String> keys) {
+		Set<String> changed = new HashSet<String>();
+		for(String key : keys){
+			Object before = previous.containsKey(key) ? previous.getObject(key) : null;
+			Object after = bundle.containsKey(key) ? bundle.getObject(key) : null;
+			if(before == null ? after != null : !before.equals(after)){
+				changed.add(key);
+			}
+		}
+		return changed;
+	}
+
+	private static boolean hasReferences(Map<String, String> attributes) {
+		for(String value : attributes.values()){
+			if(value.indexOf(EMBEDDED_VALUE_START) >= 0){
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,199 @@
+package com.sandwich.annotatedbundle;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * rereads a bundle's properties or annotations file when it changes on disk.
+ * only the file that changed is parsed, the bundle then publishes a new
+ * snapshot - reads are never blocked and see the prior contents until it's
+ * ready. a change to a more specific locale's files (ie images_de.properties)
+ * rereads the bundle as a whole. files inside jars can't be watched. runs on
+ * a daemon thread until closed.
+ */
+public class BundleWatcher implements Closeable {
+
+	private final AnnotatedResourceBundle bundle;
+	private final Path propertiesFile;
+	private final Path annotationsFile;
+	/**
+	 * the files of the locales the bundle falls back through, other than the
+	 * base bundle's - those that don't exist (yet) included
+	 */
+	private final Set<Path> localeFiles = new LinkedHashSet<Path>();
+	private final WatchService watchService;
+	private final Thread thread;
+	private volatile Exception lastFailure;
+	private volatile long reloadCount;
+
+	/**
+	 * @param bundle the bundle to reload
+	 * @param propertiesFile its properties file, ignored unless a file: URL
+	 * @param annotationsFile its annotations file, null if there is none (yet)
+	 * @param annotationsFileName name of an annotations file that may be
+	 * created beside the properties file later
+	 * @param localeFiles names of the locales' files, each with where it was
+	 * found - null for a file that may be created beside the properties file
+	 * later
+	 */
+	BundleWatcher(AnnotatedResourceBundle bundle, URL propertiesFile, URL annotationsFile, String annotationsFileName, 
+			Map<String, URL> localeFiles) throws IOException {
+		this.bundle = bundle;
+		this.propertiesFile = toPath(propertiesFile);
+		if(annotationsFile == null && this.propertiesFile != null){
+			this.annotationsFile = this.propertiesFile.resolveSibling(annotationsFileName);
+		}else{
+			this.annotationsFile = toPath(annotationsFile);
+		}
+		if(this.propertiesFile == null && this.annotationsFile == null){
+			throw new IllegalArgumentException("Neither "+propertiesFile+" nor "+annotationsFile+" is a file that can be watched.");
+		}
+		for(Entry<String, URL> localeFile : localeFiles.entrySet()){
+			Path file = toPath(localeFile.getValue());
+			if(localeFile.getValue() == null && this.propertiesFile != null){
+				file = this.propertiesFile.resolveSibling(localeFile.getKey());
+			}
+			if(file != null){
+				this.localeFiles.add(file);
+			}
+		}
+		this.watchService = FileSystems.getDefault().newWatchService();
+		Set<Path> files = new LinkedHashSet<Path>(this.localeFiles);
+		files.add(this.propertiesFile);
+		files.add(this.annotationsFile);
+		Set<Path> directories = new LinkedHashSet<Path>();
+		for(Path file : files){
+			if(file != null && directories.add(file.getParent())){
+				file.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+			}
+		}
+		this.thread = new Thread(new Runnable(){
+			@Override
+			public void run() {
+				watch();
+			}
+		}, "BundleWatcher-"+annotationsFileName);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	private void watch() {
+		while(true){
+			WatchKey key;
+			try{
+				key = watchService.take();
+			}catch(InterruptedException x){
+				return;
+			}catch(ClosedWatchServiceException x){
+				return;
+			}
+			Path directory = (Path)key.watchable();
+			// an editor's save often raises several events, reread once per batch
+			Set<Path> changed = new LinkedHashSet<Path>();
+			for(WatchEvent<?> event : key.pollEvents()){
+				if(event.kind() == OVERFLOW){
+					changed.add(propertiesFile);
+					changed.add(annotationsFile);
+					changed.addAll(localeFiles);
+				}else{
+					changed.add(directory.resolve((Path)event.context()));
+				}
+			}
+			boolean localeFileChanged = false;
+			for(Path file : changed){
+				if(localeFiles.contains(file)){
+					localeFileChanged = true;
+				}else{
+					reload(file);
+				}
+			}
+			if(localeFileChanged){
+				reloadAll();
+			}
+			key.reset();
+		}
+	}
+
+	private void reload(Path file) {
+		try{
+			if(file == null){
+				return;
+			}else if(file.equals(annotationsFile)){
+				bundle.reloadAnnotationsFile(file.toFile().isFile() ? file.toUri().toURL() : null);
+			}else if(file.equals(propertiesFile) && file.toFile().isFile()){
+				bundle.reloadPropertiesFile(file.toUri().toURL());
+			}else{
+				return;
+			}
+			reloadCount++;
+		}catch(Exception x){
+			// keep serving the last snapshot that could be read
+			lastFailure = x;
+		}
+	}
+
+	/**
+	 * a locale's files changed, reread them all at once
+	 */
+	private void reloadAll() {
+		try{
+			bundle.reloadAll();
+			reloadCount++;
+		}catch(Exception x){
+			lastFailure = x;
+		}
+	}
+
+	/**
+	 * number of times a changed file was reread
+	 */
+	public long getReloadCount() {
+		return reloadCount;
+	}
+
+	/**
+	 * the exception raised by the latest reread that failed, null if none has
+	 */
+	public Exception getLastFailure() {
+		return lastFailure;
+	}
+
+	/**
+	 * stop watching, the bundle keeps the contents last read
+	 */
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+		thread.interrupt();
+	}
+
+	private static Path toPath(URL url) {
+		if(url == null || !"file".equals(url.getProtocol())){
+			return null;
+		}
+		try{
+			return new File(url.toURI()).toPath();
+		}catch(URISyntaxException x){
+			throw new IllegalArgumentException(url+" was not formatted correctly.", x);
+		}
+	}
+
+}
@@ -0,0 +1,145 @@
+package com.sandwich.annotatedbundle;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * read-only attributes of a key held as two parallel arrays, names shared
+ * with other keys through an AttributeDictionary. lookups scan the names,
+ * annotations carry a handful of attributes at most. iteration follows the
+ * order attributes were read in. values converted by an AttributeType are
+ * kept beside the value, so each is converted once.
+ */
+class CompactAttributes extends AbstractMap<String, String> {
+
+	/**
+	 * shared by all keys without attributes
+	 */
+	static final CompactAttributes EMPTY = new CompactAttributes(new String[0], new String[0]);
+
+	private final String[] names;
+	private final String[] values;
+	/**
+	 * conversions of each value, allocated on the first. entries are
+	 * immutable - racing threads convert a value twice at worst.
+	 */
+	private volatile Conversion[] conversions;
+
+	CompactAttributes(String[] names, String[] values){
+		this.names = names;
+		this.values = values;
+	}
+
+	/**
+	 * the attribute's value as the type converts it, converted on the first call only
+	 * @return null if there is no such attribute
+	 * @throws IllegalArgumentException if the value is not of that type
+	 */
+	<T> T get(String name, AttributeType<T> type) {
+		int i = indexOf(name);
+		if(i < 0){
+			return null;
+		}
+		Conversion[] converted = conversions;
+		if(converted == null){
+			converted = new Conversion[values.length];
+			conversions = converted;
+		}
+		for(Conversion conversion = converted[i]; conversion != null; conversion = conversion.next){
+			if(conversion.type.equals(type)){
+				@SuppressWarnings("unchecked")
+				T value = (T)conversion.value;
+				return value;
+			}
+		}
+		T value = type.convert(values[i]);
+		converted[i] = new Conversion(type, value, converted[i]);
+		return value;
+	}
+
+	private int indexOf(Object name) {
+		for(int i = 0; i < names.length; i++){
+			if(names[i] == name || names[i].equals(name)){
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public String get(Object name) {
+		int i = indexOf(name);
+		return i < 0 ? null : values[i];
+	}
+
+	@Override
+	public boolean containsKey(Object name) {
+		return indexOf(name) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * unsupported, as put and remove, also when empty
+	 */
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Set<Entry<String, String>> entrySet() {
+		return new AbstractSet<Entry<String, String>>(){
+			@Override
+			public Iterator<Entry<String, String>> iterator() {
+				return new Iterator<Entry<String, String>>(){
+					private int next;
+
+					public boolean hasNext() {
+						return next < names.length;
+					}
+
+					public Entry<String, String> next() {
+						if(next >= names.length){
+							throw new NoSuchElementException();
+						}
+						Entry<String, String> entry = new SimpleImmutableEntry<String, String>(names[next], values[next]);
+						next++;
+						return entry;
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return names.length;
+			}
+		};
+	}
+
+	/**
+	 * a value converted to one type, and to the next (if any)
+	 */
+	private static class Conversion {
+		private final AttributeType<?> type;
+		private final Object value;
+		private final Conversion next;
+
+		Conversion(AttributeType<?> type, Object value, Conversion next){
+			this.type = type;
+			this.value = value;
+			this.next = next;
+		}
+	}
+
+}
@@ -0,0 +1,245 @@
+package com.sandwich.annotatedbundle;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * which attribute values insert which properties, recorded as a snapshot's
+ * ${} references are resolved - directly, and through properties whose own
+ * values refer to others. a reload re-resolves only the attributes whose
+ * templates changed or that insert a changed property, the rest are carried
+ * over from the previous snapshot. never modified once built.
+ */
+class DependencyGraph {
+
+	/**
+	 * unresolved attributes of each key with ${} references, as merged from the files
+	 */
+	private final Map<String, Map<String, String>> templates;
+	/**
+	 * for each key in templates, the keys each of its attributes refers to directly
+	 */
+	private final Map<String, Map<String, List<String>>> attributeReferences;
+	/**
+	 * the keys each property refers to directly, for the properties reached
+	 * resolving attributes whose values refer to any
+	 */
+	private final Map<String, List<String>> propertyReferences;
+	/**
+	 * the references the other way round, built on the first query or reload
+	 */
+	private volatile Referrers referrers;
+
+	private DependencyGraph(Builder builder){
+		this.templates = builder.templates;
+		this.attributeReferences = builder.attributeReferences;
+		this.propertyReferences = builder.propertyReferences;
+	}
+
+	/**
+	 * keys whose values the attributes were resolved against - changes to
+	 * any other key can't affect them
+	 */
+	Set<String> getReferencedKeys() {
+		Referrers inverse = getReferrers();
+		Set<String> keys = new HashSet<String>(inverse.attributes.keySet());
+		keys.addAll(inverse.properties.keySet());
+		return keys;
+	}
+
+	/**
+	 * the changed keys and every property referring to one of them, directly
+	 * or through others - the properties whose resolved values may differ
+	 */
+	Set<String> getAffectedKeys(Set<String> changedKeys) {
+		Referrers inverse = getReferrers();
+		Set<String> affected = new LinkedHashSet<String>(changedKeys);
+		Deque<String> pending = new ArrayDeque<String>(changedKeys);
+		while(!pending.isEmpty()){
+			Set<String> referring = inverse.properties.get(pending.pop());
+			if(referring != null){
+				for(String property : referring){
+					if(affected.add(property)){
+						pending.push(property);
+					}
+				}
+			}
+		}
+		return affected;
+	}
+
+	/**
+	 * may the key's attributes as resolved before be reused? only if they
+	 * were read the same, in the same order, and insert none of the affected
+	 * properties.
+	 */
+	boolean isUnaffected(String key, Map<String, String> unresolved, Set<String> affectedKeys) {
+		Map<String, String> template = templates.get(key);
+		if(template == null || !sameOrder(template, unresolved)){
+			return false;
+		}
+		for(List<String> references : attributeReferences.get(key).values()){
+			for(String reference : references){
+				if(affectedKeys.contains(reference)){
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * annotated keys, each with the names of its attributes whose values
+	 * insert the key's value - directly or through other properties. those
+	 * referring to the key itself come first.
+	 */
+	Map<String, Set<String>> getDependentAttributes(String key) {
+		Referrers inverse = getReferrers();
+		Map<String, Set<String>> dependents = new LinkedHashMap<String, Set<String>>();
+		for(String affected : getAffectedKeys(Collections.singleton(key))){
+			Map<String, Set<String>> attributes = inverse.attributes.get(affected);
+			if(attributes == null){
+				continue;
+			}
+			for(Entry<String, Set<String>> attribute : attributes.entrySet()){
+				Set<String> names = dependents.get(attribute.getKey());
+				if(names == null){
+					names = new LinkedHashSet<String>();
+					dependents.put(attribute.getKey(), names);
+				}
+				names.addAll(attribute.getValue());
+			}
+		}
+		for(Entry<String, Set<String>> dependent : dependents.entrySet()){
+			dependent.setValue(Collections.unmodifiableSet(dependent.getValue()));
+		}
+		return Collections.unmodifiableMap(dependents);
+	}
+
+	private Referrers getReferrers() {
+		Referrers inverse = referrers;
+		if(inverse == null){
+			synchronized(this){
+				inverse = referrers;
+				if(inverse == null){
+					inverse = new Referrers(attributeReferences, propertyReferences);
+					referrers = inverse;
+				}
+			}
+		}
+		return inverse;
+	}
+
+	private static boolean sameOrder(Map<String, String> a, Map<String, String> b) {
+		if(a.size() != b.size()){
+			return false;
+		}
+		Iterator<Entry<String, String>> others = b.entrySet().iterator();
+		for(Entry<String, String> attribute : a.entrySet()){
+			Entry<String, String> other = others.next();
+			if(!attribute.getKey().equals(other.getKey()) || !attribute.getValue().equals(other.getValue())){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * what refers to each key: the properties, and the annotated keys with
+	 * the names of their attributes
+	 */
+	private static class Referrers {
+
+		final Map<String, Set<String>> properties = new HashMap<String, Set<String>>();
+		final Map<String, Map<String, Set<String>>> attributes = new HashMap<String, Map<String, Set<String>>>();
+
+		Referrers(Map<String, Map<String, List<String>>> attributeReferences, Map<String, List<String>> propertyReferences){
+			for(Entry<String, List<String>> property : propertyReferences.entrySet()){
+				for(String reference : property.getValue()){
+					Set<String> referring = properties.get(reference);
+					if(referring == null){
+						referring = new LinkedHashSet<String>();
+						properties.put(reference, referring);
+					}
+					referring.add(property.getKey());
+				}
+			}
+			for(Entry<String, Map<String, List<String>>> key : attributeReferences.entrySet()){
+				for(Entry<String, List<String>> attribute : key.getValue().entrySet()){
+					for(String reference : attribute.getValue()){
+						Map<String, Set<String>> referring = attributes.get(reference);
+						if(referring == null){
+							referring = new LinkedHashMap<String, Set<String>>();
+							attributes.put(reference, referring);
+						}
+						Set<String> names = referring.get(key.getKey());
+						if(names == null){
+							names = new LinkedHashSet<String>();
+							referring.put(key.getKey(), names);
+						}
+						names.add(attribute.getKey());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * collects references while a snapshot is resolved, not thread safe
+	 */
+	static class Builder {
+
+		private final Map<String, Map<String, String>> templates = new LinkedHashMap<String, Map<String, String>>();
+		private final Map<String, Map<String, List<String>>> attributeReferences = new LinkedHashMap<String, Map<String, List<String>>>();
+		private final Map<String, List<String>> propertyReferences = new HashMap<String, List<String>>();
+
+		/**
+		 * @param unresolved the key's attributes as read
+		 * @param references the keys each attribute with references refers to
+		 */
+		void addAttributes(String key, Map<String, String> unresolved, Map<String, List<String>> references) {
+			templates.put(key, unresolved);
+			attributeReferences.put(key, references);
+		}
+
+		/**
+		 * a key's attributes as recorded for a previous snapshot, reused unresolved
+		 */
+		void copyAttributes(DependencyGraph previous, String key) {
+			addAttributes(key, previous.templates.get(key), previous.attributeReferences.get(key));
+		}
+
+		/**
+		 * the references of a previous snapshot's properties, bar those whose values changed
+		 */
+		void copyProperties(DependencyGraph previous, Set<String> changedKeys) {
+			for(Entry<String, List<String>> property : previous.propertyReferences.entrySet()){
+				if(!changedKeys.contains(property.getKey())){
+					propertyReferences.put(property.getKey(), property.getValue());
+				}
+			}
+		}
+
+		/**
+		 * references of properties resolved for this snapshot
+		 */
+		void addProperties(Map<String, List<String>> references) {
+			propertyReferences.putAll(references);
+		}
+
+		DependencyGraph build() {
+			return new DependencyGraph(this);
+		}
+	}
+
+}
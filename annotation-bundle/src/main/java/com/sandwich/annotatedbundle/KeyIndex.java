@@ -0,0 +1,289 @@
+package com.sandwich.annotatedbundle;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * a snapshot's keys in one sorted array, for prefix and range scans over
+ * dotted key hierarchies (ie everything under warning.dialog.) without
+ * walking every key. scans return views over a slice of the array, the
+ * attributes are looked up in the snapshot as they are read - nothing is
+ * copied. keys without attributes map to an empty map.
+ */
+class KeyIndex {
+
+	private final String[] keys;
+	private final Map<String, Map<String, String>> propertyAttributes;
+
+	/**
+	 * @param keys distinct keys, in any order
+	 */
+	KeyIndex(Collection<String> keys, Map<String, Map<String, String>> propertyAttributes){
+		this.keys = keys.toArray(new String[keys.size()]);
+		this.propertyAttributes = propertyAttributes;
+		Arrays.sort(this.keys);
+	}
+
+	/**
+	 * @return keys starting with prefix, sorted
+	 */
+	SortedMap<String, Map<String, String>> prefix(String prefix) {
+		int from = lowerBound(prefix);
+		String after = successor(prefix);
+		return new Range(from, after == null ? keys.length : lowerBound(after));
+	}
+
+	/**
+	 * @param fromKey first key included, null for the first key
+	 * @param toKey first key excluded, null to include the last key
+	 * @return keys from fromKey up to toKey, sorted
+	 */
+	SortedMap<String, Map<String, String>> range(String fromKey, String toKey) {
+		int from = fromKey == null ? 0 : lowerBound(fromKey);
+		return new Range(from, Math.max(from, toKey == null ? keys.length : lowerBound(toKey)));
+	}
+
+	/**
+	 * @return the attributes of those of the passed in keys that are known,
+	 * in the collection's order
+	 */
+	Map<String, Map<String, String>> select(Collection<String> selectedKeys) {
+		return new Selection(selectedKeys);
+	}
+
+	boolean contains(Object key) {
+		return key instanceof String && Arrays.binarySearch(keys, key) >= 0;
+	}
+
+	/**
+	 * index of the first key not less than key
+	 */
+	private int lowerBound(String key) {
+		int i = Arrays.binarySearch(keys, key);
+		return i < 0 ? -(i + 1) : i;
+	}
+
+	/**
+	 * the least string greater than every string starting with prefix, null
+	 * if there is none
+	 */
+	private static String successor(String prefix) {
+		int end = prefix.length();
+		while(end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE){
+			end--;
+		}
+		if(end == 0){
+			return null;
+		}
+		return prefix.substring(0, end - 1) + (char)(prefix.charAt(end - 1) + 1);
+	}
+
+	private Map<String, String> attributes(String key) {
+		Map<String, String> attributes = propertyAttributes.get(key);
+		return attributes == null ? CompactAttributes.EMPTY : attributes;
+	}
+
+	private Entry<String, Map<String, String>> entry(String key) {
+		return new AbstractMap.SimpleImmutableEntry<String, Map<String, String>>(key, attributes(key));
+	}
+
+	/**
+	 * keys[from] up to keys[to]. sub maps are clamped to the range rather
+	 * than rejecting keys outside it.
+	 */
+	private class Range extends AbstractMap<String, Map<String, String>> implements SortedMap<String, Map<String, String>> {
+
+		private final int from;
+		private final int to;
+
+		Range(int from, int to){
+			this.from = from;
+			this.to = to;
+		}
+
+		private int indexOf(Object key) {
+			if(!(key instanceof String)){
+				return -1;
+			}
+			int i = Arrays.binarySearch(keys, from, to, key);
+			return i < 0 ? -1 : i;
+		}
+
+		@Override
+		public Map<String, String> get(Object key) {
+			int i = indexOf(key);
+			return i < 0 ? null : attributes(keys[i]);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return indexOf(key) >= 0;
+		}
+
+		@Override
+		public int size() {
+			return to - from;
+		}
+
+		@Override
+		public Comparator<? super String> comparator() {
+			return null;
+		}
+
+		@Override
+		public SortedMap<String, Map<String, String>> subMap(String fromKey, String toKey) {
+			int subFrom = Math.min(to, Math.max(from, lowerBound(fromKey)));
+			return new Range(subFrom, Math.max(subFrom, Math.min(to, lowerBound(toKey))));
+		}
+
+		@Override
+		public SortedMap<String, Map<String, String>> headMap(String toKey) {
+			return new Range(from, Math.max(from, Math.min(to, lowerBound(toKey))));
+		}
+
+		@Override
+		public SortedMap<String, Map<String, String>> tailMap(String fromKey) {
+			return new Range(Math.min(to, Math.max(from, lowerBound(fromKey))), to);
+		}
+
+		@Override
+		public String firstKey() {
+			if(from == to){
+				throw new NoSuchElementException();
+			}
+			return keys[from];
+		}
+
+		@Override
+		public String lastKey() {
+			if(from == to){
+				throw new NoSuchElementException();
+			}
+			return keys[to - 1];
+		}
+
+		@Override
+		public Set<Entry<String, Map<String, String>>> entrySet() {
+			return new AbstractSet<Entry<String, Map<String, String>>>(){
+				@Override
+				public Iterator<Entry<String, Map<String, String>>> iterator() {
+					return new Iterator<Entry<String, Map<String, String>>>(){
+						private int next = from;
+
+						public boolean hasNext() {
+							return next < to;
+						}
+
+						public Entry<String, Map<String, String>> next() {
+							if(next >= to){
+								throw new NoSuchElementException();
+							}
+							return entry(keys[next++]);
+						}
+
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return to - from;
+				}
+			};
+		}
+	}
+
+	/**
+	 * the known keys of a collection. the collection is read, not copied,
+	 * on each use - a caller changing it changes the view. a key the
+	 * collection holds more than once is in the view once, where it first
+	 * appears.
+	 */
+	private class Selection extends AbstractMap<String, Map<String, String>> {
+
+		private final Collection<String> selectedKeys;
+
+		Selection(Collection<String> selectedKeys){
+			this.selectedKeys = selectedKeys;
+		}
+
+		@Override
+		public Map<String, String> get(Object key) {
+			return containsKey(key) ? attributes((String)key) : null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return contains(key) && selectedKeys.contains(key);
+		}
+
+		@Override
+		public Set<Entry<String, Map<String, String>>> entrySet() {
+			return new AbstractSet<Entry<String, Map<String, String>>>(){
+				@Override
+				public Iterator<Entry<String, Map<String, String>>> iterator() {
+					final Iterator<String> selected = selectedKeys.iterator();
+					return new Iterator<Entry<String, Map<String, String>>>(){
+						/**
+						 * keys already returned, null if the collection can't repeat one
+						 */
+						private final Set<String> returned = selectedKeys instanceof Set ? null : new HashSet<String>();
+						private String next = advance();
+
+						private String advance() {
+							while(selected.hasNext()){
+								String key = selected.next();
+								if(KeyIndex.this.contains(key) && (returned == null || returned.add(key))){
+									return key;
+								}
+							}
+							return null;
+						}
+
+						public boolean hasNext() {
+							return next != null;
+						}
+
+						public Entry<String, Map<String, String>> next() {
+							if(next == null){
+								throw new NoSuchElementException();
+							}
+							Entry<String, Map<String, String>> entry = entry(next);
+							next = advance();
+							return entry;
+						}
+
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					Set<String> counted = selectedKeys instanceof Set ? null : new HashSet<String>();
+					int size = 0;
+					for(String key : selectedKeys){
+						if(KeyIndex.this.contains(key) && (counted == null || counted.add(key))){
+							size++;
+						}
+					}
+					return size;
+				}
+			};
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.sandwich.annotatedbundle;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.PropertyResourceBundle;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+/**
+ * a properties file's values only, read as a PropertyResourceBundle reads
+ * them. loaded by an AnnotatedPropertiesControl that leaves annotations for
+ * the caller to read (ie lazily), relinked as an AnnotatedPropertiesBundle is.
+ */
+class PropertiesBundle extends ReloadableBundle {
+
+	/**
+	 * without a parent, so its keys are the file's own
+	 */
+	private final PropertyResourceBundle values;
+
+	PropertiesBundle(Locale locale, long[] lastModified, PropertyResourceBundle values){
+		super(locale, lastModified);
+		this.values = values;
+	}
+
+	@Override
+	protected Object handleGetObject(String key) {
+		return values.handleGetObject(key);
+	}
+
+	@Override
+	protected Set<String> handleKeySet() {
+		return values.keySet();
+	}
+
+	@Override
+	public Enumeration<String> getKeys() {
+		if(parent == null){
+			return values.getKeys();
+		}
+		Set<String> keys = new HashSet<String>(values.keySet());
+		keys.addAll(parent.keySet());
+		return Collections.enumeration(keys);
+	}
+
+	@Override
+	PropertiesBundle withParent(ResourceBundle parent) {
+		PropertiesBundle bundle = new PropertiesBundle(getLocale(), getLastModified(), values);
+		bundle.setParent(parent);
+		return bundle;
+	}
+
+}
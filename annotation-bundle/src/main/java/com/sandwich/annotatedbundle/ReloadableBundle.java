@@ -0,0 +1,56 @@
+package com.sandwich.annotatedbundle;
+
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+/**
+ * a bundle loaded by an AnnotatedPropertiesControl: when its files were last
+ * modified as it read them, and copies of it onto another parent - so a
+ * refresh rereads only the locales whose files changed, and relinks the
+ * rest onto them. never modified once loaded.
+ */
+abstract class ReloadableBundle extends ResourceBundle {
+
+	/**
+	 * the times of a bundle built from nothing but what it was handed, which
+	 * a refresh always rereads
+	 */
+	static final long[] UNKNOWN_LAST_MODIFIED = {-1, -1};
+
+	private final Locale locale;
+	private final long[] lastModified;
+
+	/**
+	 * @param lastModified as AnnotatedPropertiesControl.getLastModified,
+	 * taken before the files were read
+	 */
+	ReloadableBundle(Locale locale, long[] lastModified){
+		this.locale = locale;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * the locale of the file read, also for bundles built outside of
+	 * ResourceBundle.getBundle (which would otherwise have none).
+	 */
+	@Override
+	public Locale getLocale() {
+		return locale;
+	}
+
+	long[] getLastModified() {
+		return lastModified;
+	}
+
+	ResourceBundle getParent() {
+		return parent;
+	}
+
+	/**
+	 * a bundle with this one's contents that falls back to another parent.
+	 * the jdk sets a bundle's parent once, while loading it; relinking a
+	 * chain after one of its files is reloaded takes a copy.
+	 */
+	abstract ReloadableBundle withParent(ResourceBundle parent);
+
+}
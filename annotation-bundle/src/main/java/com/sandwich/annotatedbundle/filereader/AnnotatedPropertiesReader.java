@@ -0,0 +1,238 @@
+package com.sandwich.annotatedbundle.filereader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * reads the values and the annotations of a properties file in a single pass
+ * over its bytes. each line is handed to the same PropertyCapturer a
+ * PropertiesFileReader uses, and to a parser following the
+ * java.util.Properties format (continuation lines, escapes, '=', ':' and
+ * whitespace separators). annotations are left unresolved - ${} references
+ * may point at properties further down the file.
+ */
+public class AnnotatedPropertiesReader {
+
+	/**
+	 * properties files are read as UTF-8, falling back to ISO-8859-1 when
+	 * they aren't valid UTF-8 (like java.util.PropertyResourceBundle).
+	 */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+	/**
+	 * where files parsed are counted, null to count nothing
+	 */
+	private final ReaderMetrics metrics;
+
+	public AnnotatedPropertiesReader(){
+		this(null);
+	}
+
+	/**
+	 * @param metrics where files parsed are counted, null to count nothing
+	 */
+	public AnnotatedPropertiesReader(ReaderMetrics metrics){
+		this.metrics = metrics;
+	}
+
+	/**
+	 * read and close the stream
+	 * @param in a properties file
+	 * @return values and unresolved attributes by property key
+	 * @throws IOException
+	 */
+	public ParsedProperties read(InputStream in) throws IOException {
+		byte[] contents;
+		try{
+			contents = readFully(in);
+		}finally{
+			in.close();
+		}
+		return read(contents);
+	}
+
+	ParsedProperties read(byte[] contents) {
+		return read(decode(contents), contents.length);
+	}
+
+	ParsedProperties read(String contents) {
+		return read(contents, -1);
+	}
+
+	/**
+	 * @param bytes the encoded size of contents, -1 if not known
+	 */
+	private ParsedProperties read(String contents, long bytes) {
+		long started = System.nanoTime();
+		long lineCount = 0;
+		PropertyAttributesCollector collector = new PropertyAttributesCollector(
+				new PropertiesFileReader(null).getPropertyCapturer());
+		Map<String, String> values = new HashMap<String, String>();
+		StringBuilder logicalLine = null;
+		int length = contents.length();
+		int lineStart = 0;
+		while(lineStart < length){
+			int lineEnd = lineStart;
+			while(lineEnd < length && contents.charAt(lineEnd) != '\n' && contents.charAt(lineEnd) != '\r'){
+				lineEnd++;
+			}
+			collector.addLine(contents.substring(lineStart, lineEnd));
+			logicalLine = appendToLogicalLine(contents, lineStart, lineEnd, logicalLine, values);
+			if(lineEnd + 1 < length && contents.charAt(lineEnd) == '\r' && contents.charAt(lineEnd + 1) == '\n'){
+				lineEnd++;
+			}
+			lineStart = lineEnd + 1;
+			lineCount++;
+		}
+		if(logicalLine != null){
+			putProperty(logicalLine, values);
+		}
+		if(metrics != null){
+			metrics.record(bytes, lineCount, System.nanoTime() - started);
+		}
+		return new ParsedProperties(values, collector.getPropertyAttributes());
+	}
+
+	/**
+	 * add a natural line to the logical line in progress (if any). comments
+	 * and blank lines are skipped unless continuing a prior line.
+	 * @return the logical line if it continues on the next line, otherwise null
+	 */
+	private StringBuilder appendToLogicalLine(String contents, int start, int end, StringBuilder logicalLine, Map<String, String> values) {
+		while(start < end && isWhitespace(contents.charAt(start))){
+			start++;
+		}
+		if(logicalLine == null){
+			if(start == end || contents.charAt(start) == '#' || contents.charAt(start) == '!'){
+				return null;
+			}
+			logicalLine = new StringBuilder(end - start);
+		}
+		int backslashes = 0;
+		for(int i = end - 1; i >= start && contents.charAt(i) == '\\'; i--){
+			backslashes++;
+		}
+		if(backslashes % 2 == 1){
+			logicalLine.append(contents, start, end - 1);
+			return logicalLine;
+		}
+		logicalLine.append(contents, start, end);
+		putProperty(logicalLine, values);
+		return null;
+	}
+
+	/**
+	 * split a logical line into key and value, as java.util.Properties does
+	 */
+	private void putProperty(CharSequence line, Map<String, String> values) {
+		int limit = line.length();
+		int keyLength = 0;
+		int valueStart = limit;
+		boolean hasSeparator = false;
+		boolean precedingBackslash = false;
+		while(keyLength < limit){
+			char c = line.charAt(keyLength);
+			if((c == '=' || c == ':') && !precedingBackslash){
+				valueStart = keyLength + 1;
+				hasSeparator = true;
+				break;
+			}else if(isWhitespace(c) && !precedingBackslash){
+				valueStart = keyLength + 1;
+				break;
+			}
+			precedingBackslash = c == '\\' ? !precedingBackslash : false;
+			keyLength++;
+		}
+		while(valueStart < limit){
+			char c = line.charAt(valueStart);
+			if(!isWhitespace(c)){
+				if(!hasSeparator && (c == '=' || c == ':')){
+					hasSeparator = true;
+				}else{
+					break;
+				}
+			}
+			valueStart++;
+		}
+		values.put(unescape(line, 0, keyLength), unescape(line, valueStart, limit));
+	}
+
+	private String unescape(CharSequence line, int start, int end) {
+		StringBuilder unescaped = null;
+		for(int i = start; i < end; i++){
+			char c = line.charAt(i);
+			if(c != '\\'){
+				if(unescaped != null){
+					unescaped.append(c);
+				}
+				continue;
+			}
+			if(unescaped == null){
+				unescaped = new StringBuilder(end - start).append(line, start, i);
+			}
+			if(++i == end){
+				break;
+			}
+			c = line.charAt(i);
+			if(c == 'u'){
+				if(i + 4 >= end){
+					throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+				}
+				int codePoint = 0;
+				for(int digit = 0; digit < 4; digit++){
+					int value = Character.digit(line.charAt(++i), 16);
+					if(value < 0){
+						throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+					}
+					codePoint = (codePoint << 4) + value;
+				}
+				unescaped.append((char)codePoint);
+			}else if(c == 't'){
+				unescaped.append('\t');
+			}else if(c == 'r'){
+				unescaped.append('\r');
+			}else if(c == 'n'){
+				unescaped.append('\n');
+			}else if(c == 'f'){
+				unescaped.append('\f');
+			}else{
+				unescaped.append(c);
+			}
+		}
+		return unescaped == null ? line.subSequence(start, end).toString() : unescaped.toString();
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\f';
+	}
+
+	static String decode(byte[] bytes) {
+		try{
+			return UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT)
+				.decode(ByteBuffer.wrap(bytes)).toString();
+		}catch(CharacterCodingException x){
+			return new String(bytes, ISO_8859_1);
+		}
+	}
+
+	static byte[] readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(in.available(), 1024));
+		byte[] buf = new byte[8192];
+		int len;
+		while((len = in.read(buf)) > 0){
+			bytes.write(buf, 0, len);
+		}
+		return bytes.toByteArray();
+	}
+
+}
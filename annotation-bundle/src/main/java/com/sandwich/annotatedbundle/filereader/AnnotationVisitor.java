@@ -0,0 +1,21 @@
+package com.sandwich.annotatedbundle.filereader;
+
+import java.util.Map;
+
+/**
+ * receives each key a FileReader reads, with its attributes, as the line
+ * holding it is parsed - for tools passing over files too large to hold as
+ * a map. nothing read is kept by the reader, a key appearing on several
+ * lines is visited once per line.
+ */
+public interface AnnotationVisitor {
+
+	/**
+	 * @param key
+	 * @param attributes the line's attributes, ${} references as the reader
+	 * leaves them. empty if the line has none.
+	 * @return false to stop reading the file
+	 */
+	boolean visit(String key, Map<String, String> attributes);
+
+}
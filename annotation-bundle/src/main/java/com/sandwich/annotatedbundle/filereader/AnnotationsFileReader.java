@@ -9,7 +9,7 @@ public class AnnotationsFileReader extends FileReader {
 	/**
 	 * end of a annotations file name
 	 */
-	private static final String ANNOTATIONS_FILE_SUFFIX = ".annotations";
+	public static final String ANNOTATIONS_FILE_SUFFIX = ".annotations";
 	/**
 	 * start of a bounded key in annotation
 	 */
@@ -24,13 +24,14 @@ public class AnnotationsFileReader extends FileReader {
 		return new PropertyCapturer(){
 			@Override
 			public Map.Entry<String, Map<String, String>> captureProperties(String currentLine, String previousLine) {
-				int indexOfFirstDelimiter = currentLine == null ? -1 : currentLine.indexOf(ANNOTATION_VALUE_DELIMITER);
+				int indexOfFirstDelimiter = currentLine == null ? -1 : currentLine.indexOf(ANNOTATION_VALUE_DELIMITER_CHAR);
 				if(indexOfFirstDelimiter > BOUND_KEY_START.length() && currentLine.startsWith(BOUND_KEY_START)){
 					final String boundedKey =  currentLine.substring(BOUND_KEY_START.length(), indexOfFirstDelimiter);
-					final String line = currentLine.substring(indexOfFirstDelimiter + 1);
+					final String line = currentLine;
+					final int attributesStart = indexOfFirstDelimiter + 1;
 					return new Entry(boundedKey) {
 						@Override Map<String, String> readProperties() {
-							return parseAttributesFromLine(line);
+							return parseAttributesFromLine(line, attributesStart, line.length());
 						}
 					};
 				}
@@ -38,4 +39,21 @@ public class AnnotationsFileReader extends FileReader {
 			}
 		};
 	}
+	
+	@Override
+	Map.Entry<String, Map<String, String>> captureProperties(ByteLines lines, int start, int end, int previousStart, int previousEnd) {
+		if(!lines.startsWith(BOUND_KEY_START, start, end)){
+			return null;
+		}
+		int indexOfFirstDelimiter = lines.indexOf(ANNOTATION_VALUE_DELIMITER_CHAR, start, end);
+		if(indexOfFirstDelimiter - start <= BOUND_KEY_START.length()){
+			return null;
+		}
+		final String line = lines.decode(indexOfFirstDelimiter + 1, end);
+		return new Entry(lines.decode(start + BOUND_KEY_START.length(), indexOfFirstDelimiter)) {
+			@Override Map<String, String> readProperties() {
+				return parseAttributesFromLine(line);
+			}
+		};
+	}
 }
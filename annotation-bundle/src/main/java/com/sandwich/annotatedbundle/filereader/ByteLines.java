@@ -0,0 +1,107 @@
+package com.sandwich.annotatedbundle.filereader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * lines of a (mapped) file addressed by byte offsets. only the ascii
+ * characters the readers look for are matched against, which never occur
+ * within a multi-byte UTF-8 character, so nothing is decoded until a reader
+ * asks for a String.
+ */
+class ByteLines {
+
+	private final ByteBuffer bytes;
+	private final int limit;
+	private byte[] scratch = new byte[256];
+
+	ByteLines(ByteBuffer bytes){
+		this.bytes = bytes.duplicate();
+		this.limit = bytes.limit();
+	}
+
+	int limit(){
+		return limit;
+	}
+
+	/**
+	 * @return offset of the line break ending the line starting at start (or the limit)
+	 */
+	int lineEnd(int start){
+		int end = start;
+		while(end < limit){
+			byte b = bytes.get(end);
+			if(b == '\n' || b == '\r'){
+				break;
+			}
+			end++;
+		}
+		return end;
+	}
+
+	/**
+	 * @return offset of the line following the line break at end
+	 */
+	int nextLineStart(int end){
+		if(end + 1 < limit && bytes.get(end) == '\r' && bytes.get(end + 1) == '\n'){
+			return end + 2;
+		}
+		return end + 1;
+	}
+
+	/**
+	 * @return offset of the line break ending the line before the one starting at start (start > 0)
+	 */
+	int previousLineEnd(int start){
+		if(start >= 2 && bytes.get(start - 2) == '\r' && bytes.get(start - 1) == '\n'){
+			return start - 2;
+		}
+		return start - 1;
+	}
+
+	/**
+	 * @return offset of the start of the line ending at end
+	 */
+	int lineStart(int end){
+		int start = end;
+		while(start > 0){
+			byte b = bytes.get(start - 1);
+			if(b == '\n' || b == '\r'){
+				break;
+			}
+			start--;
+		}
+		return start;
+	}
+
+	int indexOf(char c, int start, int end){
+		for(int i = start; i < end; i++){
+			if(bytes.get(i) == c){
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	boolean startsWith(String prefix, int start, int end){
+		if(end - start < prefix.length()){
+			return false;
+		}
+		for(int i = 0; i < prefix.length(); i++){
+			if(bytes.get(start + i) != prefix.charAt(i)){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	String decode(int start, int end){
+		int length = end - start;
+		if(scratch.length < length){
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		bytes.position(start);
+		bytes.get(scratch, 0, length);
+		return new String(scratch, 0, length, FileReader.CHARSET);
+	}
+
+}
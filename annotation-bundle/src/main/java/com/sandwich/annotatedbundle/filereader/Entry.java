@@ -4,7 +4,10 @@ import java.util.Map;
 
 public abstract class Entry implements java.util.Map.Entry<String, Map<String, String>>{
 
-	private Map<String, String> value;
+	/**
+	 * read once, by whichever thread first asks for it
+	 */
+	private volatile Map<String, String> value;
 	private final String key;
 	
 	public Entry(String key){
@@ -18,16 +21,23 @@ public abstract class Entry implements java.util.Map.Entry<String, Map<String, S
 	
 	@Override
 	public Map<String, String> getValue() {
-		if(value == null){
-			value = readProperties();
+		Map<String, String> result = value;
+		if(result == null){
+			synchronized(this){
+				result = value;
+				if(result == null){
+					result = readProperties();
+					value = result;
+				}
+			}
 		}
-		return value;
+		return result;
 	}
 	
 	abstract Map<String, String> readProperties();
 
 	@Override
-	public Map<String, String> setValue(Map<String, String> value) {
+	public synchronized Map<String, String> setValue(Map<String, String> value) {
 		Map<String, String> temp = this.value;
 		this.value = value;
 		return temp;
@@ -1,39 +1,80 @@
 package com.sandwich.annotatedbundle.filereader;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ResourceBundle;
-import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public abstract class FileReader implements PropertyCapturer {
 	/**
 	 * annotated key:value pair delimiter
 	 */
 	protected static final String ANNOTATION_VALUE_DELIMITER = ";";
+	static final char ANNOTATION_VALUE_DELIMITER_CHAR = ';';
 	/**
-	 * start of a variable
+	 * key & value separator in property annotations
 	 */
-	private static final String EMBEDDED_VALUE_START = "${";
+	private static final char KEY_VALUE_SEPARATOR = ':';
 	/**
-	 * end of a variable
+	 * start of an annotated properties annotation line
 	 */
-	private static final String EMBEDDED_VALUE_END = "}";
+	protected static final String ANNOTATION_LINE_START = "#@";
 	/**
-	 * key & value separator in property annotations
+	 * charset files are decoded with
 	 */
-	private static final String KEY_VALUE_SEPARATOR = ":";
+	static final Charset CHARSET = Charset.forName("UTF-8");
 	/**
-	 * start of an annotated properties annotation line
+	 * size of the buffers files are read through
 	 */
-	protected static final String ANNOTATION_LINE_START = "#@";
+	private static final int BUFFER_SIZE = 8192;
+	/**
+	 * protocol of URLs that are read as files rather than streams
+	 */
+	static final String FILE_PROTOCOL = "file";
+	/**
+	 * files this size (in bytes) or larger are mapped into memory rather than
+	 * read through a buffer
+	 */
+	public static final long DEFAULT_MAPPED_FILE_THRESHOLD = 1024 * 1024;
+	/**
+	 * mapped files this size (in bytes) or larger are parsed in chunks, in
+	 * parallel
+	 */
+	public static final long DEFAULT_PARALLEL_THRESHOLD = 64 * 1024 * 1024;
+	/**
+	 * chunks per thread of the pool - more than one, so a chunk of long
+	 * lines doesn't hold the rest up
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
 	/**
-	 * a plan java.util.ResourceBundle to handle reading properties available at runtime.
+	 * a plain java.util.ResourceBundle whose properties (available at runtime)
+	 * are inserted into annotated values. null when constructed without a
+	 * bundle, ${} references are then left for the caller to resolve.
 	 */
 	private ResourceBundle bundle;
 	/**
@@ -49,6 +90,31 @@ public abstract class FileReader implements PropertyCapturer {
 	 * throw an NPE)
 	 */
 	private boolean isNullFileAcceptable;
+	/**
+	 * size at which files are mapped rather than read
+	 */
+	private long mappedFileThreshold = DEFAULT_MAPPED_FILE_THRESHOLD;
+	/**
+	 * size at which mapped files are parsed in parallel
+	 */
+	private long parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	/**
+	 * smallest chunk a file is cut into
+	 */
+	private int minimumChunkSize = 1024 * 1024;
+	/**
+	 * largest chunk a file is cut into, the entries of a few chunks per
+	 * thread are held at once
+	 */
+	private int maximumChunkSize = 8 * 1024 * 1024;
+	/**
+	 * where files parsed are counted, null to count nothing
+	 */
+	private ReaderMetrics metrics;
+	/**
+	 * names and values already cut from lines, shared across them
+	 */
+	private final StringTable strings = new StringTable();
 	
 	public FileReader(ResourceBundle bundle, String fileSuffix){
 		this(bundle, fileSuffix, false);
@@ -73,6 +139,47 @@ public abstract class FileReader implements PropertyCapturer {
 		return propertyCapturer;
 	}
 	
+	/**
+	 * files of at least this many bytes are read by capturePropertiesFromMappedFile
+	 * @param mappedFileThreshold 0 to map every file, Long.MAX_VALUE to map none
+	 */
+	public void setMappedFileThreshold(long mappedFileThreshold){
+		this.mappedFileThreshold = mappedFileThreshold;
+	}
+	
+	/**
+	 * mapped files of at least this many bytes are cut into chunks at line
+	 * breaks and the chunks parsed on the common fork join pool. results are
+	 * the same as a sequential read's - attributes are handed on in file
+	 * order, a failure is thrown once the lines before it have been.
+	 * @param parallelThreshold Long.MAX_VALUE to parse every file on the calling thread
+	 */
+	public void setParallelThreshold(long parallelThreshold){
+		this.parallelThreshold = parallelThreshold;
+	}
+	
+	/**
+	 * for tests, whose files are too small to be cut otherwise
+	 */
+	void setMinimumChunkSize(int minimumChunkSize){
+		this.minimumChunkSize = minimumChunkSize;
+	}
+	
+	/**
+	 * for tests, to cut small files into many chunks
+	 */
+	void setMaximumChunkSize(int maximumChunkSize){
+		this.maximumChunkSize = maximumChunkSize;
+	}
+	
+	/**
+	 * count the files this reader parses
+	 * @param metrics null to stop counting
+	 */
+	public void setMetrics(ReaderMetrics metrics){
+		this.metrics = metrics;
+	}
+	
 	/**
 	 * should we ignore a missing file?
 	 * @return
@@ -90,37 +197,80 @@ public abstract class FileReader implements PropertyCapturer {
 	 * @return
 	 */
 	Map<String, String> parseAttributesFromLine(String line) {
+		return parseAttributesFromLine(line, 0, line.length());
+	}
+	
+	/**
+	 * as parseAttributesFromLine, for the characters of line from start to
+	 * end. the line is scanned in place - the only strings made are the names
+	 * and values kept (shared with earlier lines where they repeat), values
+	 * without a ${ aren't interpolated.
+	 */
+	Map<String, String> parseAttributesFromLine(String line, int start, int end) {
 		Map<String, String> attrs = new LinkedHashMap<String, String>();
-		String[] segments = line.split(ANNOTATION_VALUE_DELIMITER);
-		for(String segment : segments){
-			int indexOf = segment.indexOf(KEY_VALUE_SEPARATOR); 
-			if(indexOf >= 0){
-				String value = segment.substring(indexOf + 1, segment.length());
-				value = insertOtherPropertyValues(value);
-				attrs.put(segment.substring(0, indexOf).trim(), value);
+		Interpolator interpolator = null;
+		for(int segmentStart = start; segmentStart < end;){
+			int segmentEnd = indexOf(line, ANNOTATION_VALUE_DELIMITER_CHAR, segmentStart, end);
+			int separator = indexOf(line, KEY_VALUE_SEPARATOR, segmentStart, segmentEnd);
+			if(separator < segmentEnd){
+				String value;
+				if(bundle != null && hasReference(line, separator + 1, segmentEnd)){
+					if(interpolator == null){
+						interpolator = new Interpolator(bundle);
+					}
+					value = interpolator.interpolate(line.substring(separator + 1, segmentEnd));
+				}else{
+					value = strings.get(line, separator + 1, segmentEnd);
+				}
+				attrs.put(strings.get(line, trimStart(line, segmentStart, separator), trimEnd(line, segmentStart, separator)), value);
 			}
+			segmentStart = segmentEnd + 1;
 		}
 		return attrs;
 	}
 	
 	/**
-	 * insert dynamic variables if start/end values are valid and present. otherwise, return the passed in string.
-	 * @param value
-	 * @return
+	 * index of c in line between start and end, end if it's not there
+	 */
+	private static int indexOf(String line, char c, int start, int end) {
+		for(int i = start; i < end; i++){
+			if(line.charAt(i) == c){
+				return i;
+			}
+		}
+		return end;
+	}
+	
+	/**
+	 * is there a ${ between start and end?
+	 */
+	private static boolean hasReference(String line, int start, int end) {
+		for(int i = start; i < end - 1; i++){
+			if(line.charAt(i) == '$' && line.charAt(i + 1) == '{'){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * first index from start not whitespace (as String.trim sees it)
 	 */
-	private String insertOtherPropertyValues(String value) {
-		int start = value.indexOf(EMBEDDED_VALUE_START);
-		int end = value.indexOf(EMBEDDED_VALUE_END);
-		String newValue = value;
-		while(end > start && start > -1){
-			String key = newValue.substring(start + EMBEDDED_VALUE_START.length(), end);
-			String rawKey = new StringBuilder(EMBEDDED_VALUE_START).append(key).append(EMBEDDED_VALUE_END).toString();
-			String replacement = bundle.getString(key);
-			newValue = newValue.replace(rawKey, replacement);
-			start = newValue.indexOf(EMBEDDED_VALUE_START);
-			end = newValue.indexOf(EMBEDDED_VALUE_END);
+	static int trimStart(String line, int start, int end) {
+		while(start < end && line.charAt(start) <= ' '){
+			start++;
 		}
-		return newValue;
+		return start;
+	}
+	
+	/**
+	 * end of the characters from start to end without trailing whitespace
+	 */
+	static int trimEnd(String line, int start, int end) {
+		while(end > start && line.charAt(end - 1) <= ' '){
+			end--;
+		}
+		return end;
 	}
 	
 	/**
@@ -132,41 +282,409 @@ public abstract class FileReader implements PropertyCapturer {
 	 * @return
 	 */
 	public Map<String, Map<String, String>> capturePropertiesFromFile(String bundleName, ClassLoader classLoader) {
-		return capturePropertiesFromFile(findFile(bundleName, classLoader));
+		return capturePropertiesFromResource(findResource(bundleName, classLoader));
+	}
+
+	/**
+	 * read a resource sequentially - a file, an entry in a jar or anything
+	 * else a URL handler is registered for. files are read from a channel,
+	 * anything else from the URL's stream.
+	 * 
+	 * @param url
+	 * @return
+	 */
+	public Map<String, Map<String, String>> capturePropertiesFromResource(URL url) {
+		if(url == null && isNullFileAcceptable()){
+			return Collections.emptyMap();
+		}
+		if(FILE_PROTOCOL.equals(url.getProtocol())){
+			return capturePropertiesFromFile(toFile(url, new URLToURITransformer()));
+		}
+		try {
+			// uncached, so a jar rewritten since it was last opened is read anew
+			URLConnection connection = url.openConnection();
+			connection.setUseCaches(false);
+			return capturePropertiesFromStream(connection.getInputStream());
+		} catch (IOException e) {
+			throw new IllegalArgumentException("The resource: "+url+" could not be read.", e);
+		}
+	}
+
+	/**
+	 * read and close a stream of this reader's file format
+	 * 
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public Map<String, Map<String, String>> capturePropertiesFromStream(InputStream in) throws IOException {
+		PropertyAttributesCollector collector = new PropertyAttributesCollector();
+		visitStream(in, collector);
+		return collector.getPropertyAttributes();
 	}
 
 	protected Map<String, Map<String, String>> capturePropertiesFromFile(File file) {
 		if(file == null && isNullFileAcceptable()){
 			return Collections.emptyMap();
 		}
-		Map<String, Map<String, String>> propertyAttributes = new LinkedHashMap<String, Map<String, String>>();
+		PropertyAttributesCollector collector = new PropertyAttributesCollector();
+		visitFile(file, collector);
+		return collector.getPropertyAttributes();
+	}
+
+	/**
+	 * hand each key of a resource to the visitor as it is read, keeping
+	 * nothing - memory use doesn't grow with the file. read as
+	 * capturePropertiesFromResource reads it, stopping when the visitor
+	 * returns false.
+	 * 
+	 * @param url null if the file doesn't exist (and that's acceptable)
+	 * @param visitor
+	 */
+	public void visitResource(URL url, AnnotationVisitor visitor) {
+		if(url == null && isNullFileAcceptable()){
+			return;
+		}
+		if(FILE_PROTOCOL.equals(url.getProtocol())){
+			visitFile(toFile(url, new URLToURITransformer()), visitor);
+			return;
+		}
 		try {
-			String previousLine = null;
-			Scanner scanner = new Scanner(file);
-			while(scanner.hasNext()){
-				String line = scanner.nextLine();
-				Entry<String, Map<String, String>> e = getPropertyCapturer().captureProperties(line, previousLine);
-				if(e == null){
-					previousLine = line;
-					continue;
+			URLConnection connection = url.openConnection();
+			connection.setUseCaches(false);
+			visitStream(connection.getInputStream(), visitor);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("The resource: "+url+" could not be read.", e);
+		}
+	}
+
+	/**
+	 * where in a resource each key is annotated, for re-parsing a key's
+	 * attributes on demand instead of holding them (see LineIndex). the
+	 * resource is read once, sequentially, each line parsed and dropped.
+	 * 
+	 * @param url null if the file doesn't exist (and that's acceptable)
+	 * @return
+	 */
+	public LineIndex indexResource(URL url) {
+		if(url == null && !isNullFileAcceptable()){
+			throw new IllegalArgumentException("The resource for: "+getFileSuffix()+" was not found.");
+		}
+		return LineIndex.build(this, url, metrics);
+	}
+
+	/**
+	 * as visitResource, for a file. large files are mapped rather than read
+	 * through a buffer, as capturePropertiesFromFile does.
+	 * 
+	 * @param file
+	 * @param visitor
+	 */
+	public void visitFile(File file, AnnotationVisitor visitor) {
+		FileInputStream in;
+		try {
+			in = new FileInputStream(file);
+		} catch (FileNotFoundException e) {
+			throw new IllegalArgumentException("The file: "+file.getAbsolutePath()+" was not found.", e);
+		}
+		try {
+			if(file.length() >= mappedFileThreshold){
+				visitMappedFile(in.getChannel(), visitor);
+				return;
+			}
+			visitReader(Channels.newReader(in.getChannel(), CHARSET.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE), BUFFER_SIZE), file.length(), null, visitor);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("The file: "+file.getAbsolutePath()+" could not be read.", e);
+		}
+	}
+
+	/**
+	 * as visitResource, reading and closing a stream of this reader's file
+	 * format - also when the visitor stops early.
+	 * 
+	 * @param in
+	 * @param visitor
+	 * @throws IOException
+	 */
+	public void visitStream(InputStream in, AnnotationVisitor visitor) throws IOException {
+		CountingInputStream counted = new CountingInputStream(in);
+		visitReader(new InputStreamReader(counted, CHARSET), -1, counted, visitor);
+	}
+	
+	/**
+	 * read file by mapping it into memory and scanning its bytes for line
+	 * breaks. Strings are only created for the parts of lines a reader keeps,
+	 * lines that are neither properties nor annotations are never decoded.
+	 * files over 2GB can't be mapped in one piece and are read sequentially.
+	 * 
+	 * @param file
+	 * @return
+	 */
+	public Map<String, Map<String, String>> capturePropertiesFromMappedFile(File file) {
+		FileInputStream in;
+		try {
+			in = new FileInputStream(file);
+		} catch (FileNotFoundException e) {
+			throw new IllegalArgumentException("The file: "+file.getAbsolutePath()+" was not found.", e);
+		}
+		try {
+			PropertyAttributesCollector collector = new PropertyAttributesCollector();
+			visitMappedFile(in.getChannel(), collector);
+			return collector.getPropertyAttributes();
+		} catch (IOException e) {
+			throw new IllegalArgumentException("The file: "+file.getAbsolutePath()+" could not be read.", e);
+		}
+	}
+	
+	private void visitMappedFile(FileChannel channel, AnnotationVisitor visitor) throws IOException {
+		try {
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE){
+				visitReader(Channels.newReader(channel, CHARSET.newDecoder()
+						.onMalformedInput(CodingErrorAction.REPLACE)
+						.onUnmappableCharacter(CodingErrorAction.REPLACE), BUFFER_SIZE), size, null, visitor);
+				return;
+			}
+			visitBytes(channel.map(MapMode.READ_ONLY, 0, size), visitor);
+		} finally {
+			channel.close();
+		}
+	}
+	
+	Map<String, Map<String, String>> capturePropertiesFromBytes(ByteBuffer bytes) {
+		PropertyAttributesCollector collector = new PropertyAttributesCollector();
+		visitBytes(bytes, collector);
+		return collector.getPropertyAttributes();
+	}
+	
+	private void visitBytes(ByteBuffer bytes, AnnotationVisitor visitor) {
+		if(bytes.limit() >= parallelThreshold){
+			visitBytesInParallel(bytes, visitor);
+			return;
+		}
+		long started = System.nanoTime();
+		ByteLines lines = new ByteLines(bytes);
+		int previousStart = -1;
+		int previousEnd = -1;
+		long lineCount = 0;
+		for(int start = 0; start < lines.limit();){
+			int end = lines.lineEnd(start);
+			lineCount++;
+			if(!visit(captureProperties(lines, start, end, previousStart, previousEnd), visitor)){
+				break;
+			}
+			previousStart = start;
+			previousEnd = end;
+			start = lines.nextLineStart(end);
+		}
+		if(metrics != null){
+			metrics.record(lines.limit(), lineCount, System.nanoTime() - started);
+		}
+	}
+	
+	/**
+	 * capture properties by chunk, each chunk on a thread of its own, then
+	 * hand what was captured to the visitor chunk by chunk in file order.
+	 * a chunk starts on a line break and is given the line before it, which
+	 * is all a PropertyCapturer looks back at. only a few chunks per thread
+	 * are forked ahead of the one being visited, and no chunk is larger than the
+	 * maximum chunk size - what's held doesn't grow with the file, and a
+	 * visitor that stops leaves the rest of the file unread.
+	 */
+	private void visitBytesInParallel(ByteBuffer bytes, AnnotationVisitor visitor) {
+		long started = System.nanoTime();
+		getPropertyCapturer(); // created here rather than raced for by the chunks
+		ByteLines lines = new ByteLines(bytes);
+		int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		int chunkSize = Math.max(minimumChunkSize, 
+				Math.min(maximumChunkSize, lines.limit() / (parallelism * CHUNKS_PER_THREAD)));
+		Deque<Chunk> forked = new ArrayDeque<Chunk>();
+		int next = 0;
+		long lineCount = 0;
+		try{
+			while(next < lines.limit() || !forked.isEmpty()){
+				while(next < lines.limit() && forked.size() < parallelism * CHUNKS_PER_THREAD){
+					int end = next + chunkSize < lines.limit() ? 
+							Math.min(lines.nextLineStart(lines.lineEnd(next + chunkSize)), lines.limit()) : lines.limit();
+					Chunk chunk = new Chunk(bytes, next, end);
+					chunk.fork();
+					forked.add(chunk);
+					next = end;
+				}
+				Chunk chunk = forked.poll();
+				chunk.join();
+				lineCount += chunk.lineCount;
+				for(Entry<String, Map<String, String>> e : chunk.entries){
+					if(!visit(e, visitor)){
+						return;
+					}
+				}
+				if(chunk.failure != null){
+					throw chunk.failure;
+				}
+			}
+		}finally{
+			for(Chunk chunk : forked){
+				chunk.stop();
+			}
+			if(metrics != null){
+				metrics.record(lines.limit(), lineCount, System.nanoTime() - started);
+			}
+		}
+	}
+	
+	/**
+	 * the properties captured from the lines between two line breaks. the
+	 * attributes are read as they're captured, that being most of the work.
+	 */
+	private class Chunk extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final ByteLines lines;
+		private final int start;
+		private final int end;
+		private final List<Entry<String, Map<String, String>>> entries = new ArrayList<Entry<String, Map<String, String>>>();
+		private long lineCount;
+		/**
+		 * what reading the line after the last entry threw, null if nothing did
+		 */
+		private RuntimeException failure;
+
+		Chunk(ByteBuffer bytes, int start, int end){
+			this.lines = new ByteLines(bytes);
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * set once the visitor has stopped, so a running chunk stops too
+		 */
+		private volatile boolean stopped;
+
+		/**
+		 * skip the chunk if it hasn't started, end it early if it has
+		 */
+		void stop() {
+			stopped = true;
+			cancel(false);
+		}
+
+		@Override
+		protected void compute() {
+			int previousEnd = start == 0 ? -1 : lines.previousLineEnd(start);
+			int previousStart = start == 0 ? -1 : lines.lineStart(previousEnd);
+			try{
+				for(int lineStart = start; lineStart < end && !stopped;){
+					int lineEnd = lines.lineEnd(lineStart);
+					lineCount++;
+					Entry<String, Map<String, String>> e = captureProperties(lines, lineStart, lineEnd, previousStart, previousEnd);
+					if(e != null){
+						e.getValue();
+						entries.add(e);
+					}
+					previousStart = lineStart;
+					previousEnd = lineEnd;
+					lineStart = lines.nextLineStart(lineEnd);
 				}
-				String key = e.getKey();
-				Map<String, String> prior = propertyAttributes.get(key);
-				if(prior == null){
-					prior = new LinkedHashMap<String, String>();
-					propertyAttributes.put(key, prior);
+			}catch(RuntimeException x){
+				failure = x;
+			}
+		}
+	}
+	
+	/**
+	 * @param e null if the line held no property
+	 * @return false if the visitor stopped reading
+	 */
+	private static boolean visit(Entry<String, Map<String, String>> e, AnnotationVisitor visitor) {
+		if(e == null){
+			return true;
+		}
+		Map<String, String> attributes = e.getValue();
+		return visitor.visit(e.getKey(), attributes == null ? Collections.<String, String>emptyMap() : attributes);
+	}
+	
+	/**
+	 * the byte oriented counterpart of captureProperties(String, String).
+	 * decodes both lines and hands them to the PropertyCapturer; child
+	 * classes override it to decode only what they keep.
+	 * 
+	 * @param lines the file
+	 * @param start offset of the current line
+	 * @param end offset of the current line's line break
+	 * @param previousStart offset of the previous line, -1 for the first line
+	 * @param previousEnd offset of the previous line's line break
+	 * @return the property key and its attributes, null if the line holds none
+	 */
+	Entry<String, Map<String, String>> captureProperties(ByteLines lines, int start, int end, int previousStart, int previousEnd) {
+		return getPropertyCapturer().captureProperties(lines.decode(start, end), 
+				previousStart < 0 ? null : lines.decode(previousStart, previousEnd));
+	}
+	
+	/**
+	 * the line an attribute of a key was last read from, for error messages -
+	 * the annotation line above a property, or the annotations file's line.
+	 * 
+	 * @param url null if the file doesn't exist
+	 * @param key
+	 * @param attributeName
+	 * @return the line number, counting from 1, or -1 if the file doesn't annotate the key with that attribute
+	 */
+	public int findAttributeLine(URL url, String key, String attributeName) {
+		if(url == null){
+			return -1;
+		}
+		try {
+			URLConnection connection = url.openConnection();
+			connection.setUseCaches(false);
+			BufferedReader lines = new BufferedReader(new InputStreamReader(connection.getInputStream(), CHARSET), BUFFER_SIZE);
+			try {
+				int found = -1;
+				String previousLine = null;
+				int lineNumber = 0;
+				for(String line = lines.readLine(); line != null; line = lines.readLine()){
+					lineNumber++;
+					Entry<String, Map<String, String>> e = getPropertyCapturer().captureProperties(line, previousLine);
+					if(e != null && key.equals(e.getKey()) && e.getValue() != null && e.getValue().containsKey(attributeName)){
+						found = line.startsWith(ANNOTATION_LINE_START) ? lineNumber : lineNumber - 1;
+					}
+					previousLine = line;
 				}
-				Map<String, String> value = e.getValue();
-				if(value == null){
-					value = new LinkedHashMap<String, String>();
+				return found;
+			} finally {
+				lines.close();
+			}
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+	
+	/**
+	 * @param bytes the size of what the reader decodes, -1 if not known
+	 * @param counted the stream the reader decodes, if its size is not known
+	 */
+	private void visitReader(Reader reader, long bytes, CountingInputStream counted, AnnotationVisitor visitor) throws IOException {
+		long started = System.nanoTime();
+		BufferedReader lines = new BufferedReader(reader, BUFFER_SIZE);
+		try {
+			PropertyCapturer capturer = getPropertyCapturer();
+			String previousLine = null;
+			long lineCount = 0;
+			for(String line = lines.readLine(); line != null; line = lines.readLine()){
+				lineCount++;
+				if(!visit(capturer.captureProperties(line, previousLine), visitor)){
+					break;
 				}
-				prior.putAll(value);
 				previousLine = line;
 			}
-		} catch (FileNotFoundException e) {
-			throw new IllegalArgumentException("The file: "+file.getAbsolutePath()+" was not found.", e);
+			if(metrics != null){
+				metrics.record(counted == null ? bytes : counted.getCount(), lineCount, System.nanoTime() - started);
+			}
+		} finally {
+			lines.close();
 		}
-		return propertyAttributes;
 	}
 
 	/**
@@ -176,6 +694,14 @@ public abstract class FileReader implements PropertyCapturer {
 		return findFile(bundleName, classLoader, getFileSuffix());
 	}
 	
+	/**
+	 * locate this reader's file for a bundle on the classpath, null if absent.
+	 * unlike findFile this works for resources in jars too.
+	 */
+	public URL findResource(String bundleName, ClassLoader classLoader) {
+		return findResource(bundleName, classLoader, getFileSuffix());
+	}
+	
 	/**
 	 * read the properties from one line in relation to it's sibling.
 	 * @param previousLine
@@ -191,14 +717,19 @@ public abstract class FileReader implements PropertyCapturer {
 	}
 	
 	File findFile(String bundleName, ClassLoader classLoader, String fileSuffix, URLToURITransformer urlToUriTransformer) {
+		URL url = findResource(bundleName, classLoader, fileSuffix);
+		return url == null ? null : toFile(url, urlToUriTransformer);
+	}
+	
+	URL findResource(String bundleName, ClassLoader classLoader, String fileSuffix) {
 		if(bundleName == null){
 			return null;
 		}
-		URL url = classLoader.getResource(bundleName.endsWith(fileSuffix) ?
+		return classLoader.getResource(bundleName.endsWith(fileSuffix) ?
 				bundleName : bundleName + fileSuffix);
-		if(url == null){
-			return null;
-		}
+	}
+	
+	private File toFile(URL url, URLToURITransformer urlToUriTransformer) {
 		try {
 			return new File(urlToUriTransformer.toURI(url));
 		} catch (URISyntaxException e) {
@@ -206,4 +737,37 @@ public abstract class FileReader implements PropertyCapturer {
 		}
 	}
 	
+	/**
+	 * counts the bytes read from a stream of unknown length
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+		private long count;
+
+		CountingInputStream(InputStream in){
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if(b >= 0){
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if(read > 0){
+				count += read;
+			}
+			return read;
+		}
+
+		long getCount() {
+			return count;
+		}
+	}
+	
 }
@@ -0,0 +1,114 @@
+package com.sandwich.annotatedbundle.filereader;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+/**
+ * replaces ${key} references in annotated values with the value of key in a
+ * bundle. referenced values may hold references of their own; each property
+ * is resolved once and remembered, so an instance should live no longer than
+ * the bundle's contents stay the same (ie one snapshot). not thread safe.
+ */
+public class Interpolator {
+
+	private final ResourceBundle bundle;
+	private final Map<String, String> resolvedProperties = new HashMap<String, String>();
+	/**
+	 * properties being resolved, in the order they were referenced
+	 */
+	private final LinkedHashSet<String> resolving = new LinkedHashSet<String>();
+	/**
+	 * references inserted, in values passed in and in the referenced values
+	 * resolved for them
+	 */
+	private long resolutionCount;
+	/**
+	 * keys each resolved property's value refers to, for the values that refer to any
+	 */
+	private final Map<String, List<String>> propertyReferences = new HashMap<String, List<String>>();
+	
+	public Interpolator(ResourceBundle bundle){
+		this.bundle = bundle;
+	}
+	
+	/**
+	 * insert dynamic variables if start/end values are valid and present. otherwise, return the passed in string.
+	 * @param value
+	 * @return
+	 */
+	public String interpolate(String value) {
+		if(value.indexOf(Template.EMBEDDED_VALUE_START) < 0){
+			return value;
+		}
+		return interpolate(Template.parse(value));
+	}
+	
+	public String interpolate(Template template) {
+		if(!template.hasReferences()){
+			return template.toString();
+		}
+		resolutionCount += template.getReferenceCount();
+		StringBuilder interpolated = new StringBuilder();
+		for(int i = 0; i < template.getReferenceCount(); i++){
+			interpolated.append(template.getLiteral(i)).append(resolveProperty(template.getReference(i)));
+		}
+		return interpolated.append(template.getLiteral(template.getReferenceCount())).toString();
+	}
+	
+	/**
+	 * number of ${} references inserted so far
+	 */
+	public long getResolutionCount() {
+		return resolutionCount;
+	}
+	
+	/**
+	 * the keys referred to by each property resolved so far, for those
+	 * whose values refer to other properties
+	 */
+	public Map<String, List<String>> getPropertyReferences() {
+		return Collections.unmodifiableMap(propertyReferences);
+	}
+	
+	/**
+	 * the value of key, with its own references inserted
+	 * @throws IllegalArgumentException if key's value refers back to key
+	 * @throws java.util.MissingResourceException if there is no value for key
+	 */
+	public String resolveProperty(String key) {
+		String resolved = resolvedProperties.get(key);
+		if(resolved != null){
+			return resolved;
+		}
+		if(!resolving.add(key)){
+			StringBuilder cycle = new StringBuilder();
+			for(String property : resolving){
+				if(cycle.length() > 0 || property.equals(key)){
+					cycle.append(property).append(" -> ");
+				}
+			}
+			throw new IllegalArgumentException("The property: "+key+" refers to itself: "+cycle.append(key));
+		}
+		try{
+			String value = bundle.getString(key);
+			if(value.indexOf(Template.EMBEDDED_VALUE_START) < 0){
+				resolved = value;
+			}else{
+				Template template = Template.parse(value);
+				if(template.hasReferences()){
+					propertyReferences.put(key, template.getReferences());
+				}
+				resolved = interpolate(template);
+			}
+		}finally{
+			resolving.remove(key);
+		}
+		resolvedProperties.put(key, resolved);
+		return resolved;
+	}
+	
+}
@@ -0,0 +1,416 @@
+package com.sandwich.annotatedbundle.filereader;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * where each key of a file is annotated, rather than its attributes: the
+ * keys, sorted, and the byte offsets of the lines their attributes are read
+ * from. a key's attributes are parsed again from those lines whenever they
+ * are asked for, so what is held doesn't grow with the attributes - only
+ * with the keys. never modified once built.
+ */
+public final class LineIndex {
+
+	public static final LineIndex EMPTY = new LineIndex(null, null, new TreeMap<String, long[]>(), -1, 0);
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final FileReader reader;
+	private final URL url;
+	private final String[] keys;
+	/**
+	 * where each key's lines start in lineOffsets, and (one past the last
+	 * key) where they end
+	 */
+	private final int[] firstLine;
+	/**
+	 * for each line a key's attributes were read from, the offset of the
+	 * line before it (-1 for the first line) then its own
+	 */
+	private final long[] lineOffsets;
+	/**
+	 * size of a file when it was indexed, -1 for other resources
+	 */
+	private final long fileLength;
+	/**
+	 * when a file was last modified before it was indexed, as
+	 * File.lastModified - an edit needn't change its size
+	 */
+	private final long fileModified;
+
+	/**
+	 * scan a resource line by line, keeping the offsets of the lines its
+	 * keys are annotated on. lines are decoded and parsed as they are read,
+	 * and dropped.
+	 *
+	 * @param url null if the file doesn't exist
+	 */
+	static LineIndex build(FileReader reader, URL url, ReaderMetrics metrics) {
+		if(url == null){
+			return EMPTY;
+		}
+		long started = System.nanoTime();
+		long fileModified = lastModified(url);
+		Map<String, long[]> offsets = new TreeMap<String, long[]>();
+		long lineCount = 0;
+		long position = 0;
+		try{
+			URLConnection connection = url.openConnection();
+			connection.setUseCaches(false);
+			InputStream in = new BufferedInputStream(connection.getInputStream(), BUFFER_SIZE);
+			try{
+				PropertyCapturer capturer = reader.getPropertyCapturer();
+				ByteArrayOutputStream line = new ByteArrayOutputStream();
+				String previousLine = null;
+				long previousOffset = -1;
+				long lineOffset = 0;
+				for(int b = in.read(); b >= 0 || line.size() > 0; b = in.read()){
+					if(b >= 0){
+						position++;
+					}
+					if(b >= 0 && b != '\n' && b != '\r'){
+						line.write(b);
+						continue;
+					}
+					if(b == '\r'){
+						in.mark(1);
+						if(in.read() == '\n'){
+							position++;
+						}else{
+							in.reset();
+						}
+					}
+					String currentLine = new String(line.toByteArray(), FileReader.CHARSET);
+					line.reset();
+					lineCount++;
+					Map.Entry<String, Map<String, String>> e = capturer.captureProperties(currentLine, previousLine);
+					if(e != null){
+						Map<String, String> attributes = e.getValue();
+						offsets.put(e.getKey(), attributes == null || attributes.isEmpty() ?
+								append(offsets.get(e.getKey())) : append(offsets.get(e.getKey()), previousOffset, lineOffset));
+					}
+					previousLine = currentLine;
+					previousOffset = lineOffset;
+					lineOffset = position;
+					if(b < 0){
+						break;
+					}
+				}
+			}finally{
+				in.close();
+			}
+		}catch(IOException e){
+			throw new IllegalArgumentException("The resource: "+url+" could not be read.", e);
+		}
+		if(metrics != null){
+			metrics.record(position, lineCount, System.nanoTime() - started);
+		}
+		return new LineIndex(reader, url, offsets, FileReader.FILE_PROTOCOL.equals(url.getProtocol()) ? position : -1, fileModified);
+	}
+
+	/**
+	 * @return 0 for resources other than files
+	 */
+	private static long lastModified(URL url) {
+		if(!FileReader.FILE_PROTOCOL.equals(url.getProtocol())){
+			return 0;
+		}
+		try{
+			return new File(new URLToURITransformer().toURI(url)).lastModified();
+		}catch(URISyntaxException e){
+			throw new IllegalArgumentException(url+" was not formatted correctly.", e);
+		}
+	}
+
+	private LineIndex(FileReader reader, URL url, Map<String, long[]> offsets, long fileLength, long fileModified){
+		this.reader = reader;
+		this.url = url;
+		this.fileLength = fileLength;
+		this.fileModified = fileModified;
+		this.keys = offsets.keySet().toArray(new String[offsets.size()]);
+		this.firstLine = new int[keys.length + 1];
+		int lines = 0;
+		for(long[] keyOffsets : offsets.values()){
+			lines += keyOffsets.length / 2;
+		}
+		this.lineOffsets = new long[lines * 2];
+		int i = 0;
+		int line = 0;
+		for(long[] keyOffsets : offsets.values()){
+			firstLine[i++] = line;
+			System.arraycopy(keyOffsets, 0, lineOffsets, line * 2, keyOffsets.length);
+			line += keyOffsets.length / 2;
+		}
+		firstLine[i] = line;
+	}
+
+	/**
+	 * a key's offsets with another line's added, or an empty array for a
+	 * key seen for the first time without attributes
+	 */
+	private static long[] append(long[] offsets, long... line) {
+		if(offsets == null){
+			return line;
+		}
+		long[] appended = Arrays.copyOf(offsets, offsets.length + line.length);
+		System.arraycopy(line, 0, appended, offsets.length, line.length);
+		return appended;
+	}
+
+	/**
+	 * keys read from the file, sorted
+	 */
+	public List<String> getKeys() {
+		return Collections.unmodifiableList(Arrays.asList(keys));
+	}
+
+	public boolean containsKey(String key) {
+		return Arrays.binarySearch(keys, key) >= 0;
+	}
+
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * rough number of bytes held: the keys and the offsets of their lines
+	 */
+	public long estimateRetainedSize() {
+		long size = 4L * firstLine.length + 8L * lineOffsets.length;
+		for(String key : keys){
+			size += 4 + 40 + ((key.length() + 7) & ~7);
+		}
+		return size;
+	}
+
+	/**
+	 * parse a key's attributes again from the lines it was annotated on,
+	 * merged as the file's readers merge them - a later line's attributes
+	 * replacing an earlier one's. ${} references are left in place.
+	 *
+	 * @return null if the file doesn't hold the key, an empty map if it isn't annotated
+	 * @throws IllegalStateException if the file changed (in size or modification
+	 * time) since it was indexed
+	 */
+	public Map<String, String> readAttributes(String key) {
+		Scan scan = scan();
+		try{
+			return scan.readAttributes(key);
+		}finally{
+			scan.close();
+		}
+	}
+
+	/**
+	 * a reader of any number of keys' attributes that opens the resource
+	 * once, on the first key annotated in it
+	 */
+	public Scan scan() {
+		return new Scan();
+	}
+
+	/**
+	 * reads keys' attributes as readAttributes does, from one read of the
+	 * resource - for passing over every key. used by one thread at a time,
+	 * and closed once done.
+	 */
+	public final class Scan implements Closeable {
+
+		private Lines lines;
+
+		private Scan(){}
+
+		/**
+		 * @see LineIndex#readAttributes(String)
+		 */
+		public Map<String, String> readAttributes(String key) {
+			int i = Arrays.binarySearch(keys, key);
+			if(i < 0){
+				return null;
+			}
+			if(firstLine[i] == firstLine[i + 1]){
+				return Collections.emptyMap();
+			}
+			Map<String, String> attributes = new LinkedHashMap<String, String>();
+			try{
+				if(lines == null){
+					lines = open();
+				}
+				for(int line = firstLine[i]; line < firstLine[i + 1]; line++){
+					long previousOffset = lineOffsets[2 * line];
+					String previousLine = previousOffset < 0 ? null : lines.readLine(previousOffset);
+					Map.Entry<String, Map<String, String>> e = reader.getPropertyCapturer().captureProperties(
+							lines.readLine(lineOffsets[2 * line + 1]), previousLine);
+					if(e == null || !key.equals(e.getKey())){
+						throw new IllegalStateException("The resource: "+url+" changed since it was indexed, key: "+key
+								+" was not found where it was read from.");
+					}
+					if(e.getValue() != null){
+						attributes.putAll(e.getValue());
+					}
+				}
+			}catch(IOException e){
+				throw new IllegalStateException("The resource: "+url+" could not be read.", e);
+			}
+			return attributes;
+		}
+
+		public void close() {
+			if(lines == null){
+				return;
+			}
+			try{
+				lines.close();
+			}catch(IOException e){
+				throw new IllegalStateException("The resource: "+url+" could not be read.", e);
+			}finally{
+				lines = null;
+			}
+		}
+	}
+
+	/**
+	 * files are read where the lines are, other resources from the start
+	 */
+	private Lines open() throws IOException {
+		if(fileLength >= 0){
+			try{
+				File file = new File(new URLToURITransformer().toURI(url));
+				RandomAccessFile in = new RandomAccessFile(file, "r");
+				if(in.length() != fileLength || file.lastModified() != fileModified){
+					in.close();
+					throw new IllegalStateException("The file: "+file.getAbsolutePath()+" changed since it was indexed.");
+				}
+				return new FileLines(in);
+			}catch(URISyntaxException e){
+				throw new IllegalArgumentException(url+" was not formatted correctly.", e);
+			}
+		}
+		return new StreamLines(url);
+	}
+
+	/**
+	 * the lines of one read of the resource
+	 */
+	private interface Lines {
+
+		/**
+		 * the line starting at the offset, without its line break
+		 */
+		String readLine(long offset) throws IOException;
+
+		void close() throws IOException;
+	}
+
+	private static class FileLines implements Lines {
+
+		private final RandomAccessFile in;
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+		/**
+		 * reused for each line read, an index is read by any number of
+		 * threads at once - each with lines of its own
+		 */
+		private final byte[] buffer = new byte[256];
+
+		FileLines(RandomAccessFile in){
+			this.in = in;
+		}
+
+		public String readLine(long offset) throws IOException {
+			in.seek(offset);
+			line.reset();
+			for(int read = in.read(buffer); read > 0; read = in.read(buffer)){
+				for(int i = 0; i < read; i++){
+					if(buffer[i] == '\n' || buffer[i] == '\r'){
+						line.write(buffer, 0, i);
+						return new String(line.toByteArray(), FileReader.CHARSET);
+					}
+				}
+				line.write(buffer, 0, read);
+			}
+			return new String(line.toByteArray(), FileReader.CHARSET);
+		}
+
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	/**
+	 * a resource that can't be read at an offset (ie an entry in a jar) is
+	 * skipped through, lines are asked for in file order
+	 */
+	private static class StreamLines implements Lines {
+
+		private final URL url;
+		private InputStream in;
+		private long position;
+		/**
+		 * the line last read, the line above an annotation is often the one before's
+		 */
+		private long lastOffset = -1;
+		private String lastLine;
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+		StreamLines(URL url){
+			this.url = url;
+		}
+
+		public String readLine(long offset) throws IOException {
+			if(offset == lastOffset){
+				return lastLine;
+			}
+			if(in == null || offset < position){
+				close();
+				URLConnection connection = url.openConnection();
+				connection.setUseCaches(false);
+				in = new BufferedInputStream(connection.getInputStream(), BUFFER_SIZE);
+				position = 0;
+			}
+			while(position < offset){
+				long skipped = in.skip(offset - position);
+				if(skipped <= 0){
+					if(in.read() < 0){
+						break;
+					}
+					skipped = 1;
+				}
+				position += skipped;
+			}
+			line.reset();
+			for(int b = in.read(); b >= 0; b = in.read()){
+				position++;
+				if(b == '\n' || b == '\r'){
+					break;
+				}
+				line.write(b);
+			}
+			lastOffset = offset;
+			lastLine = new String(line.toByteArray(), FileReader.CHARSET);
+			return lastLine;
+		}
+
+		public void close() throws IOException {
+			if(in != null){
+				in.close();
+				in = null;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,355 @@
+package com.sandwich.annotatedbundle.filereader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Checksum;
+
+/**
+ * keeps what was parsed from properties and annotations files in a
+ * directory, so a later run (or another JVM) reading unchanged files maps
+ * the result in rather than parsing the text again. entries are named by a
+ * digest of the file's contents and checked against it when loaded, and
+ * their body against a checksum written after it - an edited file is a
+ * different entry, a damaged entry is parsed and written anew. entries are written to a temporary file and moved into place, so
+ * concurrent writers never expose half an entry. the cache is best effort:
+ * failing to write to the directory leaves files parsed as usual.
+ *
+ * only readers leaving ${} references unresolved (constructed without a
+ * bundle) may be used with a cache - their results don't depend on
+ * anything but the file.
+ */
+public class ParseCache {
+
+	/**
+	 * start of every entry, changes with the entry layout
+	 */
+	private static final int MAGIC = 0x41424302;
+	/**
+	 * what the readers make of a file, part of every entry's digest. bump it
+	 * whenever a reader's results change (ie a parsing bug is fixed), so
+	 * entries written by the earlier readers are parsed again rather than
+	 * served as they were
+	 */
+	static final int PARSER_VERSION = 1;
+	private static final String DIGEST_ALGORITHM = "SHA-1";
+	private static final int DIGEST_LENGTH = 20;
+	private static final String ENTRY_SUFFIX = ".parsed";
+	/**
+	 * in place of the value count, for entries holding attributes only
+	 */
+	private static final int NO_VALUES = -1;
+
+	private final File directory;
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * @param directory created if it doesn't exist
+	 */
+	public ParseCache(File directory){
+		if(!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()){
+			throw new IllegalArgumentException("The cache directory: "+directory.getAbsolutePath()+" could not be created.");
+		}
+		this.directory = directory;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * number of files whose parsed form was loaded from the directory
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * number of files that had to be parsed
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * as AnnotatedPropertiesReader.read - reads and closes the stream
+	 * @param in a properties file
+	 * @return values and unresolved attributes by property key
+	 * @throws IOException
+	 */
+	public ParsedProperties readProperties(InputStream in) throws IOException {
+		return readProperties(in, new AnnotatedPropertiesReader());
+	}
+
+	/**
+	 * as readProperties, the file parsed by the passed in reader on a miss
+	 * @param in a properties file
+	 * @param reader
+	 * @return values and unresolved attributes by property key
+	 * @throws IOException
+	 */
+	public ParsedProperties readProperties(InputStream in, AnnotatedPropertiesReader reader) throws IOException {
+		byte[] contents;
+		try{
+			contents = AnnotatedPropertiesReader.readFully(in);
+		}finally{
+			in.close();
+		}
+		byte[] digest = digest(AnnotatedPropertiesReader.class, contents);
+		File entry = entryFile(digest);
+		ParsedProperties cached = load(entry, digest, true);
+		if(cached != null){
+			hitCount.incrementAndGet();
+			return cached;
+		}
+		missCount.incrementAndGet();
+		ParsedProperties parsed = reader.read(contents);
+		store(entry, digest, parsed);
+		return parsed;
+	}
+
+	/**
+	 * as reader.capturePropertiesFromResource
+	 * @param reader constructed without a bundle
+	 * @param url null if the reader's file doesn't exist
+	 * @return unresolved attributes by property key
+	 */
+	public Map<String, Map<String, String>> capturePropertiesFromResource(FileReader reader, URL url) {
+		if(url == null){
+			return reader.capturePropertiesFromResource(url);
+		}
+		byte[] contents;
+		try{
+			URLConnection connection = url.openConnection();
+			connection.setUseCaches(false);
+			InputStream in = connection.getInputStream();
+			try{
+				contents = AnnotatedPropertiesReader.readFully(in);
+			}finally{
+				in.close();
+			}
+		}catch(IOException e){
+			throw new IllegalArgumentException("The resource: "+url+" could not be read.", e);
+		}
+		byte[] digest = digest(reader.getClass(), contents);
+		File entry = entryFile(digest);
+		ParsedProperties cached = load(entry, digest, false);
+		if(cached != null){
+			hitCount.incrementAndGet();
+			return cached.getPropertyAttributes();
+		}
+		missCount.incrementAndGet();
+		Map<String, Map<String, String>> parsed = reader.capturePropertiesFromBytes(ByteBuffer.wrap(contents));
+		store(entry, digest, new ParsedProperties(null, parsed));
+		return parsed;
+	}
+
+	/**
+	 * digest of the contents, and of the class (and version of the readers)
+	 * parsing them - the same file read by different readers gives
+	 * different results
+	 */
+	private static byte[] digest(Class<?> parser, byte[] contents) {
+		return digest(parser, PARSER_VERSION, contents);
+	}
+
+	static byte[] digest(Class<?> parser, int parserVersion, byte[] contents) {
+		try{
+			MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+			digest.update(parser.getName().getBytes(FileReader.CHARSET));
+			digest.update((byte)0);
+			digest.update(ByteBuffer.allocate(4).putInt(parserVersion).array());
+			return digest.digest(contents);
+		}catch(NoSuchAlgorithmException e){
+			throw new IllegalStateException(DIGEST_ALGORITHM+" is not available.", e);
+		}
+	}
+
+	private File entryFile(byte[] digest) {
+		StringBuilder name = new StringBuilder(DIGEST_LENGTH * 2 + ENTRY_SUFFIX.length());
+		for(byte b : digest){
+			name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return new File(directory, name.append(ENTRY_SUFFIX).toString());
+	}
+
+	/**
+	 * @return the entry's contents, null if there is no entry or it can't be used
+	 */
+	private ParsedProperties load(File entry, byte[] digest, boolean withValues) {
+		if(!entry.isFile()){
+			return null;
+		}
+		try{
+			FileInputStream in = new FileInputStream(entry);
+			try{
+				FileChannel channel = in.getChannel();
+				return read(channel.map(MapMode.READ_ONLY, 0, channel.size()), digest, withValues);
+			}finally{
+				in.close();
+			}
+		}catch(IOException e){
+			return null;
+		}catch(BufferUnderflowException e){
+			return null;
+		}catch(IllegalArgumentException e){
+			return null;
+		}
+	}
+
+	private static ParsedProperties read(ByteBuffer entry, byte[] digest, boolean withValues) {
+		if(entry.getInt() != MAGIC){
+			return null;
+		}
+		byte[] entryDigest = new byte[DIGEST_LENGTH];
+		entry.get(entryDigest);
+		if(!Arrays.equals(digest, entryDigest)){
+			return null;
+		}
+		// the body's checksum follows it, checked before any of it is decoded
+		int checksumOffset = entry.limit() - 4;
+		ByteBuffer body = entry.duplicate();
+		body.limit(checksumOffset);
+		CRC32 checksum = new CRC32();
+		checksum.update(body);
+		if((int)checksum.getValue() != entry.getInt(checksumOffset)){
+			return null;
+		}
+		entry.limit(checksumOffset);
+		StringReader strings = new StringReader(entry);
+		int valueCount = entry.getInt();
+		if((valueCount != NO_VALUES) != withValues){
+			return null;
+		}
+		Map<String, String> values = null;
+		if(withValues){
+			values = new HashMap<String, String>(valueCount * 4 / 3 + 1);
+			for(int i = 0; i < valueCount; i++){
+				values.put(strings.read(), strings.read());
+			}
+		}
+		int keyCount = entry.getInt();
+		Map<String, Map<String, String>> propertyAttributes = new LinkedHashMap<String, Map<String, String>>(keyCount * 4 / 3 + 1);
+		for(int i = 0; i < keyCount; i++){
+			String key = strings.read();
+			int attributeCount = entry.getInt();
+			Map<String, String> attributes = new LinkedHashMap<String, String>(attributeCount * 4 / 3 + 1);
+			for(int j = 0; j < attributeCount; j++){
+				attributes.put(strings.read(), strings.read());
+			}
+			propertyAttributes.put(key, attributes);
+		}
+		return new ParsedProperties(values, propertyAttributes);
+	}
+
+	private void store(File entry, byte[] digest, ParsedProperties parsed) {
+		File temp = null;
+		try{
+			temp = File.createTempFile(entry.getName(), ".tmp", directory);
+			CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(temp)), new CRC32());
+			DataOutputStream out = new DataOutputStream(checked);
+			try{
+				write(out, checked.getChecksum(), digest, parsed);
+			}finally{
+				out.close();
+			}
+			try{
+				Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			}catch(AtomicMoveNotSupportedException e){
+				Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}catch(IOException e){
+			// the entry is rewritten the next time the file is parsed
+			if(temp != null){
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * @param checksum of what's written to out, the body's written after it
+	 */
+	private static void write(DataOutputStream out, Checksum checksum, byte[] digest, ParsedProperties parsed) throws IOException {
+		out.writeInt(MAGIC);
+		out.write(digest);
+		checksum.reset();
+		Map<String, String> values = parsed.getValues();
+		if(values == null){
+			out.writeInt(NO_VALUES);
+		}else{
+			out.writeInt(values.size());
+			for(Entry<String, String> value : values.entrySet()){
+				write(out, value.getKey());
+				write(out, value.getValue());
+			}
+		}
+		out.writeInt(parsed.getPropertyAttributes().size());
+		for(Entry<String, Map<String, String>> property : parsed.getPropertyAttributes().entrySet()){
+			write(out, property.getKey());
+			out.writeInt(property.getValue().size());
+			for(Entry<String, String> attribute : property.getValue().entrySet()){
+				write(out, attribute.getKey());
+				write(out, attribute.getValue());
+			}
+		}
+		out.writeInt((int)checksum.getValue());
+	}
+
+	/**
+	 * length prefixed UTF-8, DataOutput.writeUTF is limited to 64k
+	 */
+	private static void write(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(FileReader.CHARSET);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * decodes the strings of an entry through one reused buffer
+	 */
+	private static class StringReader {
+		private final ByteBuffer entry;
+		private byte[] scratch = new byte[64];
+
+		StringReader(ByteBuffer entry){
+			this.entry = entry;
+		}
+
+		String read() {
+			int length = entry.getInt();
+			if(length < 0 || length > entry.remaining()){
+				throw new BufferUnderflowException();
+			}
+			if(length > scratch.length){
+				scratch = new byte[Math.max(length, scratch.length * 2)];
+			}
+			entry.get(scratch, 0, length);
+			return new String(scratch, 0, length, FileReader.CHARSET);
+		}
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.sandwich.annotatedbundle.filereader;
+
+import java.util.Map;
+
+/**
+ * the result of reading a properties file in one pass: its values and the
+ * (unresolved) attributes annotated on its keys.
+ */
+public class ParsedProperties {
+
+	private final Map<String, String> values;
+	private final Map<String, Map<String, String>> propertyAttributes;
+
+	public ParsedProperties(Map<String, String> values, Map<String, Map<String, String>> propertyAttributes){
+		this.values = values;
+		this.propertyAttributes = propertyAttributes;
+	}
+
+	/**
+	 * @return property values by key
+	 */
+	public Map<String, String> getValues() {
+		return values;
+	}
+
+	/**
+	 * @return annotated attributes by property key, ${} references not yet inserted
+	 */
+	public Map<String, Map<String, String>> getPropertyAttributes() {
+		return propertyAttributes;
+	}
+
+}
@@ -14,6 +14,7 @@ public class PropertiesFileReader extends FileReader {
 	 * key & value separator in standard properties files
 	 */
 	private static final String PROP_KEY_VAL_SEPARATOR = "=";
+	private static final char PROP_KEY_VAL_SEPARATOR_CHAR = '=';
 	
 	public PropertiesFileReader(ResourceBundle bundle){
 		super(bundle, PROPERTIES_FILE_SUFFIX);
@@ -28,8 +29,8 @@ public class PropertiesFileReader extends FileReader {
 					return new Entry(currentLine.substring(0, indexOfEquals)) {
 						@Override Map<String, String> readProperties() {
 							if(previousLine != null && previousLine.startsWith(ANNOTATION_LINE_START)){
-								String trimmedLine = previousLine.substring(ANNOTATION_LINE_START.length()).trim();
-								return parseAttributesFromLine(trimmedLine);
+								int end = trimEnd(previousLine, ANNOTATION_LINE_START.length(), previousLine.length());
+								return parseAttributesFromLine(previousLine, trimStart(previousLine, ANNOTATION_LINE_START.length(), end), end);
 							}else{
 								return Collections.emptyMap();
 							}
@@ -41,4 +42,23 @@ public class PropertiesFileReader extends FileReader {
 		};
 	}
 	
+	@Override
+	Map.Entry<String, Map<String, String>> captureProperties(ByteLines lines, int start, int end, int previousStart, int previousEnd) {
+		int indexOfEquals = lines.indexOf(PROP_KEY_VAL_SEPARATOR_CHAR, start, end);
+		if(indexOfEquals < 0){
+			return null;
+		}
+		final String annotationLine = previousStart >= 0 && lines.startsWith(ANNOTATION_LINE_START, previousStart, previousEnd) ?
+				lines.decode(previousStart + ANNOTATION_LINE_START.length(), previousEnd) : null;
+		return new Entry(lines.decode(start, indexOfEquals)) {
+			@Override Map<String, String> readProperties() {
+				if(annotationLine == null){
+					return Collections.emptyMap();
+				}
+				int end = trimEnd(annotationLine, 0, annotationLine.length());
+				return parseAttributesFromLine(annotationLine, trimStart(annotationLine, 0, end), end);
+			}
+		};
+	}
+	
 }
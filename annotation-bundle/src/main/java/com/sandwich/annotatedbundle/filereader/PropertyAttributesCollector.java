@@ -0,0 +1,70 @@
+package com.sandwich.annotatedbundle.filereader;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * accumulates the entries a PropertyCapturer produces for a sequence of
+ * lines. a key appearing more than once has its attributes merged, later
+ * lines winning.
+ */
+class PropertyAttributesCollector implements AnnotationVisitor {
+
+	private final PropertyCapturer propertyCapturer;
+	private final Map<String, Map<String, String>> propertyAttributes = new LinkedHashMap<String, Map<String, String>>();
+	private String previousLine;
+
+	/**
+	 * a collector for entries captured elsewhere - addLine is unsupported
+	 */
+	PropertyAttributesCollector(){
+		this(null);
+	}
+
+	PropertyAttributesCollector(PropertyCapturer propertyCapturer){
+		this.propertyCapturer = propertyCapturer;
+	}
+
+	/**
+	 * hand the next line (and the one before it) to the capturer
+	 * @param line
+	 */
+	void addLine(String line){
+		Entry<String, Map<String, String>> e = propertyCapturer.captureProperties(line, previousLine);
+		previousLine = line;
+		addEntry(e);
+	}
+
+	/**
+	 * add a key and its attributes captured from a line
+	 * @param e null if the line held no property
+	 */
+	void addEntry(Entry<String, Map<String, String>> e){
+		if(e != null){
+			visit(e.getKey(), e.getValue());
+		}
+	}
+
+	/**
+	 * merge the attributes into those already read for the key
+	 * @param attributes null if there are none
+	 * @return true, all lines are collected
+	 */
+	public boolean visit(String key, Map<String, String> attributes) {
+		Map<String, String> prior = propertyAttributes.get(key);
+		if(prior == null){
+			prior = new LinkedHashMap<String, String>();
+			propertyAttributes.put(key, prior);
+		}
+		if(attributes != null){
+			prior.putAll(attributes);
+		}
+		return true;
+	}
+
+	Map<String, Map<String, String>> getPropertyAttributes(){
+		return propertyAttributes;
+	}
+
+}
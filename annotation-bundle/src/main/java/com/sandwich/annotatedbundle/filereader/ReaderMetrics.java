@@ -0,0 +1,55 @@
+package com.sandwich.annotatedbundle.filereader;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * what one kind of file cost to read: files parsed, bytes and lines scanned
+ * and time spent parsing. counters are striped, so readers on many threads
+ * may record into one instance without contending - cheap enough to leave
+ * on. files loaded from a ParseCache aren't parsed and aren't counted.
+ */
+public class ReaderMetrics {
+
+	private final LongAdder fileCount = new LongAdder();
+	private final LongAdder bytesRead = new LongAdder();
+	private final LongAdder linesScanned = new LongAdder();
+	private final LongAdder parseNanos = new LongAdder();
+
+	/**
+	 * count one parsed file
+	 * @param bytes its size, -1 if not known
+	 * @param lines
+	 * @param nanos time taken to parse it
+	 */
+	void record(long bytes, long lines, long nanos) {
+		fileCount.increment();
+		if(bytes > 0){
+			bytesRead.add(bytes);
+		}
+		linesScanned.add(lines);
+		parseNanos.add(nanos);
+	}
+
+	public long getFileCount() {
+		return fileCount.sum();
+	}
+
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	public long getLinesScanned() {
+		return linesScanned.sum();
+	}
+
+	public long getParseNanos() {
+		return parseNanos.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "ReaderMetrics[files="+getFileCount()+", bytes="+getBytesRead()+", lines="+getLinesScanned()
+				+", parseNanos="+getParseNanos()+"]";
+	}
+
+}
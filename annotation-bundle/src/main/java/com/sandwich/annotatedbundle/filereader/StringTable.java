@@ -0,0 +1,50 @@
+package com.sandwich.annotatedbundle.filereader;
+
+/**
+ * shares the strings cut from lines: a name or value seen before (every
+ * icon's location, resource_type:png) is returned rather than copied out of
+ * the line again. direct mapped - a string hashing to an occupied slot
+ * replaces what was there - so it stays small and needs no locking, a
+ * reader racing a writer sees one complete string or the other.
+ */
+class StringTable {
+
+	/**
+	 * slots, a power of 2
+	 */
+	private static final int SIZE = 512;
+	/**
+	 * longer strings aren't shared, they're rarely repeated and comparing
+	 * them costs more than the copy saves
+	 */
+	private static final int MAX_LENGTH = 64;
+
+	private final String[] strings = new String[SIZE];
+
+	/**
+	 * the characters of line from start to end, as a string shared with
+	 * earlier calls for the same characters where possible
+	 */
+	String get(String line, int start, int end) {
+		int length = end - start;
+		if(length == 0){
+			return "";
+		}
+		if(length > MAX_LENGTH){
+			return line.substring(start, end);
+		}
+		int hash = 0;
+		for(int i = start; i < end; i++){
+			hash = 31 * hash + line.charAt(i);
+		}
+		int slot = (hash ^ (hash >>> 16)) & (SIZE - 1);
+		String string = strings[slot];
+		if(string != null && string.length() == length && string.regionMatches(0, line, start, length)){
+			return string;
+		}
+		string = line.substring(start, end);
+		strings[slot] = string;
+		return string;
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.sandwich.annotatedbundle.filereader;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * an annotated value parsed once into literal text and ${key} references.
+ * a reference runs from ${ to the first } after it; a } before any ${, or a
+ * ${ never closed, is literal text.
+ */
+public class Template {
+	/**
+	 * start of a variable
+	 */
+	static final String EMBEDDED_VALUE_START = "${";
+	/**
+	 * end of a variable
+	 */
+	private static final char EMBEDDED_VALUE_END = '}';
+	private static final String[] NO_REFERENCES = new String[0];
+
+	private final String source;
+	/**
+	 * literals[i] precedes references[i], the last literal follows the last reference
+	 */
+	private final String[] literals;
+	private final String[] references;
+
+	private Template(String source, String[] literals, String[] references){
+		this.source = source;
+		this.literals = literals;
+		this.references = references;
+	}
+
+	public static Template parse(String value) {
+		int start = value.indexOf(EMBEDDED_VALUE_START);
+		if(start < 0){
+			return new Template(value, new String[]{value}, NO_REFERENCES);
+		}
+		int count = 0;
+		String[] literals = new String[4];
+		String[] references = new String[4];
+		int literalStart = 0;
+		while(start >= 0){
+			int end = value.indexOf(EMBEDDED_VALUE_END, start + EMBEDDED_VALUE_START.length());
+			if(end < 0){
+				break;
+			}
+			if(count + 1 == literals.length){
+				literals = copyOf(literals, literals.length * 2);
+				references = copyOf(references, references.length * 2);
+			}
+			literals[count] = value.substring(literalStart, start);
+			references[count] = value.substring(start + EMBEDDED_VALUE_START.length(), end);
+			count++;
+			literalStart = end + 1;
+			start = value.indexOf(EMBEDDED_VALUE_START, literalStart);
+		}
+		literals[count] = value.substring(literalStart);
+		return new Template(value, copyOf(literals, count + 1), copyOf(references, count));
+	}
+
+	private static String[] copyOf(String[] strings, int length) {
+		String[] copy = new String[length];
+		System.arraycopy(strings, 0, copy, 0, Math.min(length, strings.length));
+		return copy;
+	}
+
+	public boolean hasReferences() {
+		return references.length > 0;
+	}
+
+	/**
+	 * @return number of ${} references, repeats included
+	 */
+	public int getReferenceCount() {
+		return references.length;
+	}
+
+	/**
+	 * @return the key of the i-th ${} reference
+	 */
+	public String getReference(int i) {
+		return references[i];
+	}
+
+	/**
+	 * @return the keys of the ${} references in order, repeats included
+	 */
+	public List<String> getReferences() {
+		return Collections.unmodifiableList(Arrays.asList(references));
+	}
+
+	/**
+	 * @return the text preceding the i-th reference (or following the last for i == getReferenceCount())
+	 */
+	public String getLiteral(int i) {
+		return literals[i];
+	}
+
+	/**
+	 * @return the value as written
+	 */
+	@Override
+	public String toString() {
+		return source;
+	}
+
+}
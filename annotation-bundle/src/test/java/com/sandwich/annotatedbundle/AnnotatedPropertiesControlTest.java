@@ -0,0 +1,111 @@
+package com.sandwich.annotatedbundle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AnnotatedPropertiesControlTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * a loader of its own, so nothing else has put the bundles in the jdk's cache
+	 */
+	private final ClassLoader classLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+
+	@Test
+	public void testBundleCarriesUnresolvedAnnotations() throws Exception {
+		ResourceBundle bundle = ResourceBundle.getBundle("injectable_values", Locale.ROOT, 
+				classLoader, AnnotatedPropertiesControl.getInstance());
+		assertTrue(bundle instanceof AnnotatedPropertiesBundle);
+		assertEquals(Locale.ROOT, bundle.getLocale());
+		assertEquals("value", bundle.getString("key"));
+		assertEquals("three", bundle.getString("3"));
+		assertEquals("{key=${key}, one=one, two=${two}}", 
+				((AnnotatedPropertiesBundle)bundle).getPropertyAttributes().get("key").toString());
+	}
+
+	@Test
+	public void testAnnotatedResourceBundleResolvesAnnotationsFromLoadedBundle() throws Exception {
+		AnnotatedResourceBundle bundle = new AnnotatedResourceBundle("injectable_values", classLoader, Locale.US);
+		assertTrue(bundle.getBundle() instanceof AnnotatedPropertiesBundle);
+		assertEquals("{key=value, one=one, two=2}", bundle.getAttributes("key").toString());
+		assertEquals("asdvalueasd", bundle.getAttributes("3").get("yeah"));
+	}
+
+	@Test
+	public void testJdkCachedBundleResolvesAnnotationsDownItsChain() throws Exception {
+		File classes = folder.newFolder("classes");
+		write(new File(classes, "images.properties"), "#@ size:root; alt:${title}\nicon=a.png\ntitle=Alert");
+		write(new File(classes, "images_de.properties"), "title=Warnung");
+		write(new File(classes, "images_de.annotations"), "#@ @icon; size:de");
+		ClassLoader loader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, null);
+		ResourceBundle bundle = ResourceBundle.getBundle("images", Locale.GERMAN, loader, AnnotatedPropertiesControl.getInstance());
+		assertEquals("{size=de, alt=Warnung}", ((AnnotatedPropertiesBundle)bundle).getAttributes("icon").toString());
+		assertEquals("{}", ((AnnotatedPropertiesBundle)bundle).getAttributes("title").toString());
+		assertNull(((AnnotatedPropertiesBundle)bundle).getAttributes("missing"));
+		assertSame(bundle, ResourceBundle.getBundle("images", Locale.GERMAN, loader, AnnotatedPropertiesControl.getInstance()));
+	}
+
+	@Test
+	public void testExpiredBundlesAreReloadedOnlyIfTheirFilesChanged() throws Exception {
+		File classes = folder.newFolder("classes");
+		File annotations = new File(classes, "changed.annotations");
+		write(new File(classes, "changed.properties"), "icon=a.png");
+		write(annotations, "#@ @icon; size:1");
+		write(new File(classes, "unchanged.properties"), "icon=b.png");
+		ClassLoader loader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, null);
+		AnnotatedPropertiesControl control = new AnnotatedPropertiesControl(0);
+		ResourceBundle changed = ResourceBundle.getBundle("changed", Locale.ROOT, loader, control);
+		ResourceBundle unchanged = ResourceBundle.getBundle("unchanged", Locale.ROOT, loader, control);
+		write(annotations, "#@ @icon; size:2");
+		assertTrue(annotations.setLastModified(System.currentTimeMillis() + 60000));
+		ResourceBundle reloaded = ResourceBundle.getBundle("changed", Locale.ROOT, loader, control);
+		assertNotSame(changed, reloaded);
+		assertEquals("{size=2}", ((AnnotatedPropertiesBundle)reloaded).getAttributes("icon").toString());
+		assertSame(unchanged, ResourceBundle.getBundle("unchanged", Locale.ROOT, loader, control));
+	}
+
+	@Test
+	public void testBundlesAreReloadedOnlyIfModifiedAfterTheyWereLoaded() throws Exception {
+		File classes = folder.newFolder("classes");
+		File properties = new File(classes, "timed.properties");
+		write(properties, "icon=a.png");
+		ClassLoader loader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, null);
+		AnnotatedPropertiesControl control = new AnnotatedPropertiesControl(0);
+		ResourceBundle bundle = ResourceBundle.getBundle("timed", Locale.ROOT, loader, control);
+		assertFalse(control.needsReload("timed", Locale.ROOT, "java.properties", loader, bundle, properties.lastModified()));
+		assertTrue(control.needsReload("timed", Locale.ROOT, "java.properties", loader, bundle, properties.lastModified() - 1));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidTimeToLive() throws Exception {
+		new AnnotatedPropertiesControl(-3);
+	}
+
+	private static void write(File file, String contents) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try{
+			out.write(contents.getBytes("UTF-8"));
+		}finally{
+			out.close();
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+package com.sandwich.annotatedbundle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AnnotatedResourceBundleConcurrencyTest {
+
+	private static final int READERS = 8;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testReadsDuringRefreshNeverSeeHalfLoadedState() throws Exception {
+		write("concurrent.properties", "#@ a:${key}; b:2;\nkey=value\nother=1");
+		write("concurrent.annotations", "#@ @other; c:3");
+		final ClassLoader classLoader = new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()}, null);
+		final AnnotatedResourceBundle bundle = new AnnotatedResourceBundle("concurrent", classLoader, Locale.ROOT);
+		final URL annotationsFile = new File(folder.getRoot(), "concurrent.annotations").toURI().toURL();
+		final URL propertiesFile = new File(folder.getRoot(), "concurrent.properties").toURI().toURL();
+		final Queue<Throwable> failures = new ConcurrentLinkedQueue<Throwable>();
+		final AtomicBoolean writing = new AtomicBoolean(true);
+		final CountDownLatch started = new CountDownLatch(READERS);
+		Thread[] readers = new Thread[READERS];
+		for(int i = 0; i < readers.length; i++){
+			readers[i] = new Thread(new Runnable(){
+				public void run() {
+					started.countDown();
+					try{
+						while(writing.get()){
+							assertEquals("{a=value, b=2}", bundle.getAttributes("key").toString());
+							assertEquals("{c=3}", bundle.getAttributes("other").toString());
+							assertEquals("value", bundle.getString("key"));
+							assertEquals(2, bundle.getPropertyAttributes().size());
+						}
+					}catch(Throwable t){
+						failures.add(t);
+					}
+				}
+			});
+			readers[i].start();
+		}
+		started.await();
+		try{
+			for(int i = 0; i < 200; i++){
+				bundle.refreshCache(classLoader);
+				bundle.reloadAnnotationsFile(annotationsFile);
+				bundle.reloadPropertiesFile(propertiesFile);
+			}
+		}finally{
+			writing.set(false);
+		}
+		for(Thread reader : readers){
+			reader.join();
+		}
+		if(!failures.isEmpty()){
+			throw new AssertionError(failures.peek());
+		}
+	}
+
+	@Test
+	public void testLazyAnnotationsAreReadOnce() throws Exception {
+		write("lazy.properties", "#@ a:${key};\nkey=value");
+		final AnnotatedResourceBundle bundle = new AnnotatedResourceBundle("lazy", 
+				new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()}, null), Locale.ROOT, 
+				BundleOptions.defaults().withLazyAnnotations(true));
+		final Queue<Map<String, Map<String, String>>> loaded = new ConcurrentLinkedQueue<Map<String, Map<String, String>>>();
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] readers = new Thread[READERS];
+		for(int i = 0; i < readers.length; i++){
+			readers[i] = new Thread(new Runnable(){
+				public void run() {
+					try{
+						start.await();
+					}catch(InterruptedException x){
+						return;
+					}
+					loaded.add(bundle.getPropertyAttributes());
+				}
+			});
+			readers[i].start();
+		}
+		start.countDown();
+		for(Thread reader : readers){
+			reader.join();
+		}
+		assertEquals(READERS, loaded.size());
+		for(Map<String, Map<String, String>> propertyAttributes : loaded){
+			assertSame(bundle.getPropertyAttributes(), propertyAttributes);
+		}
+		assertEquals("{a=value}", bundle.getAttributes("key").toString());
+	}
+
+	@Test
+	public void testAttributesAreUnmodifiable() throws Exception {
+		AnnotatedResourceBundle bundle = new AnnotatedResourceBundle("injectable_values");
+		assertUnmodifiable(bundle.getAttributes("key"));
+		assertUnmodifiable(bundle.getAttributes("two"));
+		assertUnmodifiable(bundle.getPropertyAttributes());
+		assertTrue(bundle.getBundle().containsKey("key"));
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private void assertUnmodifiable(Map map) {
+		try{
+			map.put("k", "v");
+			fail();
+		}catch(UnsupportedOperationException x){}
+		try{
+			map.clear();
+			fail();
+		}catch(UnsupportedOperationException x){}
+	}
+
+	private void write(String fileName, String contents) throws IOException {
+		FileOutputStream out = new FileOutputStream(new File(folder.getRoot(), fileName));
+		try{
+			out.write(contents.getBytes("UTF-8"));
+		}finally{
+			out.close();
+		}
+	}
+
+}
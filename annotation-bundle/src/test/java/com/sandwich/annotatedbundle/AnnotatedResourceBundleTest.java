@@ -2,6 +2,9 @@ package com.sandwich.annotatedbundle;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
@@ -11,18 +14,28 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.ref.WeakReference;
 import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class AnnotatedResourceBundleTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Test
 	public void testNoFileFound() {
 		try{
@@ -303,6 +316,340 @@ public class AnnotatedResourceBundleTest {
 		assertEquals("value", entry.getValue());
 	}
 	
+	@Test
+	public void testAnnotationsReadFromJar() throws Exception {
+		Map<String, String> entries = new LinkedHashMap<String, String>();
+		entries.put("jarred.properties", "#@ host:${host_name};\nconnection=my_connection://\nhost_name=www.github.com");
+		entries.put("jarred.annotations", "#@ @host_name; owner:matyb");
+		AnnotatedResourceBundle annotatedResourceBundle = new AnnotatedResourceBundle("jarred", 
+				JarClassLoaders.create(folder.getRoot(), entries));
+		assertEquals("{host=www.github.com}", annotatedResourceBundle.getAttributes("connection").toString());
+		assertEquals("{owner=matyb}", annotatedResourceBundle.getAttributes("host_name").toString());
+	}
+	
+	@Test
+	public void testLazyAnnotationsAreReadOnFirstUse() throws Exception {
+		Map<String, String> entries = new LinkedHashMap<String, String>();
+		entries.put("lazy.properties", "#@ host:${host_name};\nconnection=my_connection://\nhost_name=www.github.com");
+		entries.put("lazy.annotations", "#@ @host_name; owner:matyb");
+		AnnotatedResourceBundle annotatedResourceBundle = new AnnotatedResourceBundle("lazy", 
+				JarClassLoaders.create(folder.getRoot(), entries), Locale.ROOT, BundleOptions.defaults().withLazyAnnotations(true));
+		assertEquals("www.github.com", annotatedResourceBundle.getString("host_name"));
+		assertFalse(annotatedResourceBundle.getBundle() instanceof AnnotatedPropertiesBundle);
+		assertFalse(annotatedResourceBundle.isAnnotationsLoaded());
+		assertEquals("{host=www.github.com}", annotatedResourceBundle.getAttributes("connection").toString());
+		assertTrue(annotatedResourceBundle.isAnnotationsLoaded());
+		assertEquals("{owner=matyb}", annotatedResourceBundle.getAttributes("host_name").toString());
+	}
+	
+	@Test
+	public void testLazyAnnotationsDontHoldTheClassLoader() throws Exception {
+		File classes = folder.newFolder("unreferenced");
+		write(new File(classes, "unreferenced.properties"), "#@ owner:matyb\nhost_name=www.github.com");
+		ClassLoader classLoader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, null);
+		WeakReference<ClassLoader> collected = new WeakReference<ClassLoader>(classLoader);
+		AnnotatedResourceBundle annotatedResourceBundle = new AnnotatedResourceBundle("unreferenced", 
+				classLoader, Locale.ROOT, BundleOptions.defaults().withLazyAnnotations(true));
+		classLoader = null;
+		for(int i = 0; i < 10 && collected.get() != null; i++){
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(collected.get());
+		assertEquals("{owner=matyb}", annotatedResourceBundle.getAttributes("host_name").toString());
+	}
+	
+	@Test
+	public void testLazyAnnotationsAreReadFromTheLoaderLastRefreshedWith() throws Exception {
+		File first = folder.newFolder("first");
+		write(new File(first, "refreshed.properties"), "#@ owner:first\nhost_name=www.github.com");
+		File second = folder.newFolder("second");
+		write(new File(second, "refreshed.properties"), "#@ owner:second\nhost_name=www.github.com");
+		AnnotatedResourceBundle annotatedResourceBundle = new AnnotatedResourceBundle("refreshed", 
+				new URLClassLoader(new URL[]{first.toURI().toURL()}, null), Locale.ROOT, 
+				BundleOptions.defaults().withLazyAnnotations(true));
+		annotatedResourceBundle.refreshCache(new URLClassLoader(new URL[]{second.toURI().toURL()}, null));
+		assertFalse(annotatedResourceBundle.isAnnotationsLoaded());
+		assertEquals("{owner=second}", annotatedResourceBundle.getAttributes("host_name").toString());
+	}
+	
+	@Test
+	public void testRefreshIsntServedAnEntryAnotherControlRenewed() throws Exception {
+		File classes = folder.newFolder("renewed");
+		File properties = new File(classes, "renewed.properties");
+		write(properties, "#@ type:png\nicon=a.png");
+		write(new File(classes, "renewed_de.properties"), "#@ size:de\nicon=a_de.png");
+		ClassLoader classLoader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, null);
+		AnnotatedResourceBundle annotatedResourceBundle = new AnnotatedResourceBundle("renewed", classLoader, Locale.GERMAN);
+		assertEquals("{type=png, size=de}", annotatedResourceBundle.getAttributes("icon").toString());
+		// no longer expires from the jdk's cache
+		ResourceBundle.getBundle("renewed", Locale.GERMAN, classLoader, AnnotatedPropertiesControl.getInstance());
+		write(properties, "#@ type:svg\nicon=a.svg");
+		assertTrue(properties.setLastModified(System.currentTimeMillis() + 60000));
+		long filesRead = annotatedResourceBundle.getMetrics().getPropertiesFileCount();
+		annotatedResourceBundle.refreshCache(classLoader);
+		assertEquals("{type=svg, size=de}", annotatedResourceBundle.getAttributes("icon").toString());
+		assertEquals("only the changed file is reread", filesRead + 1, annotatedResourceBundle.getMetrics().getPropertiesFileCount());
+		annotatedResourceBundle.refreshCache(classLoader);
+		assertEquals(filesRead + 1, annotatedResourceBundle.getMetrics().getPropertiesFileCount());
+	}
+	
+	@Test
+	public void testParsedFilesAreCached() throws Exception {
+		Map<String, String> entries = new LinkedHashMap<String, String>();
+		entries.put("cached.properties", "#@ host:${host_name};\nconnection=my_connection://\nhost_name=www.github.com");
+		entries.put("cached.annotations", "#@ @host_name; owner:matyb");
+		File cacheDirectory = new File(folder.getRoot(), "cache");
+		BundleOptions options = BundleOptions.defaults().withCacheDirectory(cacheDirectory);
+		new AnnotatedResourceBundle("cached", JarClassLoaders.create(folder.newFolder("first"), entries), Locale.ROOT, options);
+		assertEquals(2, cacheDirectory.list().length);
+		AnnotatedResourceBundle annotatedResourceBundle = new AnnotatedResourceBundle("cached", 
+				JarClassLoaders.create(folder.newFolder("second"), entries), Locale.ROOT, options);
+		assertEquals(2, cacheDirectory.list().length);
+		assertEquals("www.github.com", annotatedResourceBundle.getString("host_name"));
+		assertEquals("{host=www.github.com}", annotatedResourceBundle.getAttributes("connection").toString());
+		assertEquals("{owner=matyb}", annotatedResourceBundle.getAttributes("host_name").toString());
+	}
+	
+	@Test
+	public void testFindKeysFollowsRefresh() throws Exception {
+		File classes = folder.newFolder("indexed");
+		File properties = new File(classes, "indexed.properties");
+		write(properties, "#@ type:png\nicon=a.png\n#@ type:gif\nbanner=b.gif");
+		ClassLoader classLoader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, null);
+		AnnotatedResourceBundle annotatedResourceBundle = new AnnotatedResourceBundle("indexed", classLoader, Locale.ROOT);
+		assertEquals("[icon]", annotatedResourceBundle.findKeys("type", "png").toString());
+		assertEquals("[icon, banner]", annotatedResourceBundle.findKeys("type").toString());
+		write(properties, "#@ type:png\nicon=a.png\n#@ type:png\nbanner=b.png");
+		annotatedResourceBundle.refreshCache(classLoader);
+		assertEquals("[icon, banner]", annotatedResourceBundle.findKeys("type", "png").toString());
+		assertTrue(annotatedResourceBundle.findKeys("type", "gif").isEmpty());
+		assertEquals("[png]", annotatedResourceBundle.findValues("type").toString());
+	}
+	
+	@Test
+	public void testScansByPrefixAndRange() throws Exception {
+		File classes = folder.newFolder("scanned");
+		write(new File(classes, "scanned.properties"), "#@ type:png\nwarning.dialog.icon=a.png\nwarning.dialog.title=Warning\nerror.title=Error");
+		ClassLoader classLoader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, null);
+		AnnotatedResourceBundle annotatedResourceBundle = new AnnotatedResourceBundle("scanned", classLoader, Locale.ROOT);
+		assertEquals("{warning.dialog.icon={type=png}, warning.dialog.title={}}",
+				annotatedResourceBundle.getAttributesByPrefix("warning.dialog.").toString());
+		assertEquals("[error.title]", annotatedResourceBundle.getAttributesByRange(null, "warning").keySet().toString());
+		assertEquals("{warning.dialog.icon={type=png}}",
+				annotatedResourceBundle.getAttributes(java.util.Arrays.asList("warning.dialog.icon", "missing")).toString());
+	}
+	
+	@Test
+	public void testAnnotationsFollowTheLocaleChain() throws Exception {
+		ClassLoader classLoader = localizedClassLoader("localized");
+		AnnotatedResourceBundle swiss = new AnnotatedResourceBundle("localized", classLoader, new Locale("de", "CH"));
+		assertEquals("{location=dialog, size=ch, resource_type=png-image}", swiss.getAttributes("icon").toString());
+		assertEquals("{width=10, text=Warnung}", swiss.getAttributes("title").toString());
+		assertEquals("{}", swiss.getAttributes("de.only").toString());
+		AnnotatedResourceBundle german = new AnnotatedResourceBundle("localized", classLoader, Locale.GERMAN);
+		assertEquals("{location=dialog, size=de, resource_type=png-image}", german.getAttributes("icon").toString());
+		AnnotatedResourceBundle root = new AnnotatedResourceBundle("localized", classLoader, Locale.ROOT);
+		assertEquals("{location=dialog, size=root, resource_type=gif-image}", root.getAttributes("icon").toString());
+		assertEquals("{width=10, text=Warning}", root.getAttributes("title").toString());
+	}
+	
+	@Test
+	public void testLazyAnnotationsFollowTheLocaleChain() throws Exception {
+		AnnotatedResourceBundle swiss = new AnnotatedResourceBundle("localized", localizedClassLoader("lazy_localized"), 
+				new Locale("de", "CH"), BundleOptions.defaults().withLazyAnnotations(true));
+		assertEquals("{location=dialog, size=ch, resource_type=png-image}", swiss.getAttributes("icon").toString());
+		assertEquals("{width=10, text=Warnung}", swiss.getAttributes("title").toString());
+	}
+	
+	@Test
+	public void testLocalesShareParentLayers() throws Exception {
+		ClassLoader classLoader = localizedClassLoader("shared_localized");
+		AnnotatedResourceBundle swiss = new AnnotatedResourceBundle("localized", classLoader, new Locale("de", "CH"));
+		AnnotatedResourceBundle austrian = new AnnotatedResourceBundle("localized", classLoader, new Locale("de", "AT"));
+		assertEquals("{width=10}", austrian.getAttributes("plain").toString());
+		assertSame(swiss.getAttributes("plain"), austrian.getAttributes("plain"));
+		assertSame(swiss.getAttributes("de.only"), austrian.getAttributes("de.only"));
+	}
+	
+	@Test
+	public void testTypedAttributes() throws Exception {
+		File classes = folder.newFolder("typed");
+		write(new File(classes, "typed.properties"), "title=Warning\n#@ width:${width}; visible:true; timeout:500ms; max:64k; type:png-image\n"
+				+ "icon=a.png\nwidth=32\n#@ width:wide\nbanner=b.png");
+		write(new File(classes, "typed.annotations"), "#@ @title; timeout:soon");
+		ClassLoader classLoader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, null);
+		AnnotatedResourceBundle annotatedResourceBundle = new AnnotatedResourceBundle("typed", classLoader, Locale.ROOT);
+		assertEquals(32, annotatedResourceBundle.getIntAttribute("icon", "width", 0));
+		assertEquals(-1, annotatedResourceBundle.getIntAttribute("icon", "height", -1));
+		assertEquals(-1, annotatedResourceBundle.getIntAttribute("missing", "width", -1));
+		assertTrue(annotatedResourceBundle.getBooleanAttribute("icon", "visible", false));
+		assertEquals(65536, annotatedResourceBundle.getSizeAttribute("icon", "max", 0));
+		assertEquals(java.time.Duration.ofMillis(500), annotatedResourceBundle.getDurationAttribute("icon", "timeout"));
+		assertSame(annotatedResourceBundle.getDurationAttribute("icon", "timeout"), annotatedResourceBundle.getDurationAttribute("icon", "timeout"));
+		assertEquals(AttributeTypeTest.ResourceType.PNG_IMAGE, 
+				annotatedResourceBundle.getEnumAttribute("icon", "type", AttributeTypeTest.ResourceType.class));
+		try{
+			annotatedResourceBundle.getIntAttribute("banner", "width", 0);
+			fail();
+		}catch(IllegalArgumentException x){
+			assertTrue(x.getMessage(), x.getMessage().startsWith("The attribute: width of property: banner at "));
+			assertTrue(x.getMessage(), x.getMessage().endsWith("typed.properties:5 is not a valid int: wide"));
+		}
+		try{
+			annotatedResourceBundle.getDurationAttribute("title", "timeout");
+			fail();
+		}catch(IllegalArgumentException x){
+			assertTrue(x.getMessage(), x.getMessage().endsWith("typed.annotations:1 is not a valid duration: soon"));
+		}
+	}
+	
+	@Test
+	public void testMetrics() throws Exception {
+		File classes = folder.newFolder("measured");
+		File annotations = new File(classes, "measured.annotations");
+		write(new File(classes, "measured.properties"), "#@ width:${width}; title:${title}\nicon=a.png\nwidth=32\ntitle=Warning");
+		write(annotations, "#@ @title; size:10");
+		ClassLoader classLoader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, null);
+		AnnotatedResourceBundle annotatedResourceBundle = new AnnotatedResourceBundle("measured", classLoader, Locale.ROOT);
+		BundleMetrics metrics = annotatedResourceBundle.getMetrics();
+		assertEquals("measured", metrics.getBundleName());
+		assertEquals(1, metrics.getPropertiesFileCount());
+		assertEquals(67, metrics.getPropertiesBytesRead());
+		assertEquals(4, metrics.getPropertiesLinesScanned());
+		assertEquals(1, metrics.getAnnotationsFileCount());
+		assertEquals(1, metrics.getAnnotationsLinesScanned());
+		assertEquals(2, metrics.getPlaceholderResolutions());
+		assertEquals(3, metrics.getAttributeCount());
+		assertTrue(metrics.getRetainedSizeEstimate() > 0);
+		annotatedResourceBundle.getString("icon");
+		annotatedResourceBundle.getAttributes("icon");
+		annotatedResourceBundle.getIntAttribute("icon", "width", 0);
+		assertEquals(1, metrics.getValueLookups());
+		assertEquals(2, metrics.getAttributeLookups());
+		annotatedResourceBundle.reloadAnnotationsFile(annotations.toURI().toURL());
+		assertEquals(1, metrics.getReloadCount());
+		assertEquals(2, metrics.getAnnotationsFileCount());
+		assertEquals(2, metrics.getPlaceholderResolutions());
+	}
+	
+	@Test
+	public void testRefreshResolvesOnlyDependentAttributes() throws Exception {
+		File classes = folder.newFolder("dependent");
+		File properties = new File(classes, "dependent.properties");
+		String contents = "#@ url:${endpoint}; owner:${team}\nservice=svc\n#@ label:${team}\nbanner=b\n"
+				+ "endpoint=https://${host_name}/api\nteam=core\nhost_name=";
+		write(properties, contents + "a.example");
+		ClassLoader classLoader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, null);
+		AnnotatedResourceBundle annotatedResourceBundle = new AnnotatedResourceBundle("dependent", classLoader, Locale.ROOT);
+		assertEquals("{service=[url]}", annotatedResourceBundle.getDependentAttributes("host_name").toString());
+		assertEquals("{service=[owner], banner=[label]}", annotatedResourceBundle.getDependentAttributes("team").toString());
+		assertTrue(annotatedResourceBundle.getDependentAttributes("banner").isEmpty());
+		assertEquals(4, annotatedResourceBundle.getMetrics().getPlaceholderResolutions());
+		Map<String, String> banner = annotatedResourceBundle.getAttributes("banner");
+		write(properties, contents + "b.example");
+		annotatedResourceBundle.refreshCache(classLoader);
+		assertEquals("{url=https://b.example/api, owner=core}", annotatedResourceBundle.getAttributes("service").toString());
+		assertSame(banner, annotatedResourceBundle.getAttributes("banner"));
+		assertEquals(7, annotatedResourceBundle.getMetrics().getPlaceholderResolutions());
+		assertEquals("{service=[url]}", annotatedResourceBundle.getDependentAttributes("host_name").toString());
+		write(properties, contents.replace("label:${team}", "label:${host_name}") + "b.example");
+		annotatedResourceBundle.refreshCache(classLoader);
+		assertEquals("{label=b.example}", annotatedResourceBundle.getAttributes("banner").toString());
+		assertEquals("{banner=[label], service=[url]}", annotatedResourceBundle.getDependentAttributes("host_name").toString());
+	}
+	
+	@Test
+	public void testBoundedAttributesAreParsedOnDemand() throws Exception {
+		File classes = folder.newFolder("bounded");
+		File properties = new File(classes, "bounded.properties");
+		write(properties, "#@ host:${host_name}; port:80\r\nconnection=my_connection://\r\n#@ type:png\nicon=a.png\n"
+				+ "#@ type:gif\nbanner=b.gif\nhost_name=www.github.com");
+		write(new File(classes, "bounded.annotations"), "#@ @host_name; owner:matyb\n#@ @connection; port:8080\n#@ @host_name; team:core");
+		ClassLoader classLoader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, null);
+		AnnotatedResourceBundle bounded = new AnnotatedResourceBundle("bounded", classLoader, Locale.ROOT, 
+				BundleOptions.defaults().withAttributeCacheSize(2));
+		AnnotatedResourceBundle full = new AnnotatedResourceBundle("bounded", classLoader, Locale.ROOT);
+		assertEquals(0, bounded.getAttributeCount());
+		for(String key : new String[]{"connection", "icon", "banner", "host_name", "connection", "missing"}){
+			assertEquals(full.getAttributes(key), bounded.getAttributes(key));
+		}
+		assertEquals("{port=80, host=www.github.com}", bounded.getAttributes("connection").toString());
+		assertEquals("{owner=matyb, team=core}", bounded.getAttributes("host_name").toString());
+		assertNull(bounded.getAttributes("missing"));
+		BundleMetrics metrics = bounded.getMetrics();
+		assertEquals(2, metrics.getAttributeCacheHits());
+		assertEquals(5, metrics.getAttributeCacheMisses());
+		assertEquals(3, metrics.getAttributeCacheEvictions());
+		assertEquals(2.0 / 7, metrics.getAttributeCacheHitRate(), 0.0001);
+		assertEquals(4, metrics.getAttributeCount());
+		assertEquals(full.findKeys("type", "png"), bounded.findKeys("type", "png"));
+		assertEquals("[banner, icon]", bounded.findKeys("type").toString());
+		assertEquals("[gif, png]", bounded.findValues("type").toString());
+		assertEquals("[connection]", bounded.findKeys("host", "www.github.com").toString());
+		assertTrue(bounded.findKeys("type", "svg").isEmpty());
+		assertEquals(2, metrics.getAttributeCacheHits());
+		assertEquals(5, metrics.getAttributeCacheMisses());
+		assertEquals(3, metrics.getAttributeCacheEvictions());
+		assertEquals("{banner={type=gif}, connection={port=80, host=www.github.com}}", 
+				bounded.getAttributesByRange("a", "d").toString());
+		write(properties, "#@ type:svg\nicon=a.svg\nhost_name=www.github.com");
+		bounded.refreshCache(classLoader);
+		assertEquals("{type=svg}", bounded.getAttributes("icon").toString());
+		assertEquals("{owner=matyb, team=core}", bounded.getAttributes("host_name").toString());
+		assertNull(bounded.getAttributes("banner"));
+	}
+	
+	@Test
+	public void testBoundedAttributesFollowTheLocaleChain() throws Exception {
+		AnnotatedResourceBundle swiss = new AnnotatedResourceBundle("localized", localizedClassLoader("bounded_localized"), 
+				new Locale("de", "CH"), BundleOptions.defaults().withAttributeCacheSize(1));
+		assertEquals("{location=dialog, size=ch, resource_type=png-image}", swiss.getAttributes("icon").toString());
+		assertEquals("{width=10, text=Warnung}", swiss.getAttributes("title").toString());
+		assertEquals("{}", swiss.getAttributes("de.only").toString());
+		assertEquals("{location=dialog, size=ch, resource_type=png-image}", swiss.getAttributes("icon").toString());
+		assertEquals(3, swiss.getMetrics().getAttributeCacheEvictions());
+		assertEquals("[icon]", swiss.findKeys("size", "ch").toString());
+		assertEquals("[plain, title]", swiss.findKeys("width").toString());
+		assertEquals("[png-image]", swiss.findValues("resource_type").toString());
+		assertEquals("[title]", swiss.findKeys("text", "Warnung").toString());
+	}
+	
+	@Test
+	public void testBoundedAttributesFromJar() throws Exception {
+		Map<String, String> entries = new LinkedHashMap<String, String>();
+		entries.put("bounded_jar.properties", "#@ host:${host_name};\nconnection=my_connection://\nhost_name=www.github.com");
+		entries.put("bounded_jar.annotations", "#@ @host_name; owner:matyb\n#@ @connection; port:80");
+		AnnotatedResourceBundle annotatedResourceBundle = new AnnotatedResourceBundle("bounded_jar", 
+				JarClassLoaders.create(folder.getRoot(), entries), Locale.ROOT, BundleOptions.defaults().withAttributeCacheSize(1));
+		assertEquals("{port=80, host=www.github.com}", annotatedResourceBundle.getAttributes("connection").toString());
+		assertEquals("{owner=matyb}", annotatedResourceBundle.getAttributes("host_name").toString());
+		assertEquals(1, annotatedResourceBundle.getMetrics().getPlaceholderResolutions());
+		assertEquals("[connection]", annotatedResourceBundle.findKeys("port", "80").toString());
+		assertEquals("[matyb]", annotatedResourceBundle.findValues("owner").toString());
+	}
+	
+	private ClassLoader localizedClassLoader(String folderName) throws IOException {
+		File classes = folder.newFolder(folderName);
+		write(new File(classes, "localized.properties"), "#@ size:root; resource_type:gif-image\nicon=/images/w_alert.png\n"
+				+ "#@ width:10; text:${title}\ntitle=Warning\n#@ width:10\nplain=plain");
+		write(new File(classes, "localized.annotations"), "#@ @icon; location:dialog; size:none");
+		write(new File(classes, "localized_de.properties"), "#@ size:de\nicon=/images/w_alert_de.png\ntitle=Warnung\nde.only=x");
+		write(new File(classes, "localized_de.annotations"), "#@ @icon; resource_type:png-image");
+		write(new File(classes, "localized_de_CH.properties"), "#@ size:ch\nicon=/images/w_alert_ch.png");
+		write(new File(classes, "localized_de_AT.properties"), "other=x");
+		return new URLClassLoader(new URL[]{classes.toURI().toURL()}, null);
+	}
+	
+	private void write(File file, String contents) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try{
+			out.write(contents.getBytes("UTF-8"));
+		}finally{
+			out.close();
+		}
+	}
+	
 	private String copyNewMutableFile() throws URISyntaxException, FileNotFoundException, IOException {
 		InputStream in = null;
 		OutputStream out = null;
@@ -0,0 +1,94 @@
+package com.sandwich.annotatedbundle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.Test;
+
+public class AttributeDictionaryTest {
+
+	@Test
+	public void testCompactCopyEqualsOriginal() throws Exception {
+		Map<String, String> attributes = attributes("warning_dialog", "png-image");
+		Map<String, String> compact = new AttributeDictionary().compact(attributes);
+		assertEquals(attributes, compact);
+		assertEquals(attributes.hashCode(), compact.hashCode());
+		assertEquals("{location=warning_dialog, resource_type=png-image}", compact.toString());
+		assertEquals("png-image", compact.get("resource_type"));
+		assertTrue(compact.containsKey("location"));
+		assertNull(compact.get("size"));
+		assertFalse(compact.containsKey(null));
+	}
+
+	@Test
+	public void testIterationFollowsReadOrder() throws Exception {
+		Iterator<Entry<String, String>> entries = new AttributeDictionary().compact(attributes("a", "b")).entrySet().iterator();
+		assertEquals("location", entries.next().getKey());
+		assertEquals("resource_type", entries.next().getKey());
+		assertFalse(entries.hasNext());
+	}
+
+	@Test
+	public void testSameNamesShareOneLayout() throws Exception {
+		AttributeDictionary dictionary = new AttributeDictionary();
+		dictionary.compact(attributes("warning_dialog", "png-image"));
+		dictionary.compact(attributes("error_dialog", "gif-image"));
+		assertEquals(1, dictionary.size());
+		Map<String, String> reordered = new LinkedHashMap<String, String>();
+		reordered.put("resource_type", "png-image");
+		reordered.put("location", "warning_dialog");
+		dictionary.compact(reordered);
+		assertEquals(2, dictionary.size());
+	}
+
+	@Test
+	public void testEmptyAttributesAreShared() throws Exception {
+		AttributeDictionary dictionary = new AttributeDictionary();
+		assertSame(dictionary.compact(new LinkedHashMap<String, String>()), 
+				new AttributeDictionary().compact(new LinkedHashMap<String, String>()));
+		assertEquals(0, dictionary.size());
+	}
+
+	@Test
+	public void testCompactAttributesAreUnmodifiable() throws Exception {
+		AttributeDictionary dictionary = new AttributeDictionary();
+		List<Map<String, String>> compacted = new ArrayList<Map<String, String>>();
+		compacted.add(dictionary.compact(attributes("a", "b")));
+		compacted.add(dictionary.compact(new LinkedHashMap<String, String>()));
+		for(Map<String, String> compact : compacted){
+			try{
+				compact.put("k", "v");
+				fail();
+			}catch(UnsupportedOperationException x){}
+			try{
+				compact.clear();
+				fail();
+			}catch(UnsupportedOperationException x){}
+		}
+		try{
+			Iterator<String> names = dictionary.compact(attributes("a", "b")).keySet().iterator();
+			names.next();
+			names.remove();
+			fail();
+		}catch(UnsupportedOperationException x){}
+	}
+
+	private Map<String, String> attributes(String location, String resourceType) {
+		Map<String, String> attributes = new LinkedHashMap<String, String>();
+		attributes.put("location", location);
+		attributes.put("resource_type", resourceType);
+		return attributes;
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.sandwich.annotatedbundle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class AttributeIndexTest {
+
+	@Test
+	public void testKeysByNameAndValue() throws Exception {
+		AttributeIndex index = new AttributeIndex(propertyAttributes());
+		assertEquals("[warning.icon, error.icon]", index.getKeys("resource_type", "png-image").toString());
+		assertEquals("[help.icon]", index.getKeys("resource_type", "gif-image").toString());
+		assertEquals("[warning.icon, help.icon]", index.getKeys("location", "warning_dialog").toString());
+		assertTrue(index.getKeys("resource_type", "jpg-image").isEmpty());
+		assertTrue(index.getKeys("size", "png-image").isEmpty());
+	}
+
+	@Test
+	public void testKeysByName() throws Exception {
+		AttributeIndex index = new AttributeIndex(propertyAttributes());
+		assertEquals("[warning.icon, error.icon, help.icon]", index.getKeys("resource_type").toString());
+		assertEquals("[error.icon]", index.getKeys("size").toString());
+		assertTrue(index.getKeys("color").isEmpty());
+	}
+
+	@Test
+	public void testValues() throws Exception {
+		AttributeIndex index = new AttributeIndex(propertyAttributes());
+		Set<String> values = index.getValues("resource_type");
+		assertEquals(2, values.size());
+		assertTrue(values.contains("png-image"));
+		assertTrue(index.getValues("color").isEmpty());
+	}
+
+	@Test
+	public void testKeysAreUnmodifiable() throws Exception {
+		Set<String> keys = new AttributeIndex(propertyAttributes()).getKeys("resource_type");
+		assertTrue(keys.contains("help.icon"));
+		assertFalse(keys.contains("plain"));
+		try{
+			keys.remove("help.icon");
+			fail();
+		}catch(UnsupportedOperationException x){}
+		try{
+			keys.add("plain");
+			fail();
+		}catch(UnsupportedOperationException x){}
+	}
+
+	private Map<String, Map<String, String>> propertyAttributes() {
+		Map<String, Map<String, String>> propertyAttributes = new LinkedHashMap<String, Map<String, String>>();
+		propertyAttributes.put("warning.icon", attributes("location", "warning_dialog", "resource_type", "png-image"));
+		propertyAttributes.put("error.icon", attributes("location", "error_dialog", "resource_type", "png-image", "size", "16"));
+		propertyAttributes.put("help.icon", attributes("location", "warning_dialog", "resource_type", "gif-image"));
+		propertyAttributes.put("plain", attributes());
+		return propertyAttributes;
+	}
+
+	private Map<String, String> attributes(String... namesAndValues) {
+		Map<String, String> attributes = new LinkedHashMap<String, String>();
+		for(int i = 0; i < namesAndValues.length; i += 2){
+			attributes.put(namesAndValues[i], namesAndValues[i + 1]);
+		}
+		return attributes;
+	}
+
+}
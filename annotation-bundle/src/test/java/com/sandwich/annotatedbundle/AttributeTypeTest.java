@@ -0,0 +1,89 @@
+package com.sandwich.annotatedbundle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class AttributeTypeTest {
+
+	enum ResourceType { PNG_IMAGE, gif }
+
+	@Test
+	public void testNumbersAndBooleans() throws Exception {
+		assertEquals(Integer.valueOf(-32), AttributeType.INT.convert(" -32"));
+		assertEquals(Long.valueOf(4294967296L), AttributeType.LONG.convert("4294967296"));
+		assertEquals(Boolean.TRUE, AttributeType.BOOLEAN.convert("True"));
+		assertEquals(Boolean.FALSE, AttributeType.BOOLEAN.convert("false"));
+		assertInvalid(AttributeType.INT, "4294967296");
+		assertInvalid(AttributeType.BOOLEAN, "yes");
+	}
+
+	@Test
+	public void testDurations() throws Exception {
+		assertEquals(Duration.ofMillis(500), AttributeType.DURATION.convert("500ms"));
+		assertEquals(Duration.ofMinutes(2), AttributeType.DURATION.convert("2 m"));
+		assertEquals(Duration.ofDays(1), AttributeType.DURATION.convert("1d"));
+		assertEquals(Duration.ofNanos(3000), AttributeType.DURATION.convert("3us"));
+		assertEquals(Duration.ofMillis(1500), AttributeType.DURATION.convert("PT1.5S"));
+		assertInvalid(AttributeType.DURATION, "5");
+		assertInvalid(AttributeType.DURATION, "5 weeks");
+		assertInvalid(AttributeType.DURATION, "PT");
+	}
+
+	@Test
+	public void testSizes() throws Exception {
+		assertEquals(Long.valueOf(10), AttributeType.SIZE.convert("10"));
+		assertEquals(Long.valueOf(65536), AttributeType.SIZE.convert("64k"));
+		assertEquals(Long.valueOf(3L << 20), AttributeType.SIZE.convert("3 MB"));
+		assertEquals(Long.valueOf(1L << 40), AttributeType.SIZE.convert("1T"));
+		assertInvalid(AttributeType.SIZE, "1 PB");
+		assertInvalid(AttributeType.SIZE, "9223372036854775807K");
+	}
+
+	@Test
+	public void testEnums() throws Exception {
+		AttributeType<ResourceType> type = AttributeType.enumType(ResourceType.class);
+		assertSame(ResourceType.PNG_IMAGE, type.convert("png-image"));
+		assertSame(ResourceType.gif, type.convert("gif"));
+		assertEquals(type, AttributeType.enumType(ResourceType.class));
+		assertEquals("ResourceType", type.getName());
+		assertInvalid(type, "jpg");
+	}
+
+	@Test
+	public void testConversionsAreCached() throws Exception {
+		CompactAttributes attributes = (CompactAttributes)new AttributeDictionary().compact(
+				Collections.singletonMap("timeout", "2s"));
+		Duration timeout = attributes.get("timeout", AttributeType.DURATION);
+		assertEquals(Duration.ofSeconds(2), timeout);
+		assertSame(timeout, attributes.get("timeout", AttributeType.DURATION));
+		assertNull(attributes.get("delay", AttributeType.DURATION));
+		assertInvalid(attributes, AttributeType.INT);
+		assertInvalid(attributes, AttributeType.INT);
+		assertSame(timeout, attributes.get("timeout", AttributeType.DURATION));
+	}
+
+	private void assertInvalid(AttributeType<?> type, String value) {
+		try{
+			type.convert(value);
+			fail(value);
+		}catch(IllegalArgumentException x){
+			assertTrue(x.getMessage(), x.getMessage().startsWith("The value: "+value.trim()+" is not a valid "+type.getName()));
+		}
+	}
+
+	private void assertInvalid(CompactAttributes attributes, AttributeType<?> type) {
+		try{
+			attributes.get("timeout", type);
+			fail();
+		}catch(IllegalArgumentException x){}
+	}
+
+}
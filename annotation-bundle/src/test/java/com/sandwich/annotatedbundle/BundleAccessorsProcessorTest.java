@@ -0,0 +1,140 @@
+package com.sandwich.annotatedbundle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ServiceLoader;
+
+import javax.annotation.processing.Processor;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BundleAccessorsProcessorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final StringWriter diagnostics = new StringWriter();
+
+	@Test
+	public void testProcessorIsRegistered() throws Exception {
+		boolean registered = false;
+		for(Processor processor : ServiceLoader.load(Processor.class, getClass().getClassLoader())){
+			registered |= processor instanceof BundleAccessorsProcessor;
+		}
+		assertTrue(registered);
+	}
+
+	@Test
+	public void testKeysAndTypedAttributesAreGenerated() throws Exception {
+		File classes = folder.newFolder("classes");
+		write(new File(classes, "images.properties"), "#@ location:warning_dialog; width:${width}; visible:true; size:4294967296;\n"
+				+ "warning.dialog.alert-icon=/images/w_alert.png\nwidth=32\n#@ zip:007\nzip=\"quoted\\\\\"");
+		write(new File(classes, "images.annotations"), "#@ @width; unit:px");
+		assertTrue(diagnostics.toString(), compile(classes, "pkg/Images.java",
+				"package pkg; @com.sandwich.annotatedbundle.BundleAccessors(\"images\") class Images {"
+				+ " String key = ImagesKeys.WARNING_DIALOG_ALERT_ICON; int width = ImagesKeys.WarningDialogAlertIcon.WIDTH; }"));
+		ClassLoader classLoader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, getClass().getClassLoader());
+		Class<?> keys = classLoader.loadClass("pkg.ImagesKeys");
+		assertEquals("images", keys.getField("BUNDLE_NAME").get(null));
+		assertEquals("warning.dialog.alert-icon", keys.getField("WARNING_DIALOG_ALERT_ICON").get(null));
+		assertEquals("width", keys.getField("WIDTH").get(null));
+		Class<?> icon = classLoader.loadClass("pkg.ImagesKeys$WarningDialogAlertIcon");
+		assertEquals("warning_dialog", icon.getField("LOCATION").get(null));
+		assertEquals(int.class, icon.getField("WIDTH").getType());
+		assertEquals(32, icon.getField("WIDTH").getInt(null));
+		assertEquals(boolean.class, icon.getField("VISIBLE").getType());
+		assertEquals(long.class, icon.getField("SIZE").getType());
+		assertEquals("007", classLoader.loadClass("pkg.ImagesKeys$Zip").getField("ZIP").get(null));
+		assertEquals("px", classLoader.loadClass("pkg.ImagesKeys$Width").getField("UNIT").get(null));
+	}
+
+	@Test
+	public void testMissingKeyFailsCompilation() throws Exception {
+		File classes = folder.newFolder("classes");
+		write(new File(classes, "images.properties"), "icon=/images/w_alert.png");
+		assertFalse(compile(classes, "Images.java", "@com.sandwich.annotatedbundle.BundleAccessors(value=\"images\", className=\"Keys\")"
+				+ " class Images { String key = Keys.ICON; String missing = Keys.MISSING; }"));
+		assertTrue(diagnostics.toString(), diagnostics.toString().contains("MISSING"));
+	}
+
+	@Test
+	public void testMissingBundleIsReported() throws Exception {
+		assertFalse(compile(folder.newFolder("classes"), "Images.java",
+				"@com.sandwich.annotatedbundle.BundleAccessors(\"images\") class Images {}"));
+		assertTrue(diagnostics.toString(), diagnostics.toString().contains("The bundle: images was not found."));
+	}
+
+	@Test
+	public void testMissingReferenceIsReported() throws Exception {
+		File classes = folder.newFolder("classes");
+		write(new File(classes, "images.properties"), "#@ host:${missing}\nconnection=x");
+		assertFalse(compile(classes, "Images.java", "@com.sandwich.annotatedbundle.BundleAccessors(\"images\") class Images {}"));
+		assertTrue(diagnostics.toString(), diagnostics.toString().contains("refers to a missing property: missing"));
+	}
+
+	@Test
+	public void testCollidingKeysAreReported() throws Exception {
+		File classes = folder.newFolder("classes");
+		write(new File(classes, "images.properties"), "a.b=1\na_b=2");
+		assertFalse(compile(classes, "Images.java", "@com.sandwich.annotatedbundle.BundleAccessors(\"images\") class Images {}"));
+		assertTrue(diagnostics.toString(), diagnostics.toString().contains("would both be generated as: A_B"));
+	}
+
+	@Test
+	public void testNames() throws Exception {
+		assertEquals("ImagesEn", BundleAccessorsProcessor.toClassName("images_en"));
+		assertEquals("_1x", BundleAccessorsProcessor.toClassName("1x"));
+		assertEquals("WARNING_DIALOG_ALERT_ICON", BundleAccessorsProcessor.toConstantName("warning.dialog.alert-icon"));
+		assertEquals("_1", BundleAccessorsProcessor.toConstantName("1"));
+		assertEquals("__", BundleAccessorsProcessor.toConstantName("."));
+	}
+
+	/**
+	 * compile a source against this module's classes, running the processor
+	 * @return true if compilation succeeded
+	 */
+	private boolean compile(File classes, String fileName, String source) throws IOException {
+		File sources = new File(folder.getRoot(), "sources");
+		File sourceFile = new File(sources, fileName);
+		sourceFile.getParentFile().mkdirs();
+		write(sourceFile, source);
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+		try{
+			String moduleClasses = new File(BundleAccessors.class.getProtectionDomain().getCodeSource().getLocation().getPath()).getPath();
+			CompilationTask task = compiler.getTask(diagnostics, fileManager, null,
+					Arrays.asList("-d", classes.getPath(), "-classpath", moduleClasses),
+					null, fileManager.getJavaFileObjects(sourceFile));
+			task.setProcessors(Collections.singletonList(new BundleAccessorsProcessor()));
+			return task.call();
+		}finally{
+			fileManager.close();
+		}
+	}
+
+	private static void write(File file, String contents) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try{
+			out.write(contents.getBytes("UTF-8"));
+		}finally{
+			out.close();
+		}
+	}
+
+}
@@ -0,0 +1,245 @@
+package com.sandwich.annotatedbundle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executor;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class BundleCacheTest {
+
+	private final ClassLoader classLoader = getClass().getClassLoader();
+
+	@Test
+	public void testSameInstanceForSameArguments() throws Exception {
+		BundleCache cache = new BundleCache();
+		AnnotatedResourceBundle bundle = cache.getBundle("no_annotations", classLoader, Locale.US);
+		assertSame(bundle, cache.getBundle("no_annotations", classLoader, Locale.US));
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void testFileSuffixIsIgnored() throws Exception {
+		BundleCache cache = new BundleCache();
+		assertSame(cache.getBundle("no_annotations", classLoader, Locale.US),
+				cache.getBundle("no_annotations.properties", classLoader, Locale.US));
+	}
+
+	@Test
+	public void testLocaleIsPartOfKey() throws Exception {
+		BundleCache cache = new BundleCache();
+		assertNotSame(cache.getBundle("no_annotations", classLoader, Locale.US),
+				cache.getBundle("no_annotations", classLoader, Locale.GERMANY));
+		assertEquals(2, cache.getMissCount());
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void testOptionsArePartOfKey() throws Exception {
+		BundleCache cache = new BundleCache();
+		BundleOptions lazy = BundleOptions.defaults().withLazyAnnotations(true);
+		AnnotatedResourceBundle bundle = cache.getBundle("no_annotations", classLoader, Locale.US, lazy);
+		assertNotSame(bundle, cache.getBundle("no_annotations", classLoader, Locale.US));
+		assertSame(bundle, cache.getBundle("no_annotations", classLoader, Locale.US, 
+				BundleOptions.defaults().withLazyAnnotations(true)));
+		assertSame(cache.getBundle("no_annotations", classLoader, Locale.US), 
+				cache.getBundle("no_annotations", classLoader, Locale.US, BundleOptions.defaults()));
+	}
+
+	@Test
+	public void testClassLoaderIsPartOfKey() throws Exception {
+		BundleCache cache = new BundleCache();
+		URLClassLoader otherClassLoader = new URLClassLoader(new URL[0], classLoader);
+		assertNotSame(cache.getBundle("no_annotations", classLoader, Locale.US),
+				cache.getBundle("no_annotations", otherClassLoader, Locale.US));
+		assertEquals(2, cache.size());
+		cache.clear(otherClassLoader);
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		BundleCache cache = new BundleCache();
+		AnnotatedResourceBundle bundle = cache.getBundle("no_annotations", classLoader, Locale.US);
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertNotSame(bundle, cache.getBundle("no_annotations", classLoader, Locale.US));
+	}
+
+	@Test
+	public void testMetricsAreRegisteredWhileCached() throws Exception {
+		MBeanServer mbeanServer = MBeanServerFactory.newMBeanServer();
+		BundleCache cache = new BundleCache(mbeanServer);
+		AnnotatedResourceBundle bundle = cache.getBundle("no_annotations", classLoader, Locale.US);
+		bundle.getString("1");
+		Set<ObjectName> names = mbeanServer.queryNames(new ObjectName(BundleCache.MBEAN_DOMAIN + ":type=AnnotatedResourceBundle,*"), null);
+		assertEquals(1, names.size());
+		ObjectName name = names.iterator().next();
+		assertEquals("\"no_annotations\"", name.getKeyProperty("name"));
+		assertEquals(1L, mbeanServer.getAttribute(name, "ValueLookups"));
+		assertEquals("en_US", mbeanServer.getAttribute(name, "Locale"));
+		cache.getBundle("no_annotations", classLoader, Locale.US);
+		assertEquals(1, mbeanServer.queryNames(name, null).size());
+		cache.clear();
+		assertTrue(mbeanServer.queryNames(name, null).isEmpty());
+	}
+
+	@Test
+	public void testMetricsAreRegisteredOnRequest() throws Exception {
+		MBeanServer mbeanServer = MBeanServerFactory.newMBeanServer();
+		ObjectName query = new ObjectName(BundleCache.MBEAN_DOMAIN + ":type=AnnotatedResourceBundle,*");
+		BundleCache cache = new BundleCache();
+		cache.getBundle("no_annotations", classLoader, Locale.US);
+		assertTrue(mbeanServer.queryNames(query, null).isEmpty());
+		cache.registerMBeans(mbeanServer);
+		assertEquals(1, mbeanServer.queryNames(query, null).size());
+		cache.getBundle("no_annotations", classLoader, Locale.GERMAN);
+		assertEquals(2, mbeanServer.queryNames(query, null).size());
+		cache.unregisterMBeans();
+		assertTrue(mbeanServer.queryNames(query, null).isEmpty());
+		cache.getBundle("no_annotations", classLoader, Locale.FRENCH);
+		assertTrue(mbeanServer.queryNames(query, null).isEmpty());
+	}
+
+	@Test
+	public void testMissingBundleIsNotCached() throws Exception {
+		BundleCache cache = new BundleCache();
+		try{
+			cache.getBundle("i do not exist", classLoader, Locale.US);
+			fail();
+		}catch(MissingResourceException x){}
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testConcurrentAsyncRequestsShareOneLoad() throws Exception {
+		BundleCache cache = new BundleCache();
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		Executor queue = new Executor(){
+			public void execute(Runnable task) {
+				tasks.add(task);
+			}
+		};
+		CompletableFuture<AnnotatedResourceBundle> first = cache.getBundleAsync("no_annotations", classLoader, Locale.US, 
+				BundleOptions.defaults(), queue);
+		CompletableFuture<AnnotatedResourceBundle> second = cache.getBundleAsync("no_annotations", classLoader, Locale.US, 
+				BundleOptions.defaults(), queue);
+		assertEquals(1, tasks.size());
+		assertFalse(first.isDone());
+		second.cancel(false);
+		tasks.get(0).run();
+		assertSame(cache.getBundle("no_annotations", classLoader, Locale.US), first.get());
+		assertTrue(cache.getBundleAsync("no_annotations", classLoader, Locale.US, BundleOptions.defaults(), queue).isDone());
+		assertEquals(1, tasks.size());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testConcurrentRequestsShareOneLoad() throws Exception {
+		final BundleCache cache = new BundleCache();
+		final CyclicBarrier start = new CyclicBarrier(8);
+		final List<AnnotatedResourceBundle> bundles = new CopyOnWriteArrayList<AnnotatedResourceBundle>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for(int i = 0; i < 8; i++){
+			threads.add(new Thread(){
+				public void run() {
+					try{
+						start.await();
+					}catch(Exception e){
+						throw new IllegalStateException(e);
+					}
+					bundles.add(cache.getBundle("injectable_values", classLoader, Locale.US));
+				}
+			});
+		}
+		for(Thread thread : threads){
+			thread.start();
+		}
+		for(Thread thread : threads){
+			thread.join();
+		}
+		assertEquals(8, bundles.size());
+		for(AnnotatedResourceBundle bundle : bundles){
+			assertSame(bundles.get(0), bundle);
+		}
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testRequestWaitsForAnAsyncLoad() throws Exception {
+		final BundleCache cache = new BundleCache();
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		CompletableFuture<AnnotatedResourceBundle> async = cache.getBundleAsync("no_annotations", classLoader, Locale.US, 
+				BundleOptions.defaults(), new Executor(){
+					public void execute(Runnable task) {
+						tasks.add(task);
+					}
+				});
+		final List<AnnotatedResourceBundle> bundles = new CopyOnWriteArrayList<AnnotatedResourceBundle>();
+		Thread waiting = new Thread(){
+			public void run() {
+				bundles.add(cache.getBundle("no_annotations", classLoader, Locale.US));
+			}
+		};
+		waiting.start();
+		waiting.join(200);
+		assertTrue(waiting.isAlive());
+		tasks.get(0).run();
+		waiting.join();
+		assertSame(async.get(), bundles.get(0));
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testAsyncMissingBundleCompletesExceptionally() throws Exception {
+		BundleCache cache = new BundleCache();
+		try{
+			cache.getBundleAsync("i do not exist", classLoader, Locale.US, BundleOptions.defaults()).get();
+			fail();
+		}catch(ExecutionException x){
+			assertTrue(x.getCause() instanceof MissingResourceException);
+		}
+		assertEquals(0, cache.size());
+		try{
+			cache.getBundleAsync("i do not exist", classLoader, Locale.US, BundleOptions.defaults()).join();
+			fail();
+		}catch(CompletionException x){
+			assertEquals(2, cache.getMissCount());
+		}
+	}
+
+	@Test
+	public void testStaticGetBundleAsyncIsCached() throws Exception {
+		assertSame(AnnotatedResourceBundle.getBundle("first_line_annotated", classLoader),
+				AnnotatedResourceBundle.getBundleAsync("first_line_annotated", classLoader).get());
+	}
+
+	@Test
+	public void testStaticGetBundleIsCached() throws Exception {
+		assertSame(AnnotatedResourceBundle.getBundle("first_line_annotated", classLoader),
+				AnnotatedResourceBundle.getBundle("first_line_annotated", classLoader));
+	}
+
+}
@@ -0,0 +1,118 @@
+package com.sandwich.annotatedbundle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BundleLoaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testFindBundleNamesInDirectory() throws Exception {
+		BundleLoader loader = new BundleLoader(new BundleCache(), directoryClassLoader(), Locale.ROOT, BundleOptions.defaults());
+		assertEquals("[pkg/bad, pkg/cyclic, pkg/images, pkg/images_app, pkg/only, pkg/sub/nested]", 
+				loader.findBundleNames("pkg").toString());
+		assertEquals("[pkg/sub/nested]", loader.findBundleNames("pkg.sub").toString());
+		assertEquals("[other, pkg/bad, pkg/cyclic, pkg/images, pkg/images_app, pkg/only, pkg/sub/nested]", 
+				loader.findBundleNames("").toString());
+	}
+
+	@Test
+	public void testFindBundleNamesInJar() throws Exception {
+		BundleLoader loader = new BundleLoader(new BundleCache(), JarClassLoaders.create(folder.getRoot(), files()), 
+				Locale.ROOT, BundleOptions.defaults());
+		assertEquals("[pkg/bad, pkg/cyclic, pkg/images, pkg/images_app, pkg/only, pkg/sub/nested]", 
+				loader.findBundleNames("pkg/").toString());
+	}
+
+	@Test
+	public void testLoadAllAggregatesFailures() throws Exception {
+		BundleCache cache = new BundleCache();
+		ClassLoader classLoader = directoryClassLoader();
+		BundleRegistry registry = new BundleLoader(cache, classLoader, Locale.ENGLISH, BundleOptions.defaults()).loadAll("pkg");
+		assertEquals("[pkg/images, pkg/images_app, pkg/sub/nested]", registry.getBundles().keySet().toString());
+		assertEquals("/images/w_alert_en.png", registry.getBundle("pkg/images").getString("icon"));
+		assertEquals("{size=en}", registry.getBundle("pkg/images").getAttributes("icon").toString());
+		assertEquals("{owner=matyb}", registry.getBundle("pkg/sub/nested").getAttributes("key").toString());
+		assertSame(registry.getBundle("pkg/images"), cache.getBundle("pkg/images", classLoader, Locale.ENGLISH));
+		assertTrue(registry.hasFailures());
+		assertEquals("[pkg/bad, pkg/cyclic, pkg/only]", registry.getFailures().keySet().toString());
+		assertTrue(registry.getFailures().get("pkg/bad").getCause() instanceof IllegalArgumentException);
+		assertEquals("The property: a refers to itself: a -> b -> a", registry.getFailures().get("pkg/cyclic").getMessage());
+		assertTrue(registry.getFailures().get("pkg/only") instanceof MissingResourceException);
+		try{
+			registry.checkFailures();
+			fail();
+		}catch(IllegalStateException x){
+			assertTrue(x.getMessage(), x.getMessage().startsWith("3 of 6 bundles could not be loaded:\n\tpkg/bad - "));
+			assertEquals(3, x.getSuppressed().length);
+		}
+	}
+
+	@Test
+	public void testLoadAllOnExecutor() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try{
+			BundleRegistry registry = new BundleLoader(new BundleCache(), directoryClassLoader(), Locale.ROOT, 
+					BundleOptions.defaults()).loadAll("pkg.sub", executor);
+			assertFalse(registry.hasFailures());
+			registry.checkFailures();
+			assertEquals("[pkg/sub/nested]", registry.getBundles().keySet().toString());
+			assertFalse(executor.isShutdown());
+		}finally{
+			executor.shutdown();
+		}
+	}
+
+	private Map<String, String> files() {
+		Map<String, String> files = new LinkedHashMap<String, String>();
+		files.put("pkg/images.properties", "#@ size:root\nicon=/images/w_alert.png");
+		files.put("pkg/images_en.properties", "#@ size:en\nicon=/images/w_alert_en.png");
+		files.put("pkg/images_en_US.properties", "icon=/images/w_alert_us.png");
+		files.put("pkg/images_app.properties", "app=1");
+		files.put("pkg/bad.properties", "key=\\u00g1");
+		files.put("pkg/cyclic.properties", "#@ a:${a}\na=${b}\nb=${a}");
+		files.put("pkg/only.annotations", "#@ @key; owner:matyb");
+		files.put("pkg/sub/nested.properties", "key=value");
+		files.put("pkg/sub/nested.annotations", "#@ @key; owner:matyb");
+		files.put("pkg/sub/readme.txt", "not a bundle");
+		files.put("other.properties", "key=value");
+		return files;
+	}
+
+	private ClassLoader directoryClassLoader() throws IOException {
+		File root = folder.newFolder("classes");
+		for(Map.Entry<String, String> file : files().entrySet()){
+			File target = new File(root, file.getKey());
+			target.getParentFile().mkdirs();
+			FileOutputStream out = new FileOutputStream(target);
+			try{
+				out.write(file.getValue().getBytes("UTF-8"));
+			}finally{
+				out.close();
+			}
+		}
+		return new URLClassLoader(new URL[]{root.toURI().toURL()}, null);
+	}
+
+}
@@ -0,0 +1,156 @@
+package com.sandwich.annotatedbundle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BundleWatcherTest {
+
+	private static final long TIMEOUT_MILLIS = 10000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	private BundleWatcher watcher;
+	private ClassLoader classLoader;
+
+	@After
+	public void closeWatcher() throws IOException {
+		if(watcher != null){
+			watcher.close();
+		}
+	}
+
+	@Test
+	public void testAnnotationsFileChange() throws Exception {
+		AnnotatedResourceBundle bundle = createBundle("#@ a:1\nkey=value", "#@ @key; b:2");
+		assertEquals("{b=2, a=1}", bundle.getAttributes("key").toString());
+		watcher = bundle.watch(classLoader());
+		write("watched.annotations", "#@ @key; b:3; c:${key}");
+		awaitAttributes(bundle, "key", "{b=3, c=value, a=1}");
+		assertEquals("value", bundle.getString("key"));
+		assertNull(watcher.getLastFailure());
+	}
+
+	@Test
+	public void testPropertiesFileChange() throws Exception {
+		AnnotatedResourceBundle bundle = createBundle("#@ a:${key}\nkey=value", "#@ @key; b:${key}");
+		watcher = bundle.watch(classLoader());
+		write("watched.properties", "#@ a:${key}!\nkey=changed");
+		awaitAttributes(bundle, "key", "{b=changed, a=changed!}");
+		assertEquals("changed", bundle.getString("key"));
+	}
+
+	@Test
+	public void testAnnotationsFileCreatedAndDeleted() throws Exception {
+		AnnotatedResourceBundle bundle = createBundle("key=value", null);
+		watcher = bundle.watch(classLoader());
+		write("watched.annotations", "#@ @key; b:2");
+		awaitAttributes(bundle, "key", "{b=2}");
+		new File(folder.getRoot(), "watched.annotations").delete();
+		awaitAttributes(bundle, "key", "{}");
+	}
+
+	@Test
+	public void testLocaleFileChangeAndCreation() throws Exception {
+		write("watched_fr.properties", "#@ a:fr\nkey=valeur");
+		AnnotatedResourceBundle bundle = createBundle("#@ a:1\nkey=value", null, Locale.FRENCH, BundleOptions.defaults());
+		assertEquals("{a=fr}", bundle.getAttributes("key").toString());
+		watcher = bundle.watch(classLoader());
+		write("watched_fr.properties", "#@ a:${key}!\nkey=chang\u00e9e");
+		awaitAttributes(bundle, "key", "{a=chang\u00e9e!}");
+		assertEquals("chang\u00e9e", bundle.getString("key"));
+		write("watched_fr.annotations", "#@ @key; b:2");
+		awaitAttributes(bundle, "key", "{a=chang\u00e9e!, b=2}");
+	}
+
+	@Test
+	public void testBaseFileChangeUnderALazilyReadLocale() throws Exception {
+		write("watched_fr.properties", "#@ a:fr\nkey=valeur");
+		AnnotatedResourceBundle bundle = createBundle("#@ b:1\nkey=value\nother=1", null, Locale.FRENCH, 
+				BundleOptions.defaults().withLazyAnnotations(true));
+		watcher = bundle.watch(classLoader());
+		write("watched.properties", "#@ b:2\nkey=value\nother=2");
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		// the file may be read half written, and then again
+		while(!(bundle.getBundle().containsKey("other") && "2".equals(bundle.getString("other"))) 
+				&& System.currentTimeMillis() < deadline){
+			Thread.sleep(20);
+		}
+		assertEquals("2", bundle.getString("other"));
+		assertNull(watcher.getLastFailure());
+		assertEquals("{b=2, a=fr}", bundle.getAttributes("key").toString());
+	}
+
+	@Test
+	public void testClosedWatcherStopsReloading() throws Exception {
+		AnnotatedResourceBundle bundle = createBundle("key=value", null);
+		watcher = bundle.watch(classLoader());
+		watcher.close();
+		write("watched.properties", "key=changed");
+		Thread.sleep(500);
+		assertEquals("value", bundle.getString("key"));
+		assertEquals(0, watcher.getReloadCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testJarredFilesCannotBeWatched() throws Exception {
+		Map<String, String> entries = new HashMap<String, String>();
+		entries.put("jarred.properties", "key=value");
+		ClassLoader jarClassLoader = JarClassLoaders.create(folder.getRoot(), entries);
+		new AnnotatedResourceBundle("jarred", jarClassLoader).watch(jarClassLoader);
+	}
+
+	private AnnotatedResourceBundle createBundle(String properties, String annotations) throws IOException {
+		return createBundle(properties, annotations, Locale.ROOT, BundleOptions.defaults());
+	}
+
+	private AnnotatedResourceBundle createBundle(String properties, String annotations, Locale locale, BundleOptions options) 
+			throws IOException {
+		write("watched.properties", properties);
+		if(annotations != null){
+			write("watched.annotations", annotations);
+		}
+		return new AnnotatedResourceBundle("watched", classLoader(), locale, options);
+	}
+
+	private ClassLoader classLoader() throws IOException {
+		if(classLoader == null){
+			classLoader = new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()}, null);
+		}
+		return classLoader;
+	}
+
+	private void write(String fileName, String contents) throws IOException {
+		FileOutputStream out = new FileOutputStream(new File(folder.getRoot(), fileName));
+		try{
+			out.write(contents.getBytes("UTF-8"));
+		}finally{
+			out.close();
+		}
+	}
+
+	private void awaitAttributes(AnnotatedResourceBundle bundle, String key, String expected) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while(!expected.equals(String.valueOf(bundle.getAttributes(key)))){
+			if(System.currentTimeMillis() > deadline){
+				fail("expected "+expected+" but was "+bundle.getAttributes(key)+", last failure: "+watcher.getLastFailure());
+			}
+			Thread.sleep(20);
+		}
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.sandwich.annotatedbundle;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * builds class loaders whose resources live in a jar only
+ */
+public class JarClassLoaders {
+
+	/**
+	 * @param directory where to write the jar
+	 * @param entries contents by entry name
+	 * @return a loader reading from the written jar, with no parent resources
+	 */
+	public static ClassLoader create(File directory, Map<String, String> entries) throws IOException {
+		File jar = new File(directory, "resources.jar");
+		JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+		try{
+			for(Entry<String, String> entry : entries.entrySet()){
+				out.putNextEntry(new ZipEntry(entry.getKey()));
+				out.write(entry.getValue().getBytes("UTF-8"));
+				out.closeEntry();
+			}
+		}finally{
+			out.close();
+		}
+		return new URLClassLoader(new URL[]{jar.toURI().toURL()}, null);
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.sandwich.annotatedbundle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+
+import org.junit.Test;
+
+public class KeyIndexTest {
+
+	@Test
+	public void testPrefix() throws Exception {
+		KeyIndex index = index();
+		assertEquals("[warning.dialog.icon, warning.dialog.title]", index.prefix("warning.dialog.").keySet().toString());
+		assertEquals("[warning.dialog.icon, warning.dialog.title, warning.dialogs, warning.title]", index.prefix("warning.").keySet().toString());
+		assertEquals(6, index.prefix("").size());
+		assertTrue(index.prefix("zzz").isEmpty());
+		assertEquals("[\uffff\uffff]", index.prefix("\uffff").keySet().toString());
+	}
+
+	@Test
+	public void testRange() throws Exception {
+		KeyIndex index = index();
+		assertEquals("[error.title, warning.dialog.icon]", index.range("error", "warning.dialog.title").keySet().toString());
+		assertEquals("[error.title]", index.range(null, "warning").keySet().toString());
+		assertEquals("[warning.title, \uffff\uffff]", index.range("warning.title", null).keySet().toString());
+		assertTrue(index.range("z", "a").isEmpty());
+	}
+
+	@Test
+	public void testSortedMapView() throws Exception {
+		SortedMap<String, Map<String, String>> warnings = index().prefix("warning.");
+		assertEquals("warning.dialog.icon", warnings.firstKey());
+		assertEquals("warning.title", warnings.lastKey());
+		assertEquals("{location=warning_dialog}", warnings.get("warning.dialog.icon").toString());
+		assertTrue(warnings.get("warning.title").isEmpty());
+		assertNull(warnings.get("error.title"));
+		assertFalse(warnings.containsKey("error.title"));
+		assertEquals("[warning.dialog.icon, warning.dialog.title]", warnings.headMap("warning.dialogs").keySet().toString());
+		assertEquals("[warning.dialogs, warning.title]", warnings.tailMap("warning.dialogs").keySet().toString());
+		assertEquals("[warning.dialog.title]", warnings.subMap("warning.dialog.t", "warning.dialogs").keySet().toString());
+		assertEquals("[warning.dialog.icon, warning.dialog.title, warning.dialogs, warning.title]", warnings.tailMap("a").keySet().toString());
+		try{
+			warnings.subMap("a", "b").firstKey();
+			fail();
+		}catch(NoSuchElementException x){}
+		try{
+			warnings.remove("warning.title");
+			fail();
+		}catch(UnsupportedOperationException x){}
+	}
+
+	@Test
+	public void testSelect() throws Exception {
+		List<String> keys = new ArrayList<String>(Arrays.asList("warning.title", "missing", "warning.dialog.icon"));
+		Map<String, Map<String, String>> selected = index().select(keys);
+		assertEquals("[warning.title, warning.dialog.icon]", selected.keySet().toString());
+		assertEquals(2, selected.size());
+		assertNull(selected.get("missing"));
+		assertNull(selected.get("error.title"));
+		keys.add("error.title");
+		assertEquals("{type=title}", selected.get("error.title").toString());
+		try{
+			selected.clear();
+			fail();
+		}catch(UnsupportedOperationException x){}
+	}
+
+	@Test
+	public void testSelectRepeatedKeys() throws Exception {
+		Map<String, Map<String, String>> selected = index().select(
+				Arrays.asList("error.title", "warning.title", "error.title", "missing", "warning.title"));
+		assertEquals("[error.title, warning.title]", selected.keySet().toString());
+		assertEquals(2, selected.size());
+		assertEquals(selected.keySet().size(), selected.entrySet().size());
+		Map<String, Map<String, String>> expected = new LinkedHashMap<String, Map<String, String>>();
+		expected.put("error.title", Collections.singletonMap("type", "title"));
+		expected.put("warning.title", Collections.<String, String>emptyMap());
+		assertEquals(expected, selected);
+		assertEquals(expected.hashCode(), selected.hashCode());
+	}
+
+	private KeyIndex index() {
+		Map<String, Map<String, String>> propertyAttributes = new LinkedHashMap<String, Map<String, String>>();
+		propertyAttributes.put("warning.dialog.icon", Collections.singletonMap("location", "warning_dialog"));
+		propertyAttributes.put("error.title", Collections.singletonMap("type", "title"));
+		return new KeyIndex(Arrays.asList("warning.title", "warning.dialogs", "warning.dialog.title",
+				"warning.dialog.icon", "error.title", "\uffff\uffff"), propertyAttributes);
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.sandwich.annotatedbundle.filereader;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Test;
+
+public class AnnotatedPropertiesReaderTest {
+
+	@Test
+	public void testValuesMatchJavaUtilProperties() throws Exception {
+		String contents = "# comment=ignored\n"
+				+ "! also:ignored\n"
+				+ "   \n"
+				+ "a=1\n"
+				+ "b : 2\n"
+				+ "c 3\n"
+				+ "d=\n"
+				+ "e\n"
+				+ "  f  =  padded  \n"
+				+ "g=con\\\n"
+				+ "     tinued\\\n"
+				+ "# not a comment\n"
+				+ "h\\=i\\:j=escaped\\tseparators\n"
+				+ "k=\\u0041\\u00e9\\n\\\\\r\n"
+				+ "l==:\r"
+				+ "m\\ n=trailing\\\\\\\n"
+				+ "backslash";
+		Properties expected = new Properties();
+		expected.load(new StringReader(contents));
+		assertEquals(new HashMap<Object, Object>(expected), 
+				new HashMap<Object, Object>(new AnnotatedPropertiesReader().read(contents).getValues()));
+	}
+	
+	@Test
+	public void testContinuationAtEndOfFile() throws Exception {
+		assertEquals("{a=b}", new AnnotatedPropertiesReader().read("a=b\\").getValues().toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMalformedUnicodeEscape() throws Exception {
+		new AnnotatedPropertiesReader().read("a=\\u00g1");
+	}
+
+	@Test
+	public void testAnnotationsAreCapturedUnresolved() throws Exception {
+		Map<String, Map<String, String>> attributes = new AnnotatedPropertiesReader().read(
+				"#@ key:${key}; one:one;\nkey=value\ntwo=2").getPropertyAttributes();
+		assertEquals("{key={key=${key}, one=one}, two={}}", attributes.toString());
+	}
+
+	@Test
+	public void testAnnotationsMatchPropertiesFileReader() throws Exception {
+		PropertiesFileReader reader = new PropertiesFileReader(null);
+		Map<String, Map<String, String>> expected = reader.capturePropertiesFromFile(
+				"injectable_values", getClass().getClassLoader());
+		Map<String, Map<String, String>> actual = new AnnotatedPropertiesReader().read(
+				getClass().getClassLoader().getResourceAsStream("injectable_values.properties")).getPropertyAttributes();
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testLatin1FallbackForInvalidUtf8() throws Exception {
+		byte[] bytes = "k=caf\u00e9".getBytes("ISO-8859-1");
+		assertEquals("caf\u00e9", new AnnotatedPropertiesReader().read(new ByteArrayInputStream(bytes)).getValues().get("k"));
+	}
+
+}
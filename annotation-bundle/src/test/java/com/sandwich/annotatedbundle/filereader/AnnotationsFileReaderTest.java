@@ -1,25 +1,45 @@
 package com.sandwich.annotatedbundle.filereader;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.File;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import com.sandwich.annotatedbundle.JarClassLoaders;
 import com.sandwich.annotatedbundle.filereader.AnnotationsFileReader;
 import com.sandwich.annotatedbundle.filereader.FileReader;
 
 public class AnnotationsFileReaderTest extends FileReaderTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Test
 	public void testPropertyCapturing_file() throws Exception {
 		assertEquals("{key={key=value}}", createInstance().capturePropertiesFromFile(
 				"outside_classpath", getClass().getClassLoader()).toString());
 	}
 	
+	@Test
+	public void testPropertyCapturing_jar() throws Exception {
+		Map<String, String> entries = new LinkedHashMap<String, String>();
+		entries.put("jarred.annotations", "#@ @key; key:value");
+		ClassLoader classLoader = JarClassLoaders.create(folder.getRoot(), entries);
+		assertEquals("jar", createInstance().findResource("jarred", classLoader).getProtocol());
+		assertEquals("{key={key=value}}", createInstance().capturePropertiesFromFile(
+				"jarred", classLoader).toString());
+	}
+	
 	@Test
 	public void testCapturePropertiesNulls() throws Exception {
 		Entry<String, Map<String, String>> results = createInstance().captureProperties(null, null);
@@ -98,6 +118,53 @@ public class AnnotationsFileReaderTest extends FileReaderTest {
 		assertEquals(Collections.emptyMap(), capturedPropertiesFromFiled);
 	}
 	
+	@Test
+	public void testMappedFileMatchesSequentialRead() throws Exception {
+		File file = folder.newFile("mapped.annotations");
+		write(file, "#@ @key; a:1\r\n#@ @key; b:2\n#@ @; c:3\n#@ key:4\r#@ @other;\n#@ @key; a:5");
+		FileReader instance = createInstance();
+		Map<String, Map<String, String>> mapped = instance.capturePropertiesFromMappedFile(file);
+		assertEquals("{key={a=5, b=2}, other={}}", mapped.toString());
+		assertEquals(instance.capturePropertiesFromFile(file), mapped);
+	}
+	
+	@Test
+	public void testIndexMatchesSequentialRead() throws Exception {
+		String contents = "#@ @key; a:1\r\n#@ @key; b:2\n#@ @; c:3\n#@ key:4\r#@ @other;\n#@ @key; a:5";
+		File file = folder.newFile("indexed.annotations");
+		write(file, contents);
+		Map<String, String> entries = new LinkedHashMap<String, String>();
+		entries.put("indexed.annotations", contents);
+		ClassLoader classLoader = JarClassLoaders.create(folder.newFolder("jar"), entries);
+		FileReader instance = createInstance();
+		for(LineIndex index : new LineIndex[]{instance.indexResource(file.toURI().toURL()), 
+				instance.indexResource(instance.findResource("indexed", classLoader))}){
+			assertEquals("[key, other]", index.getKeys().toString());
+			assertEquals("{a=5, b=2}", index.readAttributes("key").toString());
+			assertEquals("{}", index.readAttributes("other").toString());
+			assertNull(index.readAttributes("missing"));
+		}
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testIndexedFileChanged() throws Exception {
+		File file = folder.newFile("changed.annotations");
+		write(file, "#@ @key; a:1");
+		LineIndex index = createInstance().indexResource(file.toURI().toURL());
+		write(file, "#@ @other; a:1\n#@ @key; a:2");
+		index.readAttributes("key");
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testIndexedFileChangedInPlace() throws Exception {
+		File file = folder.newFile("edited.annotations");
+		write(file, "#@ @key; a:1");
+		LineIndex index = createInstance().indexResource(file.toURI().toURL());
+		write(file, "#@ @key; a:2");
+		assertTrue(file.setLastModified(file.lastModified() + 60000));
+		index.readAttributes("key");
+	}
+	
 	@Override
 	protected FileReader createInstance() {
 		return new AnnotationsFileReader(null);
@@ -7,6 +7,10 @@ import static org.junit.Assert.assertTrue;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
@@ -57,4 +61,42 @@ public class EntryTest {
 		assertSame(map, s.getValue());
 	}
 	
+	@Test
+	public void testGetValue_concurrentCallersReadPropertiesOnce() throws Exception {
+		final AtomicInteger reads = new AtomicInteger();
+		final Entry s = new Entry("key"){
+			@Override
+			Map<String, String> readProperties() {
+				reads.incrementAndGet();
+				Thread.yield();
+				return new HashMap<String, String>();
+			}
+		};
+		final CountDownLatch start = new CountDownLatch(1);
+		final Queue<Map<String, String>> values = new ConcurrentLinkedQueue<Map<String, String>>();
+		Thread[] threads = new Thread[8];
+		for(int i = 0; i < threads.length; i++){
+			threads[i] = new Thread(new Runnable(){
+				public void run() {
+					try{
+						start.await();
+					}catch(InterruptedException x){
+						return;
+					}
+					values.add(s.getValue());
+				}
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		for(Thread thread : threads){
+			thread.join();
+		}
+		assertEquals(1, reads.get());
+		assertEquals(threads.length, values.size());
+		for(Map<String, String> value : values){
+			assertSame(values.peek(), value);
+		}
+	}
+	
 }
@@ -7,6 +7,8 @@ import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -95,6 +97,22 @@ public class FileReaderTest {
 		assertFalse(properties.hasNext());
 	}
 	
+	@Test
+	public void testParsingAttributesFromLine_range() throws Exception {
+		assertEquals("{key=value, key2= value2 }", 
+				createInstance().parseAttributesFromLine("#@ key:value;key2: value2 ;other:x", 3, 26).toString());
+	}
+	
+	@Test
+	public void testParsingAttributesFromLine_repeatedNamesAndValuesAreShared() throws Exception {
+		FileReader reader = createInstance();
+		Map<String, String> first = reader.parseAttributesFromLine("location:warning_dialog; width:32");
+		Map<String, String> second = reader.parseAttributesFromLine(" location :warning_dialog;width:32");
+		assertEquals(first, second);
+		assertSame(first.keySet().iterator().next(), second.keySet().iterator().next());
+		assertSame(first.get("location"), second.get("location"));
+	}
+	
 	@Test
 	public void testPropertyCapturing_nulls_nullFileAcceptable() throws SecurityException, NoSuchFieldException, IllegalArgumentException, IllegalAccessException {
 		FileReader reader = testPropertyCapturing_nulls(true);
@@ -163,6 +181,15 @@ public class FileReaderTest {
 		}
 	}
 	
+	protected void write(File file, String contents) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try{
+			out.write(contents.getBytes("UTF-8"));
+		}finally{
+			out.close();
+		}
+	}
+	
 	public void stubPropertyCapturer(FileReader instance, 
 			final com.sandwich.annotatedbundle.filereader.Entry entry) throws NoSuchFieldException, IllegalAccessException {
 		Field propertyCapturer = FileReader.class.getDeclaredField("propertyCapturer");
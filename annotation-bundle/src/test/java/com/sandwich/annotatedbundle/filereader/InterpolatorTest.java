@@ -0,0 +1,128 @@
+package com.sandwich.annotatedbundle.filereader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+import org.junit.Test;
+
+public class InterpolatorTest {
+
+	@Test
+	public void testTemplateSegments() throws Exception {
+		Template template = Template.parse("a${b}c${d}");
+		assertTrue(template.hasReferences());
+		assertEquals(2, template.getReferenceCount());
+		assertEquals("a", template.getLiteral(0));
+		assertEquals("b", template.getReference(0));
+		assertEquals("c", template.getLiteral(1));
+		assertEquals("d", template.getReference(1));
+		assertEquals("", template.getLiteral(2));
+		assertEquals("a${b}c${d}", template.toString());
+	}
+
+	@Test
+	public void testTemplateUnclosedReferenceIsLiteral() throws Exception {
+		Template template = Template.parse("}${");
+		assertFalse(template.hasReferences());
+		assertEquals("}${", template.getLiteral(0));
+		assertEquals(1, Template.parse("${a} ${b").getReferenceCount());
+	}
+
+	@Test
+	public void testTemplateManyReferences() throws Exception {
+		StringBuilder value = new StringBuilder();
+		for(int i = 0; i < 20; i++){
+			value.append('-').append("${").append(i).append('}');
+		}
+		Template template = Template.parse(value.toString());
+		assertEquals(20, template.getReferenceCount());
+		assertEquals("19", template.getReference(19));
+		assertEquals("-", template.getLiteral(19));
+	}
+
+	@Test
+	public void testValueWithoutReferencesIsReturnedAsIs() throws Exception {
+		String value = "no references } here";
+		assertSame(value, new Interpolator(bundle(new HashMap<String, String>())).interpolate(value));
+	}
+
+	@Test
+	public void testNestedReferences() throws Exception {
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("host", "example.com");
+		values.put("url", "http://${host}/${path}");
+		values.put("path", "index");
+		assertEquals("<http://example.com/index>", new Interpolator(bundle(values)).interpolate("<${url}>"));
+	}
+
+	@Test
+	public void testPropertiesAreResolvedOnce() throws Exception {
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("a", "${b}${b}");
+		values.put("b", "${c}");
+		values.put("c", "c");
+		CountingBundle bundle = bundle(values);
+		Interpolator interpolator = new Interpolator(bundle);
+		assertEquals("cccc", interpolator.interpolate("${a}${a}"));
+		assertEquals("cc", interpolator.interpolate("${a}"));
+		assertEquals(3, bundle.lookups);
+	}
+
+	@Test
+	public void testCycleIsReported() throws Exception {
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("start", "${a}");
+		values.put("a", "x${b}");
+		values.put("b", "${a}");
+		try{
+			new Interpolator(bundle(values)).interpolate("${start}");
+			fail();
+		}catch(IllegalArgumentException x){
+			assertEquals("The property: a refers to itself: a -> b -> a", x.getMessage());
+		}
+	}
+
+	@Test
+	public void testSelfReferenceIsReported() throws Exception {
+		try{
+			new Interpolator(bundle(Collections.singletonMap("a", "${a}"))).interpolate("${a}");
+			fail();
+		}catch(IllegalArgumentException x){
+			assertEquals("The property: a refers to itself: a -> a", x.getMessage());
+		}
+	}
+
+	private static CountingBundle bundle(Map<String, String> values) {
+		return new CountingBundle(values);
+	}
+
+	private static class CountingBundle extends ResourceBundle {
+		private final Map<String, String> values;
+		int lookups;
+
+		CountingBundle(Map<String, String> values) {
+			this.values = values;
+		}
+
+		@Override
+		protected Object handleGetObject(String key) {
+			lookups++;
+			return values.get(key);
+		}
+
+		@Override
+		public Enumeration<String> getKeys() {
+			return Collections.enumeration(values.keySet());
+		}
+	}
+
+}
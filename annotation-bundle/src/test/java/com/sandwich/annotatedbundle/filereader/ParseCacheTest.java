@@ -0,0 +1,164 @@
+package com.sandwich.annotatedbundle.filereader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParseCacheTest {
+
+	private static final String PROPERTIES = "#@ host:${host_name}; user:matyb;\nconnection=my_connection://\n"
+			+ "host_name=www.github.com\nlong=" + repeat('x', 70000);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testPropertiesAreParsedOnce() throws Exception {
+		ParseCache cache = new ParseCache(new File(folder.getRoot(), "cache"));
+		ParsedProperties parsed = cache.readProperties(stream(PROPERTIES));
+		ParsedProperties cached = cache.readProperties(stream(PROPERTIES));
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+		ParsedProperties expected = new AnnotatedPropertiesReader().read(stream(PROPERTIES));
+		assertEquals(expected.getValues(), parsed.getValues());
+		assertEquals(expected.getValues(), cached.getValues());
+		assertEquals(expected.getPropertyAttributes().toString(), cached.getPropertyAttributes().toString());
+	}
+
+	@Test
+	public void testCacheIsSharedThroughDirectory() throws Exception {
+		File directory = folder.newFolder("cache");
+		new ParseCache(directory).readProperties(stream(PROPERTIES));
+		ParseCache cache = new ParseCache(directory);
+		cache.readProperties(stream(PROPERTIES));
+		assertEquals(0, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void testChangedContentsAreParsed() throws Exception {
+		ParseCache cache = new ParseCache(folder.newFolder("cache"));
+		cache.readProperties(stream(PROPERTIES));
+		ParsedProperties changed = cache.readProperties(stream(PROPERTIES + "\nadded=1"));
+		assertEquals(2, cache.getMissCount());
+		assertEquals("1", changed.getValues().get("added"));
+	}
+
+	@Test
+	public void testEntriesOfEarlierParsersAreNotServed() throws Exception {
+		byte[] contents = PROPERTIES.getBytes("UTF-8");
+		assertTrue(Arrays.equals(ParseCache.digest(AnnotatedPropertiesReader.class, ParseCache.PARSER_VERSION, contents),
+				ParseCache.digest(AnnotatedPropertiesReader.class, ParseCache.PARSER_VERSION, contents)));
+		assertFalse(Arrays.equals(ParseCache.digest(AnnotatedPropertiesReader.class, ParseCache.PARSER_VERSION, contents),
+				ParseCache.digest(AnnotatedPropertiesReader.class, ParseCache.PARSER_VERSION - 1, contents)));
+	}
+
+	@Test
+	public void testDamagedEntryIsParsedAndRewritten() throws Exception {
+		File directory = folder.newFolder("cache");
+		ParseCache cache = new ParseCache(directory);
+		cache.readProperties(stream(PROPERTIES));
+		File[] entries = directory.listFiles();
+		assertEquals(1, entries.length);
+		truncate(entries[0]);
+		assertEquals("www.github.com", cache.readProperties(stream(PROPERTIES)).getValues().get("host_name"));
+		assertEquals(2, cache.getMissCount());
+		cache.readProperties(stream(PROPERTIES));
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void testEntryWithADamagedBodyIsParsedAndRewritten() throws Exception {
+		File directory = folder.newFolder("cache");
+		ParseCache cache = new ParseCache(directory);
+		cache.readProperties(stream(PROPERTIES));
+		File[] entries = directory.listFiles();
+		assertEquals(1, entries.length);
+		// a byte of the long value, the entry's header and length are as they were
+		overwrite(entries[0], entries[0].length() / 2, 'y');
+		ParsedProperties parsed = cache.readProperties(stream(PROPERTIES));
+		assertEquals(repeat('x', 70000), parsed.getValues().get("long"));
+		assertEquals(2, cache.getMissCount());
+		assertEquals(repeat('x', 70000), cache.readProperties(stream(PROPERTIES)).getValues().get("long"));
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void testAnnotationsFile() throws Exception {
+		File annotations = folder.newFile("cached.annotations");
+		write(annotations, "#@ @connection; owner:matyb\n#@ @host_name; a:1; b:${two}");
+		ParseCache cache = new ParseCache(folder.newFolder("cache"));
+		AnnotationsFileReader reader = new AnnotationsFileReader(null);
+		Map<String, Map<String, String>> expected = reader.capturePropertiesFromResource(annotations.toURI().toURL());
+		assertEquals(expected, cache.capturePropertiesFromResource(reader, annotations.toURI().toURL()));
+		assertEquals(expected, cache.capturePropertiesFromResource(reader, annotations.toURI().toURL()));
+		assertEquals(1, cache.getHitCount());
+		// same bytes, another reader: another entry
+		cache.capturePropertiesFromResource(new PropertiesFileReader(null), annotations.toURI().toURL());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testMissingAnnotationsFile() throws Exception {
+		ParseCache cache = new ParseCache(folder.newFolder("cache"));
+		assertTrue(cache.capturePropertiesFromResource(new AnnotationsFileReader(null), null).isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDirectoryIsAFile() throws Exception {
+		new ParseCache(folder.newFile("not_a_directory"));
+	}
+
+	private void truncate(File file) throws IOException {
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try{
+			out.setLength(file.length() / 2);
+		}finally{
+			out.close();
+		}
+	}
+
+	private void overwrite(File file, long offset, char c) throws IOException {
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try{
+			out.seek(offset);
+			out.write(c);
+		}finally{
+			out.close();
+		}
+	}
+
+	private static ByteArrayInputStream stream(String contents) throws IOException {
+		return new ByteArrayInputStream(contents.getBytes("UTF-8"));
+	}
+
+	private static void write(File file, String contents) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try{
+			out.write(contents.getBytes("UTF-8"));
+		}finally{
+			out.close();
+		}
+	}
+
+	private static String repeat(char c, int count) {
+		StringBuilder repeated = new StringBuilder(count);
+		for(int i = 0; i < count; i++){
+			repeated.append(c);
+		}
+		return repeated.toString();
+	}
+
+}
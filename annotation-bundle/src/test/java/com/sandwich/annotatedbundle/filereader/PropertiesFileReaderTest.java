@@ -1,19 +1,27 @@
 package com.sandwich.annotatedbundle.filereader;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.io.File;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.sandwich.annotatedbundle.filereader.FileReader;
 import com.sandwich.annotatedbundle.filereader.PropertiesFileReader;
 
 public class PropertiesFileReaderTest extends FileReaderTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Test
 	public void testPropertyCapturing_file() throws Exception {
 		assertEquals("{key={1=1, one=one}}", createInstance().capturePropertiesFromFile(
@@ -64,6 +72,139 @@ public class PropertiesFileReaderTest extends FileReaderTest {
 		assertEquals("{meh={}}", capturedPropertiesFromFiled.toString());
 	}
 	
+	@Test
+	public void testMappedFileMatchesSequentialRead() throws Exception {
+		for(String name : new String[]{"first_line_annotated", "injectable_values", "no_annotations", "key_on_multiple_lines"}){
+			PropertiesFileReader instance = createInstance();
+			File file = instance.findFile(name, getClass().getClassLoader());
+			assertEquals(instance.capturePropertiesFromFile(file), instance.capturePropertiesFromMappedFile(file));
+		}
+	}
+	
+	@Test
+	public void testMappedFile_lineBreaksAndMultiByteCharacters() throws Exception {
+		File file = folder.newFile("mapped.properties");
+		write(file, "#@ a:\u00e9t\u00e9;\r\nk\u00e9y=1\r\rplain=2\n#@ b:2\n#@ c:3\nlast=3");
+		PropertiesFileReader instance = createInstance();
+		Map<String, Map<String, String>> mapped = instance.capturePropertiesFromMappedFile(file);
+		assertEquals("{k\u00e9y={a=\u00e9t\u00e9}, plain={}, last={c=3}}", mapped.toString());
+		assertEquals(instance.capturePropertiesFromFile(file), mapped);
+	}
+	
+	@Test
+	public void testParallelParseMatchesSequentialRead() throws Exception {
+		File file = folder.newFile("parallel.properties");
+		write(file, "#@ a:\u00e9t\u00e9;\r\nk\u00e9y=1\r\rplain=2\n#@ b:2\n#@ c:3\nlast=3\n\n#@ a:4\nk\u00e9y=4\r\n#@ d:5\nplain=5");
+		PropertiesFileReader sequential = createInstance();
+		String expected = sequential.capturePropertiesFromMappedFile(file).toString();
+		assertEquals("{k\u00e9y={a=4}, plain={d=5}, last={c=3}}", expected);
+		for(int chunkSize = 1; chunkSize < file.length(); chunkSize++){
+			PropertiesFileReader parallel = createInstance();
+			parallel.setParallelThreshold(0);
+			parallel.setMinimumChunkSize(chunkSize);
+			assertEquals("chunks of "+chunkSize, expected, parallel.capturePropertiesFromMappedFile(file).toString());
+		}
+	}
+	
+	@Test
+	public void testParallelParseVisitsInOrderAndMayStop() throws Exception {
+		File file = folder.newFile("visited.properties");
+		write(file, "#@ a:1\nfirst=1\nsecond=2\n#@ b:2\nthird=3\nfourth=4");
+		PropertiesFileReader instance = createInstance();
+		instance.setMappedFileThreshold(0);
+		instance.setParallelThreshold(0);
+		instance.setMinimumChunkSize(8);
+		ReaderMetrics metrics = new ReaderMetrics();
+		instance.setMetrics(metrics);
+		final StringBuilder visited = new StringBuilder();
+		instance.visitFile(file, new AnnotationVisitor(){
+			public boolean visit(String key, Map<String, String> attributes) {
+				visited.append(key).append(attributes);
+				return !"third".equals(key);
+			}
+		});
+		assertEquals("first{a=1}second{}third{b=2}", visited.toString());
+		assertEquals(1, metrics.getFileCount());
+	}
+	
+	@Test
+	public void testParallelVisitReadsAheadOnlyAFewChunks() throws Exception {
+		File file = folder.newFile("bounded.properties");
+		StringBuilder contents = new StringBuilder();
+		for(int i = 0; i < 5000; i++){
+			contents.append("k").append(i).append("=").append(i).append("\n");
+		}
+		write(file, contents.toString());
+		final AtomicInteger captured = new AtomicInteger();
+		PropertiesFileReader instance = new PropertiesFileReader(null){
+			@Override
+			Map.Entry<String, Map<String, String>> captureProperties(ByteLines lines, int start, int end, int previousStart, int previousEnd) {
+				captured.incrementAndGet();
+				return super.captureProperties(lines, start, end, previousStart, previousEnd);
+			}
+		};
+		instance.setMappedFileThreshold(0);
+		instance.setParallelThreshold(0);
+		instance.setMinimumChunkSize(8);
+		instance.setMaximumChunkSize(64);
+		final AtomicInteger furthestAhead = new AtomicInteger();
+		instance.visitFile(file, new AnnotationVisitor(){
+			private int visited;
+			public boolean visit(String key, Map<String, String> attributes) {
+				if(visited++ == 0){
+					try{
+						Thread.sleep(200); // the chunks forked keep being read meanwhile
+					}catch(InterruptedException e){
+						Thread.currentThread().interrupt();
+					}
+				}
+				furthestAhead.set(Math.max(furthestAhead.get(), captured.get() - visited));
+				return true;
+			}
+		});
+		assertEquals(5000, captured.get());
+		assertTrue(String.valueOf(furthestAhead.get()), furthestAhead.get() < 2500);
+	}
+	
+	@Test
+	public void testVisitorSeesEachLineAndMayStop() throws Exception {
+		File file = folder.newFile("visited.properties");
+		write(file, "#@ a:1\nfirst=1\nsecond=2\n#@ b:2\nthird=3\nfourth=4");
+		for(long threshold : new long[]{0, Long.MAX_VALUE}){
+			PropertiesFileReader instance = createInstance();
+			instance.setMappedFileThreshold(threshold);
+			final StringBuilder visited = new StringBuilder();
+			instance.visitFile(file, new AnnotationVisitor(){
+				public boolean visit(String key, Map<String, String> attributes) {
+					visited.append(key).append(attributes);
+					return !"third".equals(key);
+				}
+			});
+			assertEquals("first{a=1}second{}third{b=2}", visited.toString());
+		}
+	}
+	
+	@Test
+	public void testVisitResource() throws Exception {
+		final StringBuilder visited = new StringBuilder();
+		createInstance().visitResource(getClass().getClassLoader().getResource("first_line_annotated.properties"), 
+				new AnnotationVisitor(){
+					public boolean visit(String key, Map<String, String> attributes) {
+						visited.append(key).append(attributes);
+						return true;
+					}
+				});
+		assertEquals("key{1=1, one=one}", visited.toString());
+	}
+	
+	@Test
+	public void testMappedFileThreshold() throws Exception {
+		PropertiesFileReader instance = createInstance();
+		instance.setMappedFileThreshold(0);
+		assertEquals("{key={1=1, one=one}}", instance.capturePropertiesFromFile(
+				"first_line_annotated.properties", getClass().getClassLoader()).toString());
+	}
+	
 	@Override
 	protected PropertiesFileReader createInstance() {
 		return new PropertiesFileReader(null);